@@ -6,4 +6,4 @@ fi
 export LOG_FILE=/app/logs/${SPRING_APPLICATION_NAME}/${POD_NAME}.log
 echo "The application will start in ${JHIPSTER_SLEEP}s..." && sleep ${JHIPSTER_SLEEP}
 
-exec java ${JAVA_OPTS} -noverify -XX:+AlwaysPreTouch -Djava.security.egd=file:/dev/./urandom --add-opens java.base/java.lang=ALL-UNNAMED -cp /app/resources/:/app/classes/:/app/libs/* "com.a4b.dqes.DqesApp" "$@"
+exec java ${JAVA_OPTS} -noverify -XX:+AlwaysPreTouch -Djava.security.egd=file:/dev/./urandom --add-opens java.base/java.lang=ALL-UNNAMED --add-opens java.base/java.nio=ALL-UNNAMED -cp /app/resources/:/app/classes/:/app/libs/* "com.a4b.dqes.DqesApp" "$@"
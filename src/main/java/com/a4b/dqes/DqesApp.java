@@ -22,6 +22,7 @@ import org.springframework.core.env.Environment;
 import com.a4b.dqes.config.ApplicationProperties;
 import com.a4b.dqes.config.AuthProperties;
 import com.a4b.dqes.config.CRLFLogConverter;
+import com.a4b.dqes.config.QueryEngineProperties;
 
 import jakarta.annotation.PostConstruct;
 import tech.jhipster.config.DefaultProfileUtil;
@@ -31,7 +32,7 @@ import tech.jhipster.config.JHipsterConstants;
         "com.a4b.xpservicelog",
         "com.a4b.core.ezmt.client", "org.springdoc.core"})
 @SpringBootApplication
-@EnableConfigurationProperties({ ApplicationProperties.class, AuthProperties.class })
+@EnableConfigurationProperties({ ApplicationProperties.class, AuthProperties.class, QueryEngineProperties.class })
 @EnableAutoConfiguration(exclude = { JpaAutoConfiguration.class, AxonAutoConfiguration.class })
 @EnableDiscoveryClient
 public class DqesApp {
@@ -80,7 +80,7 @@ public class CacheConfiguration {
     }
 
     @Bean
-    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties) {
+    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties, QueryEngineProperties queryEngineProperties) {
         log.debug("Configuring Hazelcast");
         HazelcastInstance hazelCastInstance = Hazelcast.getHazelcastInstanceByName("dqes");
         if (hazelCastInstance != null) {
@@ -121,7 +121,7 @@ public class CacheConfiguration {
             }
         }
 
-        initializeApplicationCaches(config, jHipsterProperties);
+        initializeApplicationCaches(config, jHipsterProperties, queryEngineProperties);
 
         config.setManagementCenterConfig(new ManagementCenterConfig());
         config.addMapConfig(initializeDefaultMapConfig(jHipsterProperties));
@@ -180,7 +180,8 @@ public class CacheConfiguration {
         return new PrefixedKeyGenerator(this.gitProperties, this.buildProperties);
     }
     
-    private void initializeApplicationCaches(Config config, JHipsterProperties jHipsterProperties) {
+    private void initializeApplicationCaches(Config config, JHipsterProperties jHipsterProperties,
+    		QueryEngineProperties queryEngineProperties) {
     	config.getMapConfigs().put(CacheNames.FIELD_SECURITY, new MapConfig()
 				.setBackupCount(0)
 				.setTimeToLiveSeconds(60)
@@ -196,6 +197,14 @@ public class CacheConfiguration {
 						.setMaxSizePolicy(MaxSizePolicy.USED_HEAP_SIZE)
 						.setSize(2))
 				);
+    	
+    	// Dynamic query results: TTL is set per entry from qrytb_object_meta.result_cache_ttl_sec
+    	config.getMapConfigs().put(CacheNames.QUERY_RESULT, new MapConfig()
+				.setBackupCount(0)
+				.setEvictionConfig(new EvictionConfig().setEvictionPolicy(EvictionPolicy.LRU)
+						.setMaxSizePolicy(MaxSizePolicy.USED_HEAP_SIZE)
+						.setSize(queryEngineProperties.getResultCache().getMaxHeapMb()))
+				);
     }
     
     @Bean(name = KEY_GENERATOR_MCR_CUSTOM)
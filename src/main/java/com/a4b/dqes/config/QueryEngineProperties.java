@@ -0,0 +1,188 @@
+package com.a4b.dqes.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Tuning properties for the Dynamic Query Engine.
+ * <p>
+ * Properties are configured under {@code dqes.query} in the {@code application.yml} file.
+ */
+@Data
+@ConfigurationProperties(prefix = "dqes.query", ignoreUnknownFields = false)
+public class QueryEngineProperties {
+
+    private final Stream stream = new Stream();
+    private final Total total = new Total();
+    private final PlanCache planCache = new PlanCache();
+    private final Batch batch = new Batch();
+    private final ResultCache resultCache = new ResultCache();
+    private final Timeout timeout = new Timeout();
+    private final Job job = new Job();
+    private final Spill spill = new Spill();
+    private final Columnar columnar = new Columnar();
+    private final CostGuard costGuard = new CostGuard();
+    private final Bulkhead bulkhead = new Bulkhead();
+    private final Coalesce coalesce = new Coalesce();
+    private final DeferredJoin deferredJoin = new DeferredJoin();
+    private final NestedCollection nestedCollection = new NestedCollection();
+
+    /**
+     * Streaming (NDJSON) result settings
+     */
+    @Data
+    public static class Stream {
+        private int fetchSize = 1000;       // Rows fetched per cursor round trip
+        private int flushEveryRows = 500;   // Flush output stream every N rows
+    }
+    
+    /**
+     * Total count (includeTotal, /count) settings
+     */
+    @Data
+    public static class Total {
+        private int windowMaxLimit = 200;   // Pages up to this size use COUNT(*) OVER(), larger ones a parallel count
+        private long autoExactMaxRows = 100_000;    // countMode=AUTO: run the exact count below this estimate
+        private int autoExactTimeoutSec = 2;        // countMode=AUTO: exact count timeout before using the estimate
+    }
+    
+    /**
+     * Compiled query plan cache settings
+     */
+    @Data
+    public static class PlanCache {
+        private boolean enabled = true;
+        private long maxSize = 1000;        // Max distinct request shapes kept (all tenants)
+    }
+    
+    /**
+     * Batch query endpoint settings
+     */
+    @Data
+    public static class Batch {
+        private int maxItems = 50;                  // Max named queries per batch
+        private int maxConcurrencyPerConn = 4;      // Concurrent queries per dbconnId within one batch
+    }
+    
+    /**
+     * Result cache settings (objects opt in via qrytb_object_meta.result_cache_ttl_sec)
+     */
+    @Data
+    public static class ResultCache {
+        private boolean enabled = false;
+        private int maxHeapMb = 64;         // Per member, LRU beyond this
+        private int maxEntryRows = 10_000;  // Larger (or spilled) results are not cached
+        private long maxEntryBytes = 1024L * 1024;  // Serialized result size limit per entry
+    }
+    
+    /**
+     * Statement timeout settings (Statement.setQueryTimeout)
+     */
+    @Data
+    public static class Timeout {
+        private int defaultSec = 30;                                // When neither request nor tenant sets one
+        private int maxSec = 300;                                   // Upper bound for request/tenant values
+        private Map<String, Integer> tenantDefaultSec = new HashMap<>();  // Tenant code -> default seconds
+    }
+    
+    /**
+     * Asynchronous query job settings
+     */
+    @Data
+    public static class Job {
+        private String spoolDir = System.getProperty("java.io.tmpdir") + "/dqes-spool";  // Local NDJSON spool files
+        private long ttlMinutes = 60;       // Spooled result kept this long after completion
+        private int maxRunningJobs = 10;    // Per instance
+        private int retryAfterSec = 30;     // Retry-After sent with 429 when maxRunningJobs are running
+        private int maxPageSize = 10000;    // Max rows per result page
+        private int indexInterval = 1000;   // Spool offset recorded every N rows (page seek granularity)
+        private int timeoutSec = 3600;      // Job statement timeout (request timeoutSec capped to it, not to timeout.max-sec); 0 = none
+    }
+    
+    /**
+     * Spill-to-disk settings for large /execute results
+     */
+    @Data
+    public static class Spill {
+        private int rowThreshold = 50_000;                  // Rows kept on heap before spilling
+        private long byteThreshold = 64L * 1024 * 1024;     // Estimated heap bytes before spilling
+        private long maxBytes = 2L * 1024 * 1024 * 1024;    // Spill file size that aborts the query (0 = unlimited)
+        private String dir = System.getProperty("java.io.tmpdir") + "/dqes-spill";  // Temp files, unlinked once mapped
+    }
+    
+    /**
+     * Columnar response format settings
+     */
+    @Data
+    public static class Columnar {
+        private int dictionaryMaxCardinality = 1024;    // String columns with more distinct values stay plain
+    }
+    
+    /**
+     * EXPLAIN-based admission check on row queries (execute / stream)
+     */
+    @Data
+    public static class CostGuard {
+        private boolean enabled = false;
+        private Action action = Action.REJECT;      // Over the limits: reject, or run with forcedLimit
+        private int forcedLimit = 1000;             // Row limit applied by Action.LIMIT
+        private CostLimits defaults = new CostLimits();
+        private Map<String, CostLimits> tenant = new HashMap<>();   // Tenant code -> limits (over defaults)
+        private Map<Integer, CostLimits> dbconn = new HashMap<>();  // dbconnId -> limits (over tenant)
+        
+        public enum Action {
+            REJECT,
+            LIMIT
+        }
+    }
+    
+    /**
+     * Per-dbconn concurrency bulkhead in front of the target pools
+     */
+    @Data
+    public static class Bulkhead {
+        private boolean enabled = true;
+        private int maxConcurrent = 10;     // Connections handed out at once (target pools hold 10)
+        private int maxQueued = 50;         // Callers waiting for a connection; more fail fast (429)
+        private long maxWaitMs = 5000;      // Queued callers give up after this (429)
+        private int retryAfterSec = 2;      // Retry-After sent with 429
+    }
+    
+    /**
+     * Single-flight coalescing of identical concurrent /execute calls
+     */
+    @Data
+    public static class Coalesce {
+        private boolean enabled = true;
+    }
+    
+    /**
+     * Deferred-join pagination: page root keys first, then join selected objects for the page only
+     */
+    @Data
+    public static class DeferredJoin {
+        private boolean enabled = true;
+    }
+    
+    /**
+     * Selected ONE_TO_MANY objects returned as per-row JSON arrays (LEFT JOIN LATERAL)
+     */
+    @Data
+    public static class NestedCollection {
+        private int defaultLimit = 50;      // Elements per parent row when the request sets no limit
+        private int maxLimit = 1000;        // Upper bound for requested limits
+    }
+    
+    /**
+     * Planner estimate limits of one query; 0 = unlimited
+     */
+    @Data
+    public static class CostLimits {
+        private double maxTotalCost = 0;    // Top plan node total cost
+        private double maxRows = 0;         // Top plan node row estimate
+    }
+}
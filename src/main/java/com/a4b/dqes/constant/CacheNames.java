@@ -9,4 +9,5 @@ public interface CacheNames {
 
     String FIELD_SECURITY = "fieldSecurity";
     String USER_PROFILE = "userProfile";
+    String QUERY_RESULT = "dqes-query-result";
 }
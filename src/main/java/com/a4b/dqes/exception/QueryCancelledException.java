@@ -0,0 +1,25 @@
+package com.a4b.dqes.exception;
+
+/**
+ * Query stopped on the database side: statement timeout or client disconnect
+ */
+public class QueryCancelledException extends DqesRuntimeException {
+
+	private static final long serialVersionUID = 4127703612365419530L;
+
+	public enum Reason {
+		TIMEOUT,
+		CLIENT_ABORT
+	}
+
+	private final Reason reason;
+
+	public QueryCancelledException(Reason reason, String msg, Throwable ex) {
+		super(msg, ex);
+		this.reason = reason;
+	}
+
+	public Reason getReason() {
+		return reason;
+	}
+}
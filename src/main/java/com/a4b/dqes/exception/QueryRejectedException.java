@@ -0,0 +1,26 @@
+package com.a4b.dqes.exception;
+
+/**
+ * Query refused by a configured limit: planner cost or row estimate over the cost guard
+ * limits (before it reached the database), or a result too large to spill to disk
+ */
+public class QueryRejectedException extends DqesRuntimeException {
+
+	private static final long serialVersionUID = 6208394713526904817L;
+
+	public enum Reason {
+		COST,
+		RESULT_SIZE
+	}
+
+	private final Reason reason;
+
+	public QueryRejectedException(Reason reason, String msg) {
+		super(msg);
+		this.reason = reason;
+	}
+
+	public Reason getReason() {
+		return reason;
+	}
+}
@@ -0,0 +1,20 @@
+package com.a4b.dqes.exception;
+
+/**
+ * Target database bulkhead full: too many queries already running or waiting on the dbconn
+ */
+public class QueryThrottledException extends DqesRuntimeException {
+
+	private static final long serialVersionUID = 2871405638290147313L;
+
+	private final int retryAfterSec;
+
+	public QueryThrottledException(String msg, int retryAfterSec) {
+		super(msg);
+		this.retryAfterSec = retryAfterSec;
+	}
+
+	public int getRetryAfterSec() {
+		return retryAfterSec;
+	}
+}
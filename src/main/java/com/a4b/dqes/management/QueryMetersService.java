@@ -0,0 +1,134 @@
+package com.a4b.dqes.management;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Service;
+
+@Service
+public class QueryMetersService {
+
+    public static final String CANCELLED_QUERIES_METER_NAME = "dqes.query.cancelled";
+    public static final String CANCELLED_QUERIES_METER_DESCRIPTION =
+        "Indicates count of dynamic queries cancelled on the database by statement timeout or client disconnect.";
+    public static final String CANCELLED_QUERIES_METER_BASE_UNIT = "queries";
+    public static final String CANCELLED_QUERIES_METER_CAUSE_DIMENSION = "cause";
+
+    public static final String COST_GUARDED_QUERIES_METER_NAME = "dqes.query.cost-guarded";
+    public static final String COST_GUARDED_QUERIES_METER_DESCRIPTION =
+        "Indicates count of dynamic queries over the EXPLAIN cost guard limits, rejected or run with a forced LIMIT.";
+    public static final String COST_GUARDED_QUERIES_METER_ACTION_DIMENSION = "action";
+
+    public static final String COALESCED_QUERIES_METER_NAME = "dqes.query.coalesced";
+    public static final String COALESCED_QUERIES_METER_DESCRIPTION =
+        "Indicates count of dynamic query executions served by joining an identical in-flight query.";
+
+    public static final String BULKHEAD_QUEUED_METER_NAME = "dqes.query.bulkhead.queued";
+    public static final String BULKHEAD_AVAILABLE_METER_NAME = "dqes.query.bulkhead.available";
+    public static final String BULKHEAD_WAIT_METER_NAME = "dqes.query.bulkhead.wait";
+    public static final String BULKHEAD_REJECTED_METER_NAME = "dqes.query.bulkhead.rejected";
+    public static final String BULKHEAD_DBCONN_DIMENSION = "dbconn";
+
+    private final MeterRegistry registry;
+
+    private final Counter timeoutCounter;
+    private final Counter clientAbortCounter;
+    private final Counter costRejectedCounter;
+    private final Counter costLimitedCounter;
+    private final Counter coalescedCounter;
+
+    public QueryMetersService(MeterRegistry registry) {
+        this.registry = registry;
+        this.timeoutCounter = cancelledQueriesCounterForCauseBuilder("timeout").register(registry);
+        this.clientAbortCounter = cancelledQueriesCounterForCauseBuilder("client-abort").register(registry);
+        this.costRejectedCounter = costGuardedQueriesCounterForActionBuilder("rejected").register(registry);
+        this.costLimitedCounter = costGuardedQueriesCounterForActionBuilder("limited").register(registry);
+        this.coalescedCounter = Counter
+            .builder(COALESCED_QUERIES_METER_NAME)
+            .baseUnit(CANCELLED_QUERIES_METER_BASE_UNIT)
+            .description(COALESCED_QUERIES_METER_DESCRIPTION)
+            .register(registry);
+    }
+
+    private Counter.Builder cancelledQueriesCounterForCauseBuilder(String cause) {
+        return Counter
+            .builder(CANCELLED_QUERIES_METER_NAME)
+            .baseUnit(CANCELLED_QUERIES_METER_BASE_UNIT)
+            .description(CANCELLED_QUERIES_METER_DESCRIPTION)
+            .tag(CANCELLED_QUERIES_METER_CAUSE_DIMENSION, cause);
+    }
+
+    private Counter.Builder costGuardedQueriesCounterForActionBuilder(String action) {
+        return Counter
+            .builder(COST_GUARDED_QUERIES_METER_NAME)
+            .baseUnit(CANCELLED_QUERIES_METER_BASE_UNIT)
+            .description(COST_GUARDED_QUERIES_METER_DESCRIPTION)
+            .tag(COST_GUARDED_QUERIES_METER_ACTION_DIMENSION, action);
+    }
+
+    public void trackTimeout() {
+        this.timeoutCounter.increment();
+    }
+
+    public void trackClientAbort() {
+        this.clientAbortCounter.increment();
+    }
+
+    public void trackCostRejected() {
+        this.costRejectedCounter.increment();
+    }
+
+    public void trackCostLimited() {
+        this.costLimitedCounter.increment();
+    }
+
+    public void trackCoalesced() {
+        this.coalescedCounter.increment();
+    }
+
+    /**
+     * Gauges of one dbconn bulkhead: callers waiting for a connection, permits free
+     */
+    public void registerBulkhead(Integer dbconnId, Supplier<Number> queued, Supplier<Number> available) {
+        Gauge.builder(BULKHEAD_QUEUED_METER_NAME, queued)
+            .description("Queries waiting for a connection to the target database.")
+            .tag(BULKHEAD_DBCONN_DIMENSION, String.valueOf(dbconnId))
+            .register(registry);
+        Gauge.builder(BULKHEAD_AVAILABLE_METER_NAME, available)
+            .description("Connections the target database bulkhead can still hand out without waiting.")
+            .tag(BULKHEAD_DBCONN_DIMENSION, String.valueOf(dbconnId))
+            .register(registry);
+    }
+
+    /**
+     * Drop the meters of a bulkhead whose data source was evicted
+     */
+    public void removeBulkhead(Integer dbconnId) {
+        String tag = String.valueOf(dbconnId);
+        for (String name : List.of(BULKHEAD_QUEUED_METER_NAME, BULKHEAD_AVAILABLE_METER_NAME, 
+                BULKHEAD_WAIT_METER_NAME, BULKHEAD_REJECTED_METER_NAME)) {
+            registry.find(name).tag(BULKHEAD_DBCONN_DIMENSION, tag).meters().forEach(registry::remove);
+        }
+    }
+
+    public void trackBulkheadWait(Integer dbconnId, long nanos) {
+        Timer.builder(BULKHEAD_WAIT_METER_NAME)
+            .description("Time queries waited in the target database bulkhead queue.")
+            .tag(BULKHEAD_DBCONN_DIMENSION, String.valueOf(dbconnId))
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void trackBulkheadRejected(Integer dbconnId) {
+        Counter.builder(BULKHEAD_REJECTED_METER_NAME)
+            .baseUnit(CANCELLED_QUERIES_METER_BASE_UNIT)
+            .description("Queries refused because the target database bulkhead queue was full or the wait expired.")
+            .tag(BULKHEAD_DBCONN_DIMENSION, String.valueOf(dbconnId))
+            .register(registry)
+            .increment();
+    }
+}
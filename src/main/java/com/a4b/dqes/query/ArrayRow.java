@@ -0,0 +1,83 @@
+package com.a4b.dqes.query;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only result row backed by a value array; the column label array is shared
+ * by all rows of a result. Lookups scan the labels, which is cheaper than hashing
+ * for the column counts queries return.
+ */
+public final class ArrayRow extends AbstractMap<String, Object> {
+
+    private final String[] columns;
+    private final Object[] values;
+
+    ArrayRow(String[] columns, Object[] values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    Object[] rowValues() {
+        return values;
+    }
+
+    @Override
+    public int size() {
+        return columns.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return columns.length;
+            }
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < columns.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (next >= columns.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return new SimpleImmutableEntry<>(columns[i], values[i]);
+                    }
+                };
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,284 @@
+package com.a4b.dqes.query;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.Decimal256Vector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+/**
+ * Writes a result set as an Arrow IPC stream
+ *
+ * Values are copied straight from the {@link ResultSet} into column vectors (no row
+ * maps); a record batch is written every {@code batchSize} rows. Arrow types come from
+ * {@code FieldMeta.dataType} of the selected field, falling back to the JDBC column type
+ * for columns without metadata. NUMBER / NUMERIC / DECIMAL columns with a declared
+ * precision are sent as Arrow decimals of that precision and scale (128-bit up to
+ * precision 38, 256-bit up to 76), unconstrained numeric as its exact text and
+ * floating-point columns as float64. JSON is sent as its text.
+ * timestamptz columns are sent as UTC instants, plain timestamp columns as zone-less
+ * (wall-clock) timestamps; the database column type decides between the two.
+ */
+final class ArrowResultWriter {
+
+    private static final BufferAllocator ROOT_ALLOCATOR = new RootAllocator();
+
+    private enum Kind {
+        UTF8(ArrowType.Utf8.INSTANCE),
+        BIGINT(new ArrowType.Int(64, true)),
+        FLOAT8(new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)),
+        DECIMAL(null),          // Precision / scale per column
+        DECIMAL256(null),
+        BIT(ArrowType.Bool.INSTANCE),
+        DATE(new ArrowType.Date(DateUnit.DAY)),
+        TIMESTAMP(new ArrowType.Timestamp(TimeUnit.MICROSECOND, null)),
+        TIMESTAMP_TZ(new ArrowType.Timestamp(TimeUnit.MICROSECOND, "UTC"));
+
+        private final ArrowType type;
+
+        Kind(ArrowType type) {
+            this.type = type;
+        }
+    }
+
+    private ArrowResultWriter() {
+    }
+
+    /**
+     * Write all remaining rows of the result set
+     * @return number of rows written
+     */
+    static long write(ResultSet rs, RowLayout layout, Map<String, String> columnTypes, OutputStream out,
+                      int batchSize) throws SQLException, IOException {
+        ResultSetMetaData rsmd = rs.getMetaData();
+        String[] columns = layout.getColumns();
+        int[] sourceColumns = layout.getSourceColumns();
+        Kind[] kinds = new Kind[columns.length];
+        List<Field> fields = new ArrayList<>(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            String dataType = columnTypes != null ? columnTypes.get(columns[i]) : null;
+            kinds[i] = dataType != null ? kindOf(dataType) : kindOf(rsmd.getColumnType(sourceColumns[i]));
+            if (kinds[i] == Kind.TIMESTAMP || kinds[i] == Kind.TIMESTAMP_TZ) {
+                kinds[i] = timestampKind(rsmd, sourceColumns[i]);
+            } else if (kinds[i] == Kind.DECIMAL) {
+                kinds[i] = numericKind(rsmd, sourceColumns[i]);
+            }
+            ArrowType type = kinds[i].type;
+            if (type == null) {
+                int bitWidth = kinds[i] == Kind.DECIMAL ? 128 : 256;
+                type = new ArrowType.Decimal(
+                    rsmd.getPrecision(sourceColumns[i]), rsmd.getScale(sourceColumns[i]), bitWidth);
+            }
+            fields.add(new Field(columns[i], FieldType.nullable(type), null));
+        }
+
+        try (BufferAllocator allocator = ROOT_ALLOCATOR.newChildAllocator("dqes-arrow", 0, Long.MAX_VALUE);
+             VectorSchemaRoot root = VectorSchemaRoot.create(new Schema(fields), allocator)) {
+            // Not closed: closing the writer would close the caller's stream
+            ArrowStreamWriter writer = new ArrowStreamWriter(root, null, Channels.newChannel(out));
+            writer.start();
+            root.allocateNew();
+            long total = 0;
+            int count = 0;
+            while (rs.next()) {
+                for (int i = 0; i < kinds.length; i++) {
+                    setValue(root, i, kinds[i], count, rs, sourceColumns[i]);
+                }
+                total++;
+                if (++count == batchSize) {
+                    root.setRowCount(count);
+                    writer.writeBatch();
+                    root.allocateNew();
+                    count = 0;
+                }
+            }
+            if (count > 0 || total == 0) {
+                root.setRowCount(count);
+                writer.writeBatch();
+            }
+            writer.end();
+            out.flush();
+            return total;
+        }
+    }
+
+    private static void setValue(VectorSchemaRoot root, int vector, Kind kind, int row, ResultSet rs, int column)
+        throws SQLException {
+        switch (kind) {
+            case UTF8 -> {
+                VarCharVector v = (VarCharVector) root.getVector(vector);
+                String value = rs.getString(column);
+                if (value == null) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            case BIGINT -> {
+                BigIntVector v = (BigIntVector) root.getVector(vector);
+                long value = rs.getLong(column);
+                if (rs.wasNull()) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value);
+                }
+            }
+            case FLOAT8 -> {
+                Float8Vector v = (Float8Vector) root.getVector(vector);
+                double value = rs.getDouble(column);
+                if (rs.wasNull()) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value);
+                }
+            }
+            case DECIMAL -> {
+                DecimalVector v = (DecimalVector) root.getVector(vector);
+                BigDecimal value = rs.getBigDecimal(column);
+                if (value == null) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value.setScale(v.getScale(), RoundingMode.UNNECESSARY));
+                }
+            }
+            case DECIMAL256 -> {
+                Decimal256Vector v = (Decimal256Vector) root.getVector(vector);
+                BigDecimal value = rs.getBigDecimal(column);
+                if (value == null) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value.setScale(v.getScale(), RoundingMode.UNNECESSARY));
+                }
+            }
+            case BIT -> {
+                BitVector v = (BitVector) root.getVector(vector);
+                boolean value = rs.getBoolean(column);
+                if (rs.wasNull()) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value ? 1 : 0);
+                }
+            }
+            case DATE -> {
+                DateDayVector v = (DateDayVector) root.getVector(vector);
+                Date value = rs.getDate(column);
+                if (value == null) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, (int) value.toLocalDate().toEpochDay());
+                }
+            }
+            case TIMESTAMP -> {
+                TimeStampMicroVector v = (TimeStampMicroVector) root.getVector(vector);
+                LocalDateTime value = rs.getObject(column, LocalDateTime.class);
+                if (value == null) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000);
+                }
+            }
+            case TIMESTAMP_TZ -> {
+                TimeStampMicroTZVector v = (TimeStampMicroTZVector) root.getVector(vector);
+                Timestamp value = rs.getTimestamp(column);
+                if (value == null) {
+                    v.setNull(row);
+                } else {
+                    Instant instant = value.toInstant();
+                    v.setSafe(row, instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000);
+                }
+            }
+        }
+    }
+
+    /**
+     * Arrow type for a qrytb_data_type code
+     */
+    private static Kind kindOf(String dataType) {
+        return switch (dataType.toUpperCase()) {
+            case "INT" -> Kind.BIGINT;
+            case "NUMBER" -> Kind.DECIMAL;      // Resolved per column type (numericKind)
+            case "BOOLEAN" -> Kind.BIT;
+            case "DATE" -> Kind.DATE;
+            case "TIMESTAMP" -> Kind.TIMESTAMP;
+            default -> Kind.UTF8;       // STRING, UUID, JSON, TSVECTOR, ...
+        };
+    }
+
+    /**
+     * Arrow type for a JDBC column type (columns without field metadata)
+     */
+    private static Kind kindOf(int sqlType) {
+        return switch (sqlType) {
+            case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT -> Kind.BIGINT;
+            case Types.NUMERIC, Types.DECIMAL -> Kind.DECIMAL;
+            case Types.DOUBLE, Types.FLOAT, Types.REAL -> Kind.FLOAT8;
+            case Types.BOOLEAN, Types.BIT -> Kind.BIT;
+            case Types.DATE -> Kind.DATE;
+            case Types.TIMESTAMP -> Kind.TIMESTAMP;
+            case Types.TIMESTAMP_WITH_TIMEZONE -> Kind.TIMESTAMP_TZ;
+            default -> Kind.UTF8;
+        };
+    }
+
+    /**
+     * Decimal of the column's declared precision, exact text for unconstrained numeric
+     * (no precision to size a decimal with), float64 for floating-point columns
+     */
+    private static Kind numericKind(ResultSetMetaData rsmd, int column) throws SQLException {
+        int sqlType = rsmd.getColumnType(column);
+        if (sqlType != Types.NUMERIC && sqlType != Types.DECIMAL) {
+            return Kind.FLOAT8;
+        }
+        int precision = rsmd.getPrecision(column);
+        int scale = rsmd.getScale(column);
+        if (precision <= 0 || precision > 76 || scale < 0 || scale > precision) {
+            return Kind.UTF8;
+        }
+        return precision <= 38 ? Kind.DECIMAL : Kind.DECIMAL256;
+    }
+
+    /**
+     * Zone-less or UTC timestamp per the database column type (PostgreSQL reports
+     * both timestamp and timestamptz as Types.TIMESTAMP; the type name tells them apart)
+     */
+    private static Kind timestampKind(ResultSetMetaData rsmd, int column) throws SQLException {
+        return rsmd.getColumnType(column) == Types.TIMESTAMP_WITH_TIMEZONE
+            || "timestamptz".equals(rsmd.getColumnTypeName(column))
+            ? Kind.TIMESTAMP_TZ
+            : Kind.TIMESTAMP;
+    }
+}
@@ -0,0 +1,149 @@
+package com.a4b.dqes.query;
+
+import com.a4b.dqes.config.AsyncConfiguration;
+import com.a4b.dqes.config.QueryEngineProperties;
+import com.a4b.dqes.exception.DqesRuntimeException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+/**
+ * Batch Query Executor
+ *
+ * Runs the named queries of a batch concurrently on virtual threads, so the
+ * batch takes as long as its slowest query. Concurrent connections per dbconnId
+ * are limited per batch to leave room in the target pool for other requests.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchQueryExecutor {
+
+    private final DynamicQueryExecutor queryExecutor;
+    private final QueryEngineProperties properties;
+    @Qualifier(AsyncConfiguration.WORKER_EXECUTOR_BEAN_NAME)
+    private final ExecutorService workerExecutor;
+
+    /**
+     * Execute all queries of the batch; per-query failures are reported in the result
+     */
+    public BatchQueryResult execute(BatchQueryRequest batch) {
+        return execute(batch, new QueryCancellation());
+    }
+
+    /**
+     * Execute all queries of the batch; cancelling the handle cancels every running query
+     */
+    public BatchQueryResult execute(BatchQueryRequest batch, QueryCancellation cancellation) {
+        Map<String, QueryRequest> queries = batch.getQueries();
+        if (queries == null || queries.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one query");
+        }
+        int maxItems = properties.getBatch().getMaxItems();
+        if (queries.size() > maxItems) {
+            throw new IllegalArgumentException("Batch exceeds " + maxItems + " queries: " + queries.size());
+        }
+        queries.forEach((name, request) -> {
+            if (request == null) {
+                throw new IllegalArgumentException("Batch query is empty: " + name);
+            }
+        });
+
+        int permits = resolveConcurrency(batch);
+        log.info("Executing batch: {} queries, max {} concurrent per connection", queries.size(), permits);
+
+        long start = System.nanoTime();
+        Map<String, Semaphore> connLimits = new ConcurrentHashMap<>();
+        Map<String, Future<BatchQueryResult.Item>> futures = new LinkedHashMap<>();
+
+        for (Map.Entry<String, QueryRequest> entry : queries.entrySet()) {
+            QueryRequest request = entry.getValue();
+            applyDefaults(batch, request);
+            Semaphore limit = connLimits.computeIfAbsent(String.valueOf(request.getDbconnId()),
+                k -> new Semaphore(permits));
+            futures.put(entry.getKey(), workerExecutor.submit(() ->
+                executeItem(entry.getKey(), request, limit, cancellation.newChild())));
+        }
+
+        BatchQueryResult result = new BatchQueryResult();
+        try {
+            for (Map.Entry<String, Future<BatchQueryResult.Item>> entry : futures.entrySet()) {
+                BatchQueryResult.Item item = entry.getValue().get();
+                if (item.getError() != null) {
+                    result.setFailedCount(result.getFailedCount() + 1);
+                }
+                result.getResults().put(entry.getKey(), item);
+            }
+        } catch (InterruptedException e) {
+            futures.values().forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new DqesRuntimeException("Interrupted while executing batch", e);
+        } catch (ExecutionException e) {
+            // executeItem never throws; only reachable on an unexpected executor failure
+            futures.values().forEach(f -> f.cancel(true));
+            throw new DqesRuntimeException("Batch execution failed", e.getCause());
+        }
+        result.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+
+        log.info("Batch executed: {} queries, {} failed, {} ms",
+            queries.size(), result.getFailedCount(), result.getElapsedMs());
+
+        return result;
+    }
+
+    private BatchQueryResult.Item executeItem(String name, QueryRequest request, Semaphore limit,
+                                              QueryCancellation cancellation) {
+        BatchQueryResult.Item item = new BatchQueryResult.Item();
+        long start = System.nanoTime();
+        try {
+            limit.acquire();
+            try {
+                item.setResult(queryExecutor.execute(request, cancellation));
+            } finally {
+                limit.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            item.setError("Interrupted");
+            item.setErrorType(e.getClass().getSimpleName());
+        } catch (Exception e) {
+            log.warn("Batch query '{}' failed: {}", name, e.getMessage());
+            item.setError(e.getMessage());
+            item.setErrorType(e.getClass().getSimpleName());
+        }
+        item.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+        return item;
+    }
+
+    /**
+     * Batch-level tenant/app/connection apply to queries that do not set their own
+     */
+    private void applyDefaults(BatchQueryRequest batch, QueryRequest request) {
+        if (request.getTenantCode() == null) {
+            request.setTenantCode(batch.getTenantCode());
+        }
+        if (request.getAppCode() == null) {
+            request.setAppCode(batch.getAppCode());
+        }
+        if (request.getDbconnId() == null) {
+            request.setDbconnId(batch.getDbconnId());
+        }
+    }
+
+    private int resolveConcurrency(BatchQueryRequest batch) {
+        int max = Math.max(1, properties.getBatch().getMaxConcurrencyPerConn());
+        Integer requested = batch.getMaxConcurrencyPerConn();
+        return requested != null && requested > 0 ? Math.min(requested, max) : max;
+    }
+}
@@ -0,0 +1,26 @@
+package com.a4b.dqes.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request DTO for batch query execution
+ * 
+ * Named queries run concurrently; tenantCode/appCode/dbconnId set at batch level
+ * apply to every query that does not set its own.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchQueryRequest {
+    private String tenantCode;
+    private String appCode;
+    private Integer dbconnId;
+    
+    private Map<String, QueryRequest> queries = new LinkedHashMap<>();  // Name -> query (e.g., "headcount", "byDept")
+    
+    private Integer maxConcurrencyPerConn;  // Optional, capped by dqes.query.batch.max-concurrency-per-conn
+}
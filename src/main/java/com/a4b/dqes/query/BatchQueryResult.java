@@ -0,0 +1,26 @@
+package com.a4b.dqes.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Data;
+
+/**
+ * Result DTO for batch query execution
+ * 
+ * One item per named query, in request order. A failed query carries its
+ * error instead of a result and does not fail the rest of the batch.
+ */
+@Data
+public class BatchQueryResult {
+    private Map<String, Item> results = new LinkedHashMap<>();
+    private int failedCount;
+    private long elapsedMs;             // Wall time of the whole batch (≈ slowest query)
+    
+    @Data
+    public static class Item {
+        private QueryResult result;
+        private String error;           // Error message (null on success)
+        private String errorType;       // Exception simple name (null on success)
+        private long elapsedMs;
+    }
+}
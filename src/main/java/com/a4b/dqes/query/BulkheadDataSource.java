@@ -0,0 +1,126 @@
+package com.a4b.dqes.query;
+
+import com.a4b.dqes.config.QueryEngineProperties;
+import com.a4b.dqes.exception.QueryThrottledException;
+import com.a4b.dqes.management.QueryMetersService;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Concurrency bulkhead in front of one target pool (per dbconnId)
+ *
+ * At most {@code maxConcurrent} connections are checked out at a time. Up to
+ * {@code maxQueued} callers wait (for at most {@code maxWaitMs}) for one to be
+ * returned; callers beyond that, or whose wait expires, fail fast with
+ * {@link QueryThrottledException} instead of blocking on the pool's connection timeout.
+ * The permit goes back when the connection is closed.
+ */
+final class BulkheadDataSource extends DelegatingDataSource {
+
+    private final Integer dbconnId;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxQueued;
+    private final long maxWaitMs;
+    private final int retryAfterSec;
+    private final QueryMetersService queryMeters;
+
+    BulkheadDataSource(DataSource target, Integer dbconnId, QueryEngineProperties.Bulkhead config,
+                       QueryMetersService queryMeters) {
+        super(target);
+        this.dbconnId = dbconnId;
+        this.permits = new Semaphore(config.getMaxConcurrent(), true);
+        this.maxQueued = config.getMaxQueued();
+        this.maxWaitMs = config.getMaxWaitMs();
+        this.retryAfterSec = config.getRetryAfterSec();
+        this.queryMeters = queryMeters;
+        queryMeters.registerBulkhead(dbconnId, queued::get, permits::availablePermits);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            throw reject("wait queue full");
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryThrottledException("Interrupted waiting for a connection to dbconnId=" + dbconnId, 
+                retryAfterSec);
+        } finally {
+            queued.decrementAndGet();
+            queryMeters.trackBulkheadWait(dbconnId, System.nanoTime() - start);
+        }
+        if (!acquired) {
+            throw reject("no connection within " + maxWaitMs + "ms");
+        }
+    }
+
+    private QueryThrottledException reject(String reason) {
+        queryMeters.trackBulkheadRejected(dbconnId);
+        return new QueryThrottledException("Too many concurrent queries on dbconnId=" + dbconnId + ": " + reason,
+            retryAfterSec);
+    }
+
+    /**
+     * Connection proxy returning the permit on the first close()
+     */
+    private Connection releasingOnClose(Connection target) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), 
+            new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                    try {
+                        target.close();
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                }
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+            });
+    }
+}
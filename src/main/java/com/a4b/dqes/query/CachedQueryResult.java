@@ -0,0 +1,25 @@
+package com.a4b.dqes.query;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result cache entry stored in Hazelcast
+ * 
+ * The result is kept as its JSON form (what REST clients receive). Tenant, app and
+ * object codes are stored alongside so entries can be evicted by predicate.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedQueryResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String tenantCode;
+    private String appCode;
+    private String[] objectCodes;   // Objects the query reads (queried with objectCodes[any])
+    private byte[] payload;         // QueryResult as JSON
+}
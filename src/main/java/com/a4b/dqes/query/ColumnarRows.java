@@ -0,0 +1,101 @@
+package com.a4b.dqes.query;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Column-oriented form of a result page ({@code format = COLUMNAR})
+ *
+ * Column names are sent once and values as one array per column. String columns
+ * with at most {@code dqes.query.columnar.dictionary-max-cardinality} distinct values
+ * are dictionary-encoded: {@code dictionary} holds the distinct strings and
+ * {@code codes} the per-row index into it (-1 = null).
+ */
+@Data
+public class ColumnarRows {
+
+    private List<Column> columns = new ArrayList<>();
+
+    @Data
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Column {
+        private String name;
+        private List<Object> values;         // Plain column
+        private List<String> dictionary;     // Dictionary-encoded column
+        private int[] codes;
+    }
+
+    /**
+     * Pivot rows into columns; the rows are read once
+     */
+    public static ColumnarRows of(List<String> columnNames, List<Map<String, Object>> rows, int maxDictionarySize) {
+        int columnCount = columnNames.size();
+        List<List<Object>> values = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            values.add(new ArrayList<>(rows.size()));
+        }
+        for (Map<String, Object> row : rows) {
+            for (int i = 0; i < columnCount; i++) {
+                values.get(i).add(row.get(columnNames.get(i)));
+            }
+        }
+
+        ColumnarRows columnar = new ColumnarRows();
+        for (int i = 0; i < columnCount; i++) {
+            Column column = new Column();
+            column.setName(columnNames.get(i));
+            if (!encodeDictionary(column, values.get(i), maxDictionarySize)) {
+                column.setValues(values.get(i));
+            }
+            columnar.getColumns().add(column);
+        }
+        return columnar;
+    }
+
+    /**
+     * Dictionary-encode an all-string column; false when it has other values
+     * or too many distinct strings (or too few rows to benefit)
+     */
+    private static boolean encodeDictionary(Column column, List<Object> values, int maxDictionarySize) {
+        if (values.size() < 2 || maxDictionarySize <= 0) {
+            return false;
+        }
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int[] codes = new int[values.size()];
+
+        for (int r = 0; r < codes.length; r++) {
+            Object value = values.get(r);
+            if (value == null) {
+                codes[r] = -1;
+                continue;
+            }
+            if (!(value instanceof String s)) {
+                return false;
+            }
+            Integer code = indexes.get(s);
+            if (code == null) {
+                if (dictionary.size() == maxDictionarySize) {
+                    return false;
+                }
+                code = dictionary.size();
+                indexes.put(s, code);
+                dictionary.add(s);
+            }
+            codes[r] = code;
+        }
+
+        if (dictionary.size() * 2 > codes.length) {
+            return false;   // Mostly unique values: plain strings are smaller
+        }
+        column.setDictionary(dictionary);
+        column.setCodes(codes);
+        return true;
+    }
+}
@@ -0,0 +1,160 @@
+package com.a4b.dqes.query;
+
+import com.a4b.dqes.query.generator.ParamBinding;
+import com.a4b.dqes.query.generator.SqlGenerator.GeneratedSql;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+/**
+ * Compiled query plan: generated SQL text plus the parameter bindings needed
+ * to bind a new request of the same shape without re-planning.
+ *
+ * Instances are shared through {@link QueryPlanCache} and must stay immutable
+ * (the result row layout and the cost guard's plan estimates per limit bucket are derived
+ * from the first execution and then reused).
+ */
+@Getter
+@AllArgsConstructor
+public class CompiledQuery {
+
+    private final GeneratedSql dataSql;
+    private final GeneratedSql countSql;        // Null unless a total / count is requested
+    private final boolean windowCount;          // Data SQL carries COUNT(*) OVER()
+    private final boolean keysetPagination;
+    private final int keysetKeyCount;           // Number of hidden keyset sort-key columns
+    private final List<String> objectCodes;     // Root + joined/EXISTS objects the query reads
+    private final Integer resultCacheTtlSec;    // Min TTL of those objects; null = not cacheable
+    private final String statsTable;            // Root table when the count is its row count (reltuples estimate)
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<RowLayout> rowLayout = new AtomicReference<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<Integer, PlanEstimate> planEstimates = new ConcurrentHashMap<>();
+
+    /**
+     * Top plan node estimates of the data statement (EXPLAIN)
+     */
+    record PlanEstimate(double totalCost, double rows) {}
+
+    /**
+     * Plan estimate of the data statement for a limit (null = none), explained on first use.
+     * LIMIT is bound, not rendered, so one plan serves every limit: limits are bucketed to the
+     * next power of two and each bucket is explained once with its upper bound, which keeps the
+     * map small (at most 33 entries) and the estimate an upper bound for every limit in it.
+     */
+    PlanEstimate planEstimate(Integer limit, Function<Integer, PlanEstimate> explain) {
+        Integer bucket = limit != null ? limitBucket(limit) : null;
+        int key = bucket != null ? bucket : -1;
+        PlanEstimate estimate = planEstimates.get(key);
+        if (estimate == null) {
+            estimate = explain.apply(bucket);
+            planEstimates.put(key, estimate);
+        }
+        return estimate;
+    }
+
+    /**
+     * Smallest power of two not below the limit (capped at Integer.MAX_VALUE)
+     */
+    static int limitBucket(int limit) {
+        if (limit <= 1) {
+            return 1;
+        }
+        return limit > 1 << 30 ? Integer.MAX_VALUE : Integer.highestOneBit(limit - 1) << 1;
+    }
+
+    /**
+     * Result row layout of the data statement, resolved on first use
+     */
+    RowLayout rowLayout(ResultSetMetaData rsmd) throws SQLException {
+        RowLayout layout = rowLayout.get();
+        if (layout == null || !layout.matches(rsmd)) {
+            layout = RowLayout.of(rsmd, keysetKeyCount);
+            rowLayout.set(layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Bind request values to the data statement
+     */
+    public MapSqlParameterSource bind(QueryRequest request) {
+        return bind(dataSql, request);
+    }
+
+    /**
+     * Bind request values to the count statement
+     */
+    public MapSqlParameterSource bindCount(QueryRequest request) {
+        return bind(countSql, request);
+    }
+
+    /**
+     * Request values of the data statement by parameter name, before SQL type conversion
+     * (IN lists stay lists), e.g. for hashing a result cache key
+     */
+    public Map<String, Object> boundValues(QueryRequest request) {
+        return values(dataSql, request);
+    }
+
+    private MapSqlParameterSource bind(GeneratedSql sql, QueryRequest request) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        Map<String, Object> values = values(sql, request);
+
+        for (ParamBinding binding : sql.getBindings()) {
+            Object value = values.get(binding.getName());
+            if (binding.getSqlType() != null) {
+                params.addValue(binding.getName(), value, binding.getSqlType());
+            } else {
+                params.addValue(binding.getName(), binding.parameterValue(value));
+            }
+        }
+
+        return params;
+    }
+
+    private Map<String, Object> values(GeneratedSql sql, QueryRequest request) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        List<String> keysetValues = null;
+
+        for (ParamBinding binding : sql.getBindings()) {
+            Object value = switch (binding.getSource()) {
+                case FILTER -> listElement(request.getFilters().get(binding.getIndex()).getValue(), binding);
+                case HAVING -> listElement(request.getHaving().get(binding.getIndex()).getValue(), binding);
+                case KEYSET -> {
+                    if (keysetValues == null) {
+                        keysetValues = KeysetCursor.decode(request.getCursor());
+                        if (keysetValues.size() != keysetKeyCount) {
+                            throw new IllegalArgumentException("Pagination cursor does not match the query sort keys");
+                        }
+                    }
+                    yield keysetValues.get(binding.getIndex());
+                }
+                case LIMIT -> request.getLimit();
+                case OFFSET -> request.getOffset();
+            };
+            values.put(binding.getName(), value);
+        }
+
+        return values;
+    }
+
+    private Object listElement(Object value, ParamBinding binding) {
+        if (binding.getElement() < 0) {
+            return value;
+        }
+        if (value instanceof List<?> list && list.size() == 2) {
+            return list.get(binding.getElement());
+        }
+        throw new IllegalArgumentException("BETWEEN requires array of 2 values");
+    }
+}
@@ -7,8 +7,10 @@ import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import com.a4b.dqes.config.QueryEngineProperties;
 import com.a4b.dqes.crypto.CryptoService;
 import com.a4b.dqes.dto.record.DbConnInfo;
+import com.a4b.dqes.management.QueryMetersService;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
@@ -19,7 +21,9 @@ import lombok.extern.slf4j.Slf4j;
  * Dynamic DataSource Service
  * 
  * Manages target DataSources and NamedParameterJdbcTemplates based on dbconn_id.
- * Each connection is cached and reused for efficiency.
+ * Each connection is cached and reused for efficiency. Templates reach the pool
+ * through a per-dbconn {@link BulkheadDataSource}, so a burst against one target
+ * database fails fast (429) instead of tying up request threads on pool waits.
  */
 @Slf4j
 @Service
@@ -28,6 +32,8 @@ public class DynamicDataSourceService {
     
     private final NamedParameterJdbcTemplate dqesJdbc;  // For metadata queries
     private final CryptoService cryptoService;
+    private final QueryEngineProperties properties;
+    private final QueryMetersService queryMeters;
     
     // Cache: dbconnId -> NamedParameterJdbcTemplate
     private final Map<Integer, NamedParameterJdbcTemplate> templateCache = new ConcurrentHashMap<>();
@@ -62,8 +68,11 @@ public class DynamicDataSourceService {
                 HikariDataSource dataSource = buildDataSource(connInfo, passwordPlain);
                 dataSourceCache.put(id, dataSource);
                 
-                // Create NamedParameterJdbcTemplate
-                return new NamedParameterJdbcTemplate(dataSource);
+                // Create NamedParameterJdbcTemplate (behind the bulkhead)
+                QueryEngineProperties.Bulkhead bulkhead = properties.getBulkhead();
+                return new NamedParameterJdbcTemplate(bulkhead.isEnabled() 
+                    ? new BulkheadDataSource(dataSource, id, bulkhead, queryMeters) 
+                    : dataSource);
                 
             } catch (Exception e) {
                 log.error("Failed to create JDBC template for dbconnId={}", id, e);
@@ -259,6 +268,7 @@ public class DynamicDataSourceService {
             }
         });
         
+        dataSourceCache.keySet().forEach(queryMeters::removeBulkhead);
         dataSourceCache.clear();
         templateCache.clear();
     }
@@ -275,5 +285,6 @@ public class DynamicDataSourceService {
         }
         
         templateCache.remove(dbconnId);
+        queryMeters.removeBulkhead(dbconnId);
     }
 }
@@ -1,26 +1,67 @@
 package com.a4b.dqes.query;
 
 import com.a4b.core.server.json.JSON;
+import com.a4b.dqes.config.AsyncConfiguration;
+import com.a4b.dqes.config.QueryEngineProperties;
 import com.a4b.dqes.exception.DqesRuntimeException;
+import com.a4b.dqes.exception.QueryCancelledException;
+import com.a4b.dqes.exception.QueryRejectedException;
+import com.a4b.dqes.management.QueryMetersService;
 import com.a4b.dqes.query.ast.*;
+import com.a4b.dqes.query.ast.SortNode.SortDirection;
 import com.a4b.dqes.query.generator.SqlGenerator;
 import com.a4b.dqes.query.generator.SqlGenerator.GeneratedSql;
 import com.a4b.dqes.query.metadata.DqesMetadataRepository;
 import com.a4b.dqes.query.metadata.FieldMeta;
 import com.a4b.dqes.query.metadata.ObjectMeta;
 import com.a4b.dqes.query.planner.JoinPathPlanner;
+import com.a4b.dqes.query.planner.LogicalPlan;
+import com.a4b.dqes.query.planner.LogicalPlanOptimizer;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.postgresql.util.PGobject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Service;
 
 /**
@@ -30,7 +71,9 @@ import org.springframework.stereotype.Service;
  * 1. Build QueryAST from request
  * 2. Plan multi-hop JOINs with BFS path planner
  * 3. Generate safe SQL with NamedParameterJdbcTemplate
- * 4. Execute and return results
+ * 4. Execute and return results (or stream them through a JDBC cursor)
+ * 
+ * Steps 1-3 are cached per request shape in {@link QueryPlanCache}
  * 
  * Uses dynamic DataSource based on dbconnId from request
  */
@@ -39,91 +82,957 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class DynamicQueryExecutor {
     
+    /** PostgreSQL SQLSTATE for a statement cancelled by timeout or cancel request */
+    private static final String QUERY_CANCELED_SQLSTATE = "57014";
+    
+    /** Planner statistics row count of a table (-1 when never analyzed) */
+    private static final String RELTUPLES_SQL = 
+        "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(:table)";
+    
     private final JoinPathPlanner joinPathPlanner;
+    private final LogicalPlanOptimizer planOptimizer;
     private final SqlGenerator sqlGenerator;
     private final DynamicDataSourceService dataSourceService;
     private final DqesMetadataRepository metadataRepo;
+    private final QueryEngineProperties properties;
+    private final QueryPlanCache planCache;
+    private final QueryResultCache resultCache;
+    private final QueryMetersService queryMeters;
+    @Qualifier(AsyncConfiguration.WORKER_EXECUTOR_BEAN_NAME)
+    private final ExecutorService workerExecutor;
+    
+    // In-flight executions by coalescing key (tenant:app:dbconnId:hash)
+    private final Map<String, CompletableFuture<QueryResult>> inFlight = new ConcurrentHashMap<>();
     
     /**
      * Execute dynamic query and return results as list of maps
      */
     public QueryResult execute(QueryRequest request) {
+        return execute(request, new QueryCancellation());
+    }
+    
+    /**
+     * Execute dynamic query; statements can be cancelled through the given handle
+     */
+    public QueryResult execute(QueryRequest submitted, QueryCancellation cancellation) {
+        if (Boolean.TRUE.equals(submitted.getRawJson())) {
+            return executeRaw(submitted, cancellation);
+        }
         log.info("Executing dynamic query: tenant={}, app={}, root={}, dbconnId={}", 
-            request.getTenantCode(), request.getAppCode(), request.getRootObjectCode(), 
-            request.getDbconnId());
-        
-        // 1. Build AST from request
-        QueryAST ast = buildAST(request);
+            submitted.getTenantCode(), submitted.getAppCode(), submitted.getRootObjectCode(), 
+            submitted.getDbconnId());
         
-        // 2. Plan JOIN graph
-        joinPathPlanner.planJoins(ast);
+        // 1. Compile (or reuse) the plan for this request shape
+        Integer requestedLimit = submitted.getLimit();
+        AdmittedQuery admitted = compileAdmitted(submitted, QueryPlanCache.Variant.EXECUTE, cancellation);
+        QueryRequest request = admitted.request();
+        CompiledQuery compiled = admitted.compiled();
+        MapSqlParameterSource params = compiled.bind(request);
         
-        // 3. Generate SQL
-        GeneratedSql generatedSql = sqlGenerator.generateSql(ast);
+        // Serve from the result cache when every object read has a TTL
+        String cacheKey = resultCache.isCacheable(compiled) ? resultCache.key(request, compiled) : null;
+        if (cacheKey != null) {
+            QueryResult cached = resultCache.get(cacheKey);
+            if (cached != null) {
+                log.info("Query served from result cache: {} rows", cached.getRowCount());
+                return applyFormat(request, cached);
+            }
+        }
         
-        // 4. Get JDBC template for target database
+        // Identical concurrent executions (same tenant, SQL and values) share one round trip
+        QueryResult result;
+        if (properties.getCoalesce().isEnabled()) {
+            String flightKey = cacheKey != null ? cacheKey : resultCache.key(request, compiled);
+            result = coalesce(flightKey, resolveTimeoutSec(request), cancellation, 
+                timeoutSec -> runQuery(request, compiled, params, cacheKey, requestedLimit, timeoutSec, cancellation));
+        } else {
+            result = runQuery(request, compiled, params, cacheKey, requestedLimit, resolveTimeoutSec(request),
+                cancellation);
+        }
+        return applyFormat(request, result);
+    }
+    
+    /**
+     * Run the compiled query on the target database and assemble (and cache) the result
+     */
+    private QueryResult runQuery(QueryRequest request, CompiledQuery compiled, MapSqlParameterSource params,
+                                 String cacheKey, Integer requestedLimit, int timeoutSec, 
+                                 QueryCancellation cancellation) {
+        // 2. Get JDBC template for target database
         NamedParameterJdbcTemplate targetJdbc = dataSourceService.getJdbcTemplate(
             request.getTenantCode(),
             request.getAppCode(),
             request.getDbconnId()
         );
         
-        // 5. Execute query on target database
-        List<Map<String, Object>> rows = targetJdbc.queryForList(
-            generatedSql.getSql(), 
-            generatedSql.getParameters()
-        );
+        StatementContext stmt = new StatementContext(timeoutSec, cancellation);
+        
+        // 3. Total not covered by the window function is counted concurrently
+        StatementContext countStmt = new StatementContext(stmt.timeoutSec(), cancellation.newChild());
+        Future<TotalCount> totalFuture = submitCount(compiled, request, targetJdbc, countStmt);
+        
+        // 4. Execute query on target database (hidden columns are split off while reading)
+        CollectedRows collected;
+        try {
+            collected = runStatement(targetJdbc, compiled.getDataSql().getSql(), params, stmt, 
+                rs -> collectRows(rs, compiled));
+        } catch (RuntimeException e) {
+            if (totalFuture != null) {
+                countStmt.cancellation().cancel();
+                totalFuture.cancel(true);
+            }
+            throw e;
+        }
 
-        rows = normalizeData(rows);
+        List<Map<String, Object>> rows = collected.rows();
         
         QueryResult result = new QueryResult();
+        if (compiled.isWindowCount()) {
+            result.setTotalCount(windowCount(compiled, request, collected, targetJdbc, stmt));
+        } else if (totalFuture != null) {
+            applyTotal(result, awaitCount(totalFuture));
+        }
+        if (compiled.isKeysetPagination()) {
+            result.setNextCursor(nextKeysetCursor(request.getLimit(), collected));
+        }
+        if (!Objects.equals(requestedLimit, request.getLimit())) {
+            result.setForcedLimit(request.getLimit());
+        }
         result.setRows(rows);
         result.setRowCount(rows.size());
-        // result.setGeneratedSql(generatedSql.getSql());
-        // result.setAliasMap(generatedSql.getAliasMap());
+        // result.setGeneratedSql(compiled.getDataSql().getSql());
+        // result.setAliasMap(compiled.getDataSql().getAliasMap());
+        
+        if (cacheKey != null) {
+            resultCache.put(cacheKey, request, compiled, result);
+        }
         
         log.info("Query executed successfully: {} rows returned", rows.size());
         
         return result;
     }
     
+    /**
+     * Single flight: the first caller for a key runs the query, concurrent callers with
+     * the same key wait for and share its result. Keys start with tenant, app and dbconnId
+     * (see {@link QueryResultCache#key}), so results never cross tenants. A waiter waits at
+     * most its own statement timeout and stops when its own handle is cancelled; when the
+     * running caller was cancelled by its own client, waiters run the query themselves
+     * within the rest of their timeout.
+     */
+    private QueryResult coalesce(String key, int timeoutSec, QueryCancellation cancellation,
+                                 IntFunction<QueryResult> execution) {
+        CompletableFuture<QueryResult> flight = new CompletableFuture<>();
+        CompletableFuture<QueryResult> running = inFlight.putIfAbsent(key, flight);
+        if (running == null) {
+            try {
+                QueryResult result = execution.apply(timeoutSec);
+                flight.complete(result);
+                return result;
+            } catch (RuntimeException e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+        
+        queryMeters.trackCoalesced();
+        log.debug("Joined in-flight query: {}", key);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSec);
+        // Own view of the flight: completing it on cancel leaves the leader and other waiters alone
+        CompletableFuture<QueryResult> waiting = running.copy();
+        Runnable abort = () -> waiting.completeExceptionally(new QueryCancelledException(
+            QueryCancelledException.Reason.CLIENT_ABORT, "Query cancelled: client disconnected", null));
+        cancellation.onCancel(abort);
+        try {
+            return waiting.get(timeoutSec, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DqesRuntimeException("Interrupted while waiting for in-flight query", e);
+        } catch (TimeoutException e) {
+            throw coalesceTimeout(timeoutSec, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof QueryCancelledException qce 
+                    && qce.getReason() == QueryCancelledException.Reason.CLIENT_ABORT
+                    && !cancellation.isCancelled()) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    throw coalesceTimeout(timeoutSec, qce);
+                }
+                // Statement timeouts are whole seconds: round the rest up
+                return execution.apply((int) TimeUnit.NANOSECONDS.toSeconds(remainingNanos + 999_999_999L));
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new DqesRuntimeException("In-flight query failed", e.getCause());
+        } finally {
+            cancellation.removeOnCancel(abort);
+        }
+    }
+    
+    private QueryCancelledException coalesceTimeout(int timeoutSec, Throwable cause) {
+        queryMeters.trackTimeout();
+        return new QueryCancelledException(QueryCancelledException.Reason.TIMEOUT, 
+            "Query exceeded statement timeout of " + timeoutSec + "s waiting for an identical query", cause);
+    }
+    
+    /**
+     * Execute with rows built as JSON by the database: the page comes back as one
+     * json_agg text value and is passed to the response unparsed (no row maps)
+     */
+    private QueryResult executeRaw(QueryRequest submitted, QueryCancellation cancellation) {
+        log.info("Executing dynamic query (raw JSON): tenant={}, app={}, root={}, dbconnId={}", 
+            submitted.getTenantCode(), submitted.getAppCode(), submitted.getRootObjectCode(), 
+            submitted.getDbconnId());
+        requireOffsetPagination(submitted);
+        
+        Integer requestedLimit = submitted.getLimit();
+        AdmittedQuery admitted = compileAdmitted(submitted, QueryPlanCache.Variant.RAW_PAGE, cancellation);
+        QueryRequest request = admitted.request();
+        CompiledQuery compiled = admitted.compiled();
+        NamedParameterJdbcTemplate targetJdbc = dataSourceService.getJdbcTemplate(
+            request.getTenantCode(),
+            request.getAppCode(),
+            request.getDbconnId()
+        );
+        StatementContext stmt = new StatementContext(resolveTimeoutSec(request), cancellation);
+        StatementContext countStmt = new StatementContext(stmt.timeoutSec(), cancellation.newChild());
+        Future<TotalCount> totalFuture = submitCount(compiled, request, targetJdbc, countStmt);
+        
+        QueryResult result = new QueryResult();
+        try {
+            runStatement(targetJdbc, compiled.getDataSql().getSql(), compiled.bind(request), stmt, rs -> {
+                rs.next();
+                result.setRowsJson(rs.getString(1));
+                result.setRowCount(rs.getInt(2));
+                return null;
+            });
+        } catch (RuntimeException e) {
+            if (totalFuture != null) {
+                countStmt.cancellation().cancel();
+                totalFuture.cancel(true);
+            }
+            throw e;
+        }
+        if (totalFuture != null) {
+            applyTotal(result, awaitCount(totalFuture));
+        }
+        if (!Objects.equals(requestedLimit, request.getLimit())) {
+            result.setForcedLimit(request.getLimit());
+        }
+        
+        log.info("Query executed successfully (raw JSON): {} rows returned", result.getRowCount());
+        
+        return result;
+    }
+    
+    /**
+     * Start the separate total count query on a worker thread, if the plan needs one
+     */
+    private Future<TotalCount> submitCount(CompiledQuery compiled, QueryRequest request, 
+                                           NamedParameterJdbcTemplate targetJdbc, StatementContext countStmt) {
+        if (compiled.getCountSql() == null || compiled.isWindowCount()) {
+            return null;
+        }
+        MapSqlParameterSource countParams = compiled.bindCount(request);
+        return workerExecutor.submit(() -> 
+            countTotal(compiled, request, targetJdbc, countStmt, compiled.getCountSql().getSql(), countParams));
+    }
+    
+    private void applyTotal(QueryResult result, TotalCount total) {
+        result.setTotalCount(total.count());
+        if (total.estimated()) {
+            result.setTotalEstimated(true);
+        }
+    }
+    
+    /**
+     * Raw JSON rows carry no hidden sort-key columns, so keyset cursors cannot be built
+     */
+    private void requireOffsetPagination(QueryRequest request) {
+        if (request.getPaginationMode() == QueryRequest.PaginationMode.KEYSET) {
+            throw new IllegalArgumentException("rawJson does not support KEYSET pagination");
+        }
+    }
+    
+    /**
+     * Convert the rows to the requested response format (after result caching,
+     * so cached entries serve every format). The given result is shared with
+     * coalesced callers and not modified.
+     */
+    private QueryResult applyFormat(QueryRequest request, QueryResult result) {
+        if (request.getFormat() != QueryRequest.ResultFormat.COLUMNAR || result.getRows() == null) {
+            return result;
+        }
+        List<Map<String, Object>> rows = result.getRows();
+        List<String> columns;
+        if (rows instanceof SpillableRowList spillable) {
+            columns = Arrays.asList(spillable.getColumns());
+        } else {
+            columns = rows.isEmpty() ? List.of() : List.copyOf(rows.get(0).keySet());
+        }
+        QueryResult formatted = new QueryResult();
+        formatted.setColumnar(ColumnarRows.of(columns, rows, properties.getColumnar().getDictionaryMaxCardinality()));
+        formatted.setRowCount(result.getRowCount());
+        formatted.setTotalCount(result.getTotalCount());
+        formatted.setTotalEstimated(result.getTotalEstimated());
+        formatted.setNextCursor(result.getNextCursor());
+        formatted.setForcedLimit(result.getForcedLimit());
+        return formatted;
+    }
+    
     /**
      * Execute query and return count
      */
     public long executeCount(QueryRequest request) {
+        return executeCount(request, new QueryCancellation());
+    }
+    
+    /**
+     * Execute query and return count; the statement can be cancelled through the given handle
+     */
+    public long executeCount(QueryRequest request, QueryCancellation cancellation) {
+        return executeTotalCount(request, cancellation).count();
+    }
+    
+    /**
+     * Count per request countMode, telling whether the result is an estimate
+     */
+    public TotalCount executeTotalCount(QueryRequest request, QueryCancellation cancellation) {
         log.info("Executing count query: tenant={}, app={}, root={}, dbconnId={}", 
             request.getTenantCode(), request.getAppCode(), request.getRootObjectCode(),
             request.getDbconnId());
         
-        // Build AST without SELECT clause
-        QueryAST ast = buildAST(request);
-        ast.getSelects().clear(); // Count doesn't need SELECT
+        CompiledQuery compiled = compile(request, QueryPlanCache.Variant.COUNT);
+        
+        // Get JDBC template for target database
+        NamedParameterJdbcTemplate targetJdbc = dataSourceService.getJdbcTemplate(
+            request.getTenantCode(),
+            request.getAppCode(),
+            request.getDbconnId()
+        );
+        
+        StatementContext stmt = new StatementContext(resolveTimeoutSec(request), cancellation);
+        return countTotal(compiled, request, targetJdbc, stmt, compiled.getDataSql().getSql(), compiled.bind(request));
+    }
+    
+    /**
+     * Count per request countMode: EXACT runs the count statement, ESTIMATE reads the
+     * planner estimate, AUTO runs the exact count only when the estimate is small and
+     * under a short timeout, falling back to the estimate when it expires
+     */
+    private TotalCount countTotal(CompiledQuery compiled, QueryRequest request, NamedParameterJdbcTemplate targetJdbc,
+                                  StatementContext stmt, String exactSql, SqlParameterSource exactParams) {
+        QueryRequest.CountMode mode = request.getCountMode() != null 
+            ? request.getCountMode() : QueryRequest.CountMode.EXACT;
+        if (mode == QueryRequest.CountMode.EXACT) {
+            return TotalCount.exact(queryCount(targetJdbc, exactSql, exactParams, stmt));
+        }
+        
+        long estimate = estimateCount(compiled, request, targetJdbc, stmt);
+        QueryEngineProperties.Total config = properties.getTotal();
+        if (mode == QueryRequest.CountMode.ESTIMATE || estimate > config.getAutoExactMaxRows()) {
+            return TotalCount.estimate(estimate);
+        }
+        
+        int timeoutSec = stmt.timeoutSec() > 0 
+            ? Math.min(stmt.timeoutSec(), config.getAutoExactTimeoutSec()) : config.getAutoExactTimeoutSec();
+        try {
+            return TotalCount.exact(queryCount(targetJdbc, exactSql, exactParams, 
+                new StatementContext(timeoutSec, stmt.cancellation())));
+        } catch (QueryCancelledException e) {
+            if (e.getReason() != QueryCancelledException.Reason.TIMEOUT) {
+                throw e;
+            }
+            log.info("Exact count exceeded {}s, returning estimate {}", timeoutSec, estimate);
+            return TotalCount.estimate(estimate);
+        }
+    }
+    
+    /**
+     * Row estimate: pg_class.reltuples when the count is the root table's row count,
+     * else the planner's row estimate for the counted subquery (EXPLAIN, not executed)
+     */
+    private long estimateCount(CompiledQuery compiled, QueryRequest request, NamedParameterJdbcTemplate targetJdbc,
+                               StatementContext stmt) {
+        if (compiled.getStatsTable() != null) {
+            Long reltuples = runStatement(targetJdbc, RELTUPLES_SQL, 
+                new MapSqlParameterSource("table", compiled.getStatsTable()), stmt,
+                rs -> rs.next() ? rs.getLong(1) : null);
+            if (reltuples != null && reltuples >= 0) {
+                return reltuples;   // -1: table never analyzed
+            }
+        }
         
-        // Plan joins
-        joinPathPlanner.planJoins(ast);
+        return explain(targetJdbc, compiled.getCountSql().getCountSubquerySql(), compiled.bindCount(request), stmt)
+            .path("Plan Rows").asLong();
+    }
+    
+    /**
+     * Top plan node of EXPLAIN (FORMAT JSON); the statement is planned, not executed
+     */
+    private JsonNode explain(NamedParameterJdbcTemplate targetJdbc, String sql, SqlParameterSource params,
+                             StatementContext stmt) {
+        String plan = runStatement(targetJdbc, "EXPLAIN (FORMAT JSON) " + sql, params, stmt, 
+            rs -> rs.next() ? rs.getString(1) : null);
+        try {
+            return JSON.getObjectMapper().readTree(plan).path(0).path("Plan");
+        } catch (IOException e) {
+            throw new DqesRuntimeException("Failed to read query plan", e);
+        }
+    }
+    
+    /**
+     * Request to run and its compiled plan; the request is a copy with the forced
+     * limit when the cost guard lowered it (the submitted request is left untouched)
+     */
+    private record AdmittedQuery(QueryRequest request, CompiledQuery compiled) {}
+    
+    /**
+     * Compile the plan and run the cost guard on it: the data statement's EXPLAIN
+     * estimate (taken once per compiled shape and limit) is checked against the tenant /
+     * dbconn limits. Over the limits the query is rejected or, with action LIMIT, run
+     * as a copy of the request with the limit lowered to the forced limit.
+     */
+    private AdmittedQuery compileAdmitted(QueryRequest request, QueryPlanCache.Variant variant,
+                                          QueryCancellation cancellation) {
+        CompiledQuery compiled = compile(request, variant);
+        QueryEngineProperties.CostGuard guard = properties.getCostGuard();
+        if (!guard.isEnabled()) {
+            return new AdmittedQuery(request, compiled);
+        }
+        QueryEngineProperties.CostLimits limits = resolveCostLimits(request);
+        if (limits.getMaxTotalCost() <= 0 && limits.getMaxRows() <= 0) {
+            return new AdmittedQuery(request, compiled);
+        }
         
-        // Generate SQL
-        GeneratedSql generatedSql = sqlGenerator.generateSql(ast);
+        CompiledQuery.PlanEstimate estimate = planEstimate(compiled, request, cancellation);
+        if (!exceeds(estimate, limits)) {
+            return new AdmittedQuery(request, compiled);
+        }
         
-        // Wrap in COUNT(*)
-        String countSql = "SELECT COUNT(*) FROM (\n" + 
-                         generatedSql.getSql() + 
-                         ") count_subquery";
+        boolean limitApplies = request.getLimit() == null || request.getLimit() > guard.getForcedLimit();
+        if (guard.getAction() == QueryEngineProperties.CostGuard.Action.LIMIT && limitApplies) {
+            QueryRequest limitedRequest = request.withLimit(guard.getForcedLimit());
+            CompiledQuery limited = compile(limitedRequest, variant);
+            CompiledQuery.PlanEstimate limitedEstimate = planEstimate(limited, limitedRequest, cancellation);
+            if (!exceeds(limitedEstimate, limits)) {
+                log.warn("Query over cost limits (cost={}, rows={}): running with LIMIT {}", 
+                    estimate.totalCost(), estimate.rows(), guard.getForcedLimit());
+                queryMeters.trackCostLimited();
+                return new AdmittedQuery(limitedRequest, limited);
+            }
+            estimate = limitedEstimate;     // Still too expensive (e.g. sort over every row)
+        }
+        
+        queryMeters.trackCostRejected();
+        throw new QueryRejectedException(QueryRejectedException.Reason.COST, String.format(
+            "Query rejected by cost guard: estimated cost %.0f (max %.0f), rows %.0f (max %.0f)",
+            estimate.totalCost(), limits.getMaxTotalCost(), estimate.rows(), limits.getMaxRows()));
+    }
+    
+    /**
+     * EXPLAIN estimate of the data statement for the request's limit (LIMIT is a bound
+     * parameter, so one compiled plan serves every limit value; the statement is explained
+     * with the upper bound of the limit's bucket, see {@link CompiledQuery#planEstimate})
+     */
+    private CompiledQuery.PlanEstimate planEstimate(CompiledQuery compiled, QueryRequest submitted,
+                                                    QueryCancellation cancellation) {
+        return compiled.planEstimate(submitted.getLimit(), bucketLimit -> {
+            QueryRequest request = bucketLimit != null ? submitted.withLimit(bucketLimit) : submitted;
+            NamedParameterJdbcTemplate targetJdbc = dataSourceService.getJdbcTemplate(
+                request.getTenantCode(),
+                request.getAppCode(),
+                request.getDbconnId()
+            );
+            StatementContext stmt = new StatementContext(resolveTimeoutSec(request), cancellation);
+            JsonNode plan = explain(targetJdbc, compiled.getDataSql().getSql(), compiled.bind(request), stmt);
+            return new CompiledQuery.PlanEstimate(plan.path("Total Cost").asDouble(), plan.path("Plan Rows").asDouble());
+        });
+    }
+    
+    private boolean exceeds(CompiledQuery.PlanEstimate estimate, QueryEngineProperties.CostLimits limits) {
+        return (limits.getMaxTotalCost() > 0 && estimate.totalCost() > limits.getMaxTotalCost())
+            || (limits.getMaxRows() > 0 && estimate.rows() > limits.getMaxRows());
+    }
+    
+    /**
+     * Cost limits: dbconn entry, else tenant entry, else defaults
+     */
+    private QueryEngineProperties.CostLimits resolveCostLimits(QueryRequest request) {
+        QueryEngineProperties.CostGuard guard = properties.getCostGuard();
+        QueryEngineProperties.CostLimits limits = guard.getDbconn().get(request.getDbconnId());
+        if (limits == null) {
+            limits = guard.getTenant().get(request.getTenantCode());
+        }
+        return limits != null ? limits : guard.getDefaults();
+    }
+    
+    /**
+     * Return the compiled plan for the request shape. On a cache miss:
+     * build AST, plan JOIN graph, optimize the logical plan and generate SQL
+     * (plus count SQL for includeTotal).
+     */
+    private CompiledQuery compile(QueryRequest request, QueryPlanCache.Variant variant) {
+        boolean includeTotal = (variant == QueryPlanCache.Variant.EXECUTE || variant == QueryPlanCache.Variant.RAW_PAGE)
+            && Boolean.TRUE.equals(request.getIncludeTotal());
+        boolean windowCount = includeTotal && variant == QueryPlanCache.Variant.EXECUTE && useWindowCount(request);
+        
+        return planCache.get(request, variant, windowCount, () -> {
+            QueryAST ast = buildAST(request);
+            if (variant == QueryPlanCache.Variant.COUNT) {
+                ast.getSelects().clear(); // Count doesn't need SELECT
+                ast.getCollections().clear();
+                ast.setKeysetPagination(false); // Count covers all pages
+                ast.setKeysetValues(null);
+            }
+            
+            joinPathPlanner.planJoins(ast);
+            
+            // Total via window function for small offset pages
+            ast.setWindowCount(windowCount);
+            ast.setDeferredJoin(variant != QueryPlanCache.Variant.COUNT && properties.getDeferredJoin().isEnabled());
+            LogicalPlan plan = planOptimizer.optimize(LogicalPlan.of(ast));
+            
+            List<String> objectCodes = collectObjectCodes(ast);
+            if (variant == QueryPlanCache.Variant.COUNT) {
+                // Lean count statement (no ORDER BY / paging, select- and sort-only joins left out)
+                GeneratedSql countSql = sqlGenerator.generateCountSql(plan);
+                return new CompiledQuery(countSql, countSql, false, false, 0,
+                    objectCodes, resolveResultCacheTtl(request, objectCodes), resolveStatsTable(request, ast));
+            }
+            
+            GeneratedSql dataSql = sqlGenerator.generateSql(plan);
+            if (variant == QueryPlanCache.Variant.RAW_PAGE) {
+                // Page built by the database; json_agg keeps the select column order
+                dataSql.setSql("SELECT COALESCE(json_agg(q), '[]'::json)::text, COUNT(*) FROM (\n" 
+                    + dataSql.getSql() + ") q");
+            } else if (variant == QueryPlanCache.Variant.RAW_STREAM) {
+                // One NDJSON line per row: jsonb text never contains a line break, while
+                // row_to_json would embed json columns with their stored line breaks
+                dataSql.setSql("SELECT to_jsonb(q)::text FROM (\n" + dataSql.getSql() + ") q");
+            }
+            
+            // Count SQL also serves the window path when a page past the end comes back empty
+            GeneratedSql countSql = includeTotal ? sqlGenerator.generateCountSql(plan) : null;
+            
+            int keysetKeyCount = ast.isKeysetPagination() ? ast.getSorts().size() : 0;
+            return new CompiledQuery(dataSql, countSql, windowCount, ast.isKeysetPagination(), keysetKeyCount,
+                objectCodes, resolveResultCacheTtl(request, objectCodes), resolveStatsTable(request, ast));
+        });
+    }
+    
+    /**
+     * Root object plus every joined (or EXISTS) object, sorted
+     */
+    private List<String> collectObjectCodes(QueryAST ast) {
+        Set<String> codes = new TreeSet<>();
+        codes.add(ast.getRootObject());
+        for (JoinNode join : ast.getJoins()) {
+            codes.add(join.getToObjectCode());
+        }
+        return List.copyOf(codes);
+    }
+    
+    /**
+     * A result is cacheable only if every object it reads has a TTL; the shortest one wins
+     */
+    private Integer resolveResultCacheTtl(QueryRequest request, List<String> objectCodes) {
+        Integer ttl = null;
+        for (String objectCode : objectCodes) {
+            Integer objectTtl = metadataRepo.findObjectMeta(request.getTenantCode(), request.getAppCode(), objectCode)
+                .map(ObjectMeta::getResultCacheTtlSec)
+                .orElse(null);
+            if (objectTtl == null || objectTtl <= 0) {
+                return null;
+            }
+            ttl = ttl == null ? objectTtl : Math.min(ttl, objectTtl);
+        }
+        return ttl;
+    }
+    
+    /**
+     * Root table whose row count equals the query's count: no filters, joins or grouping
+     */
+    private String resolveStatsTable(QueryRequest request, QueryAST ast) {
+        if (!ast.getFilters().isEmpty() || !ast.getJoins().isEmpty() || ast.isAggregate()) {
+            return null;
+        }
+        return metadataRepo.findObjectMeta(request.getTenantCode(), request.getAppCode(), ast.getRootObject())
+            .map(ObjectMeta::getDbTable)
+            .orElse(null);
+    }
+    
+    /**
+     * COUNT(*) OVER() is only used for small offset pages: it needs every
+     * matching row before LIMIT, and keyset seek would hide earlier pages.
+     * Estimated totals skip it (the window counts exactly).
+     */
+    private boolean useWindowCount(QueryRequest request) {
+        return request.getPaginationMode() != QueryRequest.PaginationMode.KEYSET
+            && (request.getCountMode() == null || request.getCountMode() == QueryRequest.CountMode.EXACT)
+            && request.getLimit() != null
+            && request.getLimit() <= properties.getTotal().getWindowMaxLimit();
+    }
+    
+    /**
+     * Statement timeout: request value, else tenant default, else global default (capped)
+     */
+    private int resolveTimeoutSec(QueryRequest request) {
+        QueryEngineProperties.Timeout config = properties.getTimeout();
+        Integer timeout = request.getTimeoutSec();
+        if (timeout == null || timeout <= 0) {
+            timeout = config.getTenantDefaultSec().get(request.getTenantCode());
+        }
+        if (timeout == null || timeout <= 0) {
+            timeout = config.getDefaultSec();
+        }
+        return config.getMaxSec() > 0 ? Math.min(timeout, config.getMaxSec()) : timeout;
+    }
+    
+    /**
+     * Read the result set into a spillable row list. Hidden engine columns are not
+     * copied into rows: the window total is taken from the first row and the keyset
+     * sort keys from the last one.
+     */
+    private CollectedRows collectRows(ResultSet rs, CompiledQuery compiled) throws SQLException {
+        RowLayout layout = compiled.rowLayout(rs.getMetaData());
+        int totalColumn = layout.getTotalColumn();
+        int[] keyColumns = layout.getKeyColumns();
+        
+        QueryEngineProperties.Spill spill = properties.getSpill();
+        SpillableRowList rows = new SpillableRowList(layout.getColumns(),
+            spill.getRowThreshold(), spill.getByteThreshold(), spill.getMaxBytes(), spill.getDir());
+        Long windowTotal = null;
+        String[] lastKeys = new String[keyColumns.length];
+        
+        try {
+            while (rs.next()) {
+                rows.addRow(layout.read(rs));
+                
+                if (totalColumn > 0 && windowTotal == null) {
+                    windowTotal = rs.getLong(totalColumn);
+                }
+                for (int k = 0; k < keyColumns.length; k++) {
+                    lastKeys[k] = rs.getString(keyColumns[k]);
+                }
+            }
+            rows.seal();
+        } catch (SQLException | RuntimeException e) {
+            rows.discard();
+            throw e;
+        }
+        
+        return new CollectedRows(rows, windowTotal, Arrays.asList(lastKeys));
+    }
+    
+    /**
+     * Rows of the data query plus the hidden values read alongside them
+     */
+    private record CollectedRows(SpillableRowList rows, Long windowTotal, List<String> lastKeys) {}
+    
+    private long queryCount(NamedParameterJdbcTemplate targetJdbc, String sql, 
+                            SqlParameterSource params, StatementContext stmt) {
+        Long count = runStatement(targetJdbc, sql, params, stmt, rs -> rs.next() ? rs.getLong(1) : 0L);
+        return count != null ? count : 0L;
+    }
+    
+    /**
+     * Run a query with statement timeout applied and the statement attached to the
+     * cancellation handle while it executes
+     */
+    private <T> T runStatement(NamedParameterJdbcTemplate targetJdbc, String sql, SqlParameterSource params,
+                               StatementContext stmt, ResultSetExtractor<T> extractor) {
+        PreparedStatementCreator psc = buildStatementCreator(sql, params);
+        try {
+            return targetJdbc.getJdbcTemplate().execute(psc, (PreparedStatementCallback<T>) ps -> {
+                applyStatementContext(ps, stmt);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return extractor.extractData(rs);
+                } finally {
+                    stmt.cancellation().detach(ps);
+                }
+            });
+        } catch (RuntimeException e) {
+            throw translateCancellation(e, stmt);
+        }
+    }
+    
+    private void applyStatementContext(PreparedStatement ps, StatementContext stmt) throws SQLException {
+        if (stmt.timeoutSec() > 0) {
+            ps.setQueryTimeout(stmt.timeoutSec());
+        }
+        stmt.cancellation().attach(ps);
+    }
+    
+    /**
+     * Map a database-side cancel (SQLSTATE 57014 / timeout) to QueryCancelledException:
+     * CLIENT_ABORT when the handle was cancelled, TIMEOUT otherwise
+     */
+    private RuntimeException translateCancellation(RuntimeException e, StatementContext stmt) {
+        if (e instanceof QueryCancelledException || !isQueryCanceled(e)) {
+            return e;
+        }
+        if (stmt.cancellation().isCancelled()) {
+            queryMeters.trackClientAbort();
+            return new QueryCancelledException(QueryCancelledException.Reason.CLIENT_ABORT, 
+                "Query cancelled: client disconnected", e);
+        }
+        queryMeters.trackTimeout();
+        return new QueryCancelledException(QueryCancelledException.Reason.TIMEOUT, 
+            "Query exceeded statement timeout of " + stmt.timeoutSec() + "s", e);
+    }
+    
+    private boolean isQueryCanceled(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof QueryTimeoutException || t instanceof SQLTimeoutException) {
+                return true;
+            }
+            if (t instanceof SQLException sqlEx && QUERY_CANCELED_SQLSTATE.equals(sqlEx.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private TotalCount awaitCount(Future<TotalCount> totalFuture) {
+        try {
+            return totalFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DqesRuntimeException("Interrupted while waiting for total count", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new DqesRuntimeException("Total count query failed", e.getCause());
+        }
+    }
+    
+    /**
+     * Window total read from the first row.
+     * An empty page past the end carries no total, so fall back to a count query.
+     */
+    private long windowCount(CompiledQuery compiled, QueryRequest request, CollectedRows collected,
+                             NamedParameterJdbcTemplate targetJdbc, StatementContext stmt) {
+        if (collected.windowTotal() == null) {
+            boolean firstPage = request.getOffset() == null || request.getOffset() == 0;
+            return firstPage ? 0L 
+                : queryCount(targetJdbc, compiled.getCountSql().getSql(), compiled.bindCount(request), stmt);
+        }
+        return collected.windowTotal();
+    }
+    
+    /**
+     * Execute query and stream rows as NDJSON (one JSON object per line)
+     * Uses a forward-only cursor with a bounded fetch size, so heap usage stays
+     * constant regardless of the number of rows returned.
+     * @return number of rows written
+     */
+    public long stream(QueryRequest request, OutputStream out) {
+        return stream(request, out, new QueryCancellation());
+    }
+    
+    /**
+     * Stream rows as NDJSON; the cursor statement can be cancelled through the given handle
+     */
+    public long stream(QueryRequest submitted, OutputStream out, QueryCancellation cancellation) {
+        return stream(submitted, out, cancellation, null);
+    }
+    
+    /**
+     * Stream rows as NDJSON with a fixed statement timeout, not capped by
+     * {@code dqes.query.timeout.max-sec} (async jobs); null = interactive timeout
+     */
+    public long stream(QueryRequest submitted, OutputStream out, QueryCancellation cancellation, Integer timeoutSec) {
+        if (Boolean.TRUE.equals(submitted.getRawJson())) {
+            return streamRaw(submitted, out, cancellation, timeoutSec);
+        }
+        log.info("Streaming dynamic query: tenant={}, app={}, root={}, dbconnId={}", 
+            submitted.getTenantCode(), submitted.getAppCode(), submitted.getRootObjectCode(), 
+            submitted.getDbconnId());
+        
+        AdmittedQuery admitted = compileAdmitted(submitted, QueryPlanCache.Variant.STREAM, cancellation);
+        QueryRequest request = admitted.request();
+        CompiledQuery compiled = admitted.compiled();
+        int flushEveryRows = Math.max(1, properties.getStream().getFlushEveryRows());
+        ObjectWriter writer = JSON.getObjectMapper().writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        
+        long rowCount = runCursor(request, compiled, cancellation, timeoutSec, rs -> {
+            try (JsonGenerator gen = writer.createGenerator(out)) {
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                
+                // Hidden engine columns (keyset sort keys) are not part of the streamed row
+                RowLayout layout = compiled.rowLayout(rs.getMetaData());
+                String[] columns = layout.getColumns();
+                long written = 0;
+                while (rs.next()) {
+                    writer.writeValue(gen, new ArrayRow(columns, layout.read(rs)));
+                    gen.writeRaw('\n');
+                
+                    if (++written % flushEveryRows == 0) {
+                        gen.flush();
+                    }
+                }
+                gen.flush();
+                return written;
+            }
+        });
+        
+        log.info("Query streamed successfully: {} rows written", rowCount);
+        
+        return rowCount;
+    }
+    
+    /**
+     * Stream rows as NDJSON built by the database (to_jsonb); the JSON text
+     * bytes are copied to the output without being decoded
+     */
+    private long streamRaw(QueryRequest submitted, OutputStream out, QueryCancellation cancellation,
+                           Integer timeoutSec) {
+        log.info("Streaming dynamic query (raw JSON): tenant={}, app={}, root={}, dbconnId={}", 
+            submitted.getTenantCode(), submitted.getAppCode(), submitted.getRootObjectCode(), 
+            submitted.getDbconnId());
+        requireOffsetPagination(submitted);
+        
+        AdmittedQuery admitted = compileAdmitted(submitted, QueryPlanCache.Variant.RAW_STREAM, cancellation);
+        QueryRequest request = admitted.request();
+        CompiledQuery compiled = admitted.compiled();
+        int flushEveryRows = Math.max(1, properties.getStream().getFlushEveryRows());
+        
+        long rowCount = runCursor(request, compiled, cancellation, timeoutSec, rs -> {
+            long written = 0;
+            while (rs.next()) {
+                // Text column: the driver hands back the UTF-8 bytes as received
+                out.write(rs.getBytes(1));
+                out.write('\n');
+                if (++written % flushEveryRows == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+            return written;
+        });
+        
+        log.info("Query streamed successfully (raw JSON): {} rows written", rowCount);
+        
+        return rowCount;
+    }
+    
+    /**
+     * Stream rows as an Arrow IPC stream (record batches of {@code dqes.query.stream.fetch-size} rows)
+     * @return number of rows written
+     */
+    public long streamArrow(QueryRequest request, OutputStream out) {
+        return streamArrow(request, out, new QueryCancellation());
+    }
+    
+    /**
+     * Stream rows as Arrow IPC; the cursor statement can be cancelled through the given handle
+     */
+    public long streamArrow(QueryRequest submitted, OutputStream out, QueryCancellation cancellation) {
+        log.info("Streaming dynamic query as Arrow: tenant={}, app={}, root={}, dbconnId={}", 
+            submitted.getTenantCode(), submitted.getAppCode(), submitted.getRootObjectCode(), 
+            submitted.getDbconnId());
+        
+        AdmittedQuery admitted = compileAdmitted(submitted, QueryPlanCache.Variant.STREAM, cancellation);
+        QueryRequest request = admitted.request();
+        CompiledQuery compiled = admitted.compiled();
+        int batchSize = Math.max(1, properties.getStream().getFetchSize());
+        
+        long rowCount = runCursor(request, compiled, cancellation, null, rs -> 
+            ArrowResultWriter.write(rs, compiled.rowLayout(rs.getMetaData()), 
+                compiled.getDataSql().getColumnTypes(), out, batchSize));
+        
+        log.info("Query streamed as Arrow: {} rows written", rowCount);
+        
+        return rowCount;
+    }
+    
+    /**
+     * Consumer of an open forward-only result set; returns the number of rows written
+     */
+    @FunctionalInterface
+    private interface CursorConsumer {
+        long consume(ResultSet rs) throws SQLException, IOException;
+    }
+    
+    /**
+     * Run the data statement through a forward-only cursor with a bounded fetch size,
+     * so heap usage stays constant regardless of the number of rows returned.
+     * An IOException from the consumer means the client went away. A non-null
+     * timeoutSec replaces the interactive statement timeout.
+     */
+    private long runCursor(QueryRequest request, CompiledQuery compiled, QueryCancellation cancellation,
+                           Integer timeoutSec, CursorConsumer consumer) {
+        StatementContext stmt = new StatementContext(
+            timeoutSec != null ? timeoutSec : resolveTimeoutSec(request), cancellation);
         
-        // Get JDBC template for target database
         NamedParameterJdbcTemplate targetJdbc = dataSourceService.getJdbcTemplate(
             request.getTenantCode(),
             request.getAppCode(),
             request.getDbconnId()
         );
         
-        Long count = targetJdbc.queryForObject(
-            countSql, 
-            generatedSql.getParameters(), 
-            Long.class
-        );
+        PreparedStatementCreator psc = buildStatementCreator(compiled.getDataSql().getSql(), compiled.bind(request));
+        int fetchSize = properties.getStream().getFetchSize();
         
-        return count != null ? count : 0L;
+        Long rowCount;
+        try {
+            rowCount = targetJdbc.getJdbcTemplate().execute((ConnectionCallback<Long>) con -> {
+                // PostgreSQL only uses a server-side cursor (honours fetchSize) outside auto-commit
+                boolean autoCommit = con.getAutoCommit();
+                if (autoCommit) {
+                    con.setAutoCommit(false);
+                }
+                try (PreparedStatement ps = psc.createPreparedStatement(con)) {
+                    ps.setFetchSize(fetchSize);
+                    applyStatementContext(ps, stmt);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return consumer.consume(rs);
+                    } finally {
+                        stmt.cancellation().detach(ps);
+                    }
+                } catch (IOException e) {
+                    // Client went away: the cursor statement is closed with the connection callback
+                    queryMeters.trackClientAbort();
+                    throw new QueryCancelledException(QueryCancelledException.Reason.CLIENT_ABORT,
+                        "Streaming aborted: client disconnected", e);
+                } finally {
+                    if (autoCommit) {
+                        con.rollback();
+                        con.setAutoCommit(true);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            throw translateCancellation(e, stmt);
+        }
+        
+        return rowCount != null ? rowCount : 0L;
+    }
+    
+    /**
+     * Per-execution statement settings
+     */
+    private record StatementContext(int timeoutSec, QueryCancellation cancellation) {}
+    
+    /**
+     * Expand named parameters into a JDBC PreparedStatementCreator
+     * (same expansion NamedParameterJdbcTemplate performs internally)
+     */
+    private PreparedStatementCreator buildStatementCreator(String sql, SqlParameterSource paramSource) {
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
+        Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+        List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
+        
+        PreparedStatementCreatorFactory pscf = new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
+        pscf.setResultSetType(ResultSet.TYPE_FORWARD_ONLY);
+        return pscf.newPreparedStatementCreator(params);
     }
     
     /**
@@ -149,27 +1058,32 @@ public class DynamicQueryExecutor {
         // Add SELECT nodes
         if (request.getSelectFields() != null) {
             for (String fieldSpec : request.getSelectFields()) {
-                // Parse alias-based format: "objectAlias.fieldAlias" or "objectAlias.fieldAlias AS customAlias"
-                String field = fieldSpec;
-                String customAlias = null;
-                
-                // Check for custom alias using " AS " separator
-                if (fieldSpec.contains(" AS ") || fieldSpec.contains(" as ")) {
-                    String[] parts = fieldSpec.split("\\s+[Aa][Ss]\\s+", 2);
-                    field = parts[0].trim();
-                    customAlias = parts.length > 1 ? parts[1].trim() : null;
+                ast.addSelect(parseSelectField(fieldSpec, aliasToCodeMap, request));
+            }
+        }
+        
+        // GROUP BY fields, aggregates and HAVING
+        if (request.getGroupBy() != null) {
+            for (String fieldSpec : request.getGroupBy()) {
+                ast.addGroupBy(parseSelectField(fieldSpec, aliasToCodeMap, request));
+            }
+        }
+        if (request.getAggregates() != null) {
+            for (QueryRequest.Aggregate a : request.getAggregates()) {
+                ast.addAggregate(buildAggregateNode(a, aliasToCodeMap, request));
+            }
+        }
+        if (request.getHaving() != null) {
+            for (QueryRequest.Having h : request.getHaving()) {
+                if (ast.findAggregate(h.getAggregate()) == null) {
+                    throw new IllegalArgumentException("HAVING references unknown aggregate: " + h.getAggregate());
                 }
-                
-                String[] resolved = resolveField(field, null, null, 
-                    aliasToCodeMap, request.getTenantCode(), request.getAppCode());
-                SelectNode node = new SelectNode(
-                    resolved[0],  // objectCode
-                    resolved[1],  // fieldCode
-                    customAlias   // optional custom alias
-                );
-                ast.addSelect(node);
+                ast.addHaving(new HavingNode(h.getAggregate(), h.getOperatorCode(), h.getValue()));
             }
         }
+        if (ast.isAggregate()) {
+            validateAggregateQuery(ast, request);
+        }
         
         // Add FILTER nodes
         if (request.getFilters() != null) {
@@ -189,6 +1103,11 @@ public class DynamicQueryExecutor {
         // Add SORT nodes
         if (request.getSorts() != null) {
             for (QueryRequest.Sort s : request.getSorts()) {
+                // Grouped queries can sort by an aggregate alias
+                if (s.getField() != null && ast.findAggregate(s.getField()) != null) {
+                    ast.addSort(SortNode.byAggregate(s.getField(), s.getDirection()));
+                    continue;
+                }
                 String[] resolved = resolveField(s.getField(), s.getObjectCode(), s.getFieldCode(),
                     aliasToCodeMap, request.getTenantCode(), request.getAppCode());
                 SortNode node = new SortNode(
@@ -196,17 +1115,174 @@ public class DynamicQueryExecutor {
                     resolved[1],  // fieldCode
                     s.getDirection()
                 );
+                if (ast.isAggregate() && ast.getGroupBy().stream().noneMatch(g -> 
+                        g.getObjectCode().equals(node.getObjectCode()) && g.getFieldCode().equals(node.getFieldCode()))) {
+                    throw new IllegalArgumentException(
+                        "Grouped queries can only sort by group fields or aggregate aliases: " + s.getField());
+                }
                 ast.addSort(node);
             }
         }
         
+        // Nested collections (limit / order of selected ONE_TO_MANY objects)
+        if (request.getCollections() != null) {
+            for (QueryRequest.NestedCollection c : request.getCollections()) {
+                CollectionNode node = buildCollectionNode(c, aliasToCodeMap, request);
+                if (ast.findCollection(node.getObjectCode()) != null) {
+                    throw new IllegalArgumentException("Duplicate collection: " + node.getObjectCode());
+                }
+                ast.addCollection(node);
+            }
+        }
+        
         // Pagination
         ast.setLimit(request.getLimit());
         ast.setOffset(request.getOffset());
+        if (request.getPaginationMode() == QueryRequest.PaginationMode.KEYSET) {
+            applyKeysetPagination(ast, request);
+        }
         
         return ast;
     }
     
+    /**
+     * Parse a select / group-by field: "objectAlias.fieldAlias" or "objectAlias.fieldAlias AS customAlias"
+     */
+    private SelectNode parseSelectField(String fieldSpec, Map<String, String> aliasToCodeMap, QueryRequest request) {
+        String field = fieldSpec;
+        String customAlias = null;
+        
+        // Check for custom alias using " AS " separator
+        if (fieldSpec.contains(" AS ") || fieldSpec.contains(" as ")) {
+            String[] parts = fieldSpec.split("\\s+[Aa][Ss]\\s+", 2);
+            field = parts[0].trim();
+            customAlias = parts.length > 1 ? parts[1].trim() : null;
+        }
+        
+        String[] resolved = resolveField(field, null, null, 
+            aliasToCodeMap, request.getTenantCode(), request.getAppCode());
+        return new SelectNode(
+            resolved[0],  // objectCode
+            resolved[1],  // fieldCode
+            customAlias   // optional custom alias
+        );
+    }
+    
+    /**
+     * Build an aggregate select; only COUNT may omit the field (COUNT(*))
+     */
+    private AggregateNode buildAggregateNode(QueryRequest.Aggregate a, Map<String, String> aliasToCodeMap,
+                                             QueryRequest request) {
+        AggregateNode.AggregateFunction function;
+        try {
+            function = AggregateNode.AggregateFunction.valueOf(String.valueOf(a.getFunction()).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported aggregate function: " + a.getFunction());
+        }
+        if (a.getAlias() == null || a.getAlias().isBlank()) {
+            throw new IllegalArgumentException("Aggregate alias is required: " + function);
+        }
+        
+        boolean hasField = a.getField() != null || (a.getObjectCode() != null && a.getFieldCode() != null);
+        if (!hasField) {
+            if (function != AggregateNode.AggregateFunction.COUNT) {
+                throw new IllegalArgumentException(function + " requires a field: " + a.getAlias());
+            }
+            return new AggregateNode(function, null, null, a.getAlias());
+        }
+        
+        String[] resolved = resolveField(a.getField(), a.getObjectCode(), a.getFieldCode(),
+            aliasToCodeMap, request.getTenantCode(), request.getAppCode());
+        return new AggregateNode(function, resolved[0], resolved[1], a.getAlias());
+    }
+    
+    /**
+     * Nested collection options; element sorts must be fields of the collection object
+     */
+    private CollectionNode buildCollectionNode(QueryRequest.NestedCollection c, Map<String, String> aliasToCodeMap,
+                                               QueryRequest request) {
+        String objectCode = c.getObjectCode() != null ? c.getObjectCode() : aliasToCodeMap.get(c.getObject());
+        if (objectCode == null) {
+            throw new IllegalArgumentException("Object alias not found: " + c.getObject());
+        }
+        if (c.getLimit() != null && c.getLimit() < 1) {
+            throw new IllegalArgumentException("Collection limit must be positive: " + objectCode);
+        }
+        
+        List<SortNode> sorts = new ArrayList<>();
+        if (c.getSorts() != null) {
+            for (QueryRequest.Sort s : c.getSorts()) {
+                String[] resolved = resolveField(s.getField(), s.getObjectCode(), s.getFieldCode(),
+                    aliasToCodeMap, request.getTenantCode(), request.getAppCode());
+                if (!resolved[0].equals(objectCode)) {
+                    throw new IllegalArgumentException(
+                        "Collection " + objectCode + " can only be sorted by its own fields: " + s.getField());
+                }
+                sorts.add(new SortNode(resolved[0], resolved[1], s.getDirection()));
+            }
+        }
+        return new CollectionNode(objectCode, c.getLimit(), sorts);
+    }
+    
+    /**
+     * Grouped queries return group fields and aggregates only, one row per group
+     */
+    private void validateAggregateQuery(QueryAST ast, QueryRequest request) {
+        if (!ast.getSelects().isEmpty()) {
+            throw new IllegalArgumentException(
+                "selectFields cannot be combined with groupBy/aggregates; group fields are returned as columns");
+        }
+        if (request.getPaginationMode() == QueryRequest.PaginationMode.KEYSET) {
+            throw new IllegalArgumentException("KEYSET pagination is not supported for grouped queries");
+        }
+    }
+    
+    /**
+     * Enable keyset pagination: append root primary key as unique tiebreaker
+     * sort (same direction as the last sort) and decode the client cursor
+     */
+    private void applyKeysetPagination(QueryAST ast, QueryRequest request) {
+        String rootObjectCode = ast.getRootObject();
+        List<FieldMeta> pkFields = metadataRepo.findFieldsByObject(
+                request.getTenantCode(), request.getAppCode(), rootObjectCode).stream()
+            .filter(FieldMeta::isPrimaryKeyField)
+            .toList();
+        
+        if (pkFields.isEmpty()) {
+            throw new IllegalArgumentException(
+                "Keyset pagination requires a primary key field on object: " + rootObjectCode
+            );
+        }
+        
+        SortDirection direction = ast.getSorts().isEmpty()
+            ? SortDirection.ASC
+            : ast.getSorts().get(ast.getSorts().size() - 1).getDirection();
+        
+        for (FieldMeta pk : pkFields) {
+            boolean alreadySorted = ast.getSorts().stream()
+                .anyMatch(s -> s.getObjectCode().equals(rootObjectCode) 
+                    && s.getFieldCode().equals(pk.getFieldCode()));
+            if (!alreadySorted) {
+                ast.addSort(new SortNode(rootObjectCode, pk.getFieldCode(), direction));
+            }
+        }
+        
+        ast.setKeysetPagination(true);
+        if (request.getCursor() != null && !request.getCursor().isBlank()) {
+            ast.setKeysetValues(KeysetCursor.decode(request.getCursor()));
+        }
+    }
+    
+    /**
+     * Build the next-page cursor from the last row's sort keys.
+     * Returns null when the page is not full (last page).
+     */
+    private String nextKeysetCursor(Integer limit, CollectedRows collected) {
+        int rowCount = collected.rows().size();
+        boolean hasNextPage = limit != null && rowCount > 0 && rowCount >= limit;
+        return hasNextPage ? KeysetCursor.encode(collected.lastKeys()) : null;
+    }
+    
     /**
      * Resolve root object code from objectAlias or rootObjectCode
      */
@@ -322,53 +1398,4 @@ public class DynamicQueryExecutor {
             "Field alias not found: " + fieldAlias + " in object: " + objectCode
         );
     }
-
-    private <T> List<T> normalizeData(List<Map<String, Object>> data) {
-		if (data == null)
-			return null;
-
-		List<T> newData = new ArrayList<>(data.size());
-
-		for (Map<String, Object> item : data) {
-			Map<String, Object> dt = new HashMap<>();
-			for (Entry<String, Object> entry : item.entrySet()) {
-				String fieldName = entry.getKey();
-				if (entry.getValue() instanceof PGobject val) {
-					dt.put(fieldName, getPgObjectValue(val));
-				} else {
-					dt.put(fieldName, entry.getValue());
-				}
-			}
-			newData.add((T) dt); // casting Map to T
-		}
-
-		return newData;
-	}
-
-	private Object getPgObjectValue(PGobject val) {
-		if ("jsonb".equals(val.getType()) || "json".equals(val.getType())) {
-			String json = val.getValue();
-			if (json == null) {
-				return null;
-			}
-			try {
-				json = json.trim();
-				if (json.startsWith("[")) {
-					List lst = JSON.getObjectMapper().readValue(json, List.class);
-					return lst;
-				} else if (json.startsWith("{")) {
-					return JSON.getObjectMapper().readValue(json, Map.class);
-				}
-
-				return json;
-			} catch (Exception e) {
-				throw new DqesRuntimeException("Failed to read PgObject value", e);
-			}
-
-		} else if ("ltree".equals(val.getType())) {
-			return val.getValue();
-		}
-
-		return val;
-	}
 }
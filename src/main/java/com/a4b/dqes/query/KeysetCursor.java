@@ -0,0 +1,37 @@
+package com.a4b.dqes.query;
+
+import com.a4b.core.server.json.JSON;
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque keyset pagination cursor
+ *
+ * Holds the last row's sort-key values as PostgreSQL text, encoded as a
+ * URL-safe Base64 JSON array. Values are bound back as untyped parameters so
+ * the target database infers each type from the compared column.
+ */
+public final class KeysetCursor {
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(List<String> values) {
+        try {
+            byte[] json = JSON.getObjectMapper().writeValueAsBytes(values);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encode pagination cursor", e);
+        }
+    }
+
+    public static List<String> decode(String cursor) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            return JSON.getObjectMapper().readValue(json, new TypeReference<List<String>>() {});
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid pagination cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.a4b.dqes.query;
+
+/**
+ * Published when data of a query object changed, so cached query results
+ * reading that object are evicted (see {@link QueryResultCache})
+ */
+public record ObjectDataChangedEvent(String tenantCode, String appCode, String objectCode) {}
@@ -0,0 +1,83 @@
+package com.a4b.dqes.query;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cancellation handle for the statements of one query execution
+ * 
+ * Running statements are attached while they execute; {@link #cancel()} (e.g. on
+ * client disconnect) sends {@link Statement#cancel()} to each of them. A statement
+ * attached after cancellation is cancelled immediately. Cancelling a handle also
+ * cancels its children (e.g. the queries of a batch, a concurrent count) and runs its
+ * callbacks (e.g. to stop waiting for a coalesced query).
+ */
+@Slf4j
+public class QueryCancellation {
+
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    private final Set<QueryCancellation> children = ConcurrentHashMap.newKeySet();
+    private final Set<Runnable> callbacks = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    public void attach(Statement statement) throws SQLException {
+        statements.add(statement);
+        if (cancelled) {
+            statement.cancel();
+        }
+    }
+
+    public void detach(Statement statement) {
+        statements.remove(statement);
+    }
+
+    /**
+     * New handle cancelled together with this one (but not the other way round)
+     */
+    public QueryCancellation newChild() {
+        QueryCancellation child = new QueryCancellation();
+        children.add(child);
+        if (cancelled) {
+            child.cancel();
+        }
+        return child;
+    }
+
+    /**
+     * Run the callback on cancellation (immediately if already cancelled)
+     */
+    public void onCancel(Runnable callback) {
+        callbacks.add(callback);
+        if (cancelled && callbacks.remove(callback)) {
+            callback.run();
+        }
+    }
+
+    public void removeOnCancel(Runnable callback) {
+        callbacks.remove(callback);
+    }
+
+    public void cancel() {
+        cancelled = true;
+        children.forEach(QueryCancellation::cancel);
+        for (Runnable callback : callbacks) {
+            if (callbacks.remove(callback)) {
+                callback.run();
+            }
+        }
+        for (Statement statement : statements) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                log.debug("Statement cancel failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
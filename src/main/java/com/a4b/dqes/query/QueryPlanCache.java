@@ -0,0 +1,149 @@
+package com.a4b.dqes.query;
+
+import com.a4b.dqes.config.QueryEngineProperties;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded, tenant-scoped cache of compiled query plans
+ *
+ * Keyed by the request shape without values: root, selects, filter fields and
+ * operators (plus whether a list value is empty), sorts, nested collection limits and sorts
+ * and paging presence. A hit skips AST building, alias
+ * resolution, join planning and SQL generation; only parameter binding remains.
+ * Invalidated on metadata refresh.
+ */
+@Slf4j
+@Component
+public class QueryPlanCache {
+
+    public enum Variant {
+        EXECUTE,
+        STREAM,
+        COUNT,
+        RAW_PAGE,       // Page as one json_agg text value
+        RAW_STREAM      // One to_jsonb text value per row
+    }
+
+    private final boolean enabled;
+    private final Cache<PlanKey, CompiledQuery> cache;
+
+    public QueryPlanCache(QueryEngineProperties properties) {
+        QueryEngineProperties.PlanCache config = properties.getPlanCache();
+        this.enabled = config.isEnabled();
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(config.getMaxSize())
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Return the cached plan for this request shape, compiling it on a miss.
+     * Compilation errors propagate unchanged and are not cached.
+     */
+    public CompiledQuery get(QueryRequest request, Variant variant, boolean windowCount,
+                             Supplier<CompiledQuery> compiler) {
+        if (!enabled) {
+            return compiler.get();
+        }
+
+        PlanKey key = PlanKey.of(request, variant, windowCount);
+        CompiledQuery compiled = cache.getIfPresent(key);
+        if (compiled == null) {
+            compiled = compiler.get();
+            cache.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Drop all plans of a tenant/app (metadata changed)
+     */
+    public void invalidate(String tenantCode, String appCode) {
+        cache.asMap().keySet().removeIf(k ->
+            Objects.equals(k.tenantCode(), tenantCode) && Objects.equals(k.appCode(), appCode));
+        log.info("Invalidated query plan cache: tenant={}, app={}", tenantCode, appCode);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Canonical request fingerprint (no literal values)
+     */
+    record PlanKey(String tenantCode, String appCode, Integer dbconnId, List<Object> shape) {
+
+        static PlanKey of(QueryRequest request, Variant variant, boolean windowCount) {
+            List<Object> shape = new ArrayList<>();
+            shape.add(variant);
+            shape.add(request.getRootObjectCode());
+            shape.add(request.getRootObject());
+            shape.add(request.getSelectFields() != null ? List.copyOf(request.getSelectFields()) : null);
+
+            if (request.getFilters() != null) {
+                for (QueryRequest.Filter f : request.getFilters()) {
+                    // Empty lists fold to constants in the plan
+                    boolean emptyList = f.getValue() instanceof Collection<?> values && values.isEmpty();
+                    shape.add(List.of("F", String.valueOf(f.getObjectCode()), String.valueOf(f.getFieldCode()),
+                        String.valueOf(f.getField()), String.valueOf(f.getOperatorCode()), emptyList));
+                }
+            }
+            if (request.getSorts() != null) {
+                for (QueryRequest.Sort s : request.getSorts()) {
+                    shape.add(List.of("S", String.valueOf(s.getObjectCode()), String.valueOf(s.getFieldCode()),
+                        String.valueOf(s.getField()), String.valueOf(s.getDirection())));
+                }
+            }
+
+            shape.add(request.getGroupBy() != null ? List.copyOf(request.getGroupBy()) : null);
+            if (request.getAggregates() != null) {
+                for (QueryRequest.Aggregate a : request.getAggregates()) {
+                    shape.add(List.of("A", String.valueOf(a.getFunction()), String.valueOf(a.getObjectCode()),
+                        String.valueOf(a.getFieldCode()), String.valueOf(a.getField()), String.valueOf(a.getAlias())));
+                }
+            }
+            if (request.getHaving() != null) {
+                for (QueryRequest.Having h : request.getHaving()) {
+                    shape.add(List.of("H", String.valueOf(h.getAggregate()), String.valueOf(h.getOperatorCode())));
+                }
+            }
+            if (request.getCollections() != null) {
+                for (QueryRequest.NestedCollection c : request.getCollections()) {
+                    // The element limit is rendered into the LATERAL subquery
+                    List<Object> collection = new ArrayList<>(List.of("C", String.valueOf(c.getObjectCode()),
+                        String.valueOf(c.getObject()), String.valueOf(c.getLimit())));
+                    if (c.getSorts() != null) {
+                        for (QueryRequest.Sort s : c.getSorts()) {
+                            collection.add(List.of(String.valueOf(s.getObjectCode()), String.valueOf(s.getFieldCode()),
+                                String.valueOf(s.getField()), String.valueOf(s.getDirection())));
+                        }
+                    }
+                    shape.add(collection);
+                }
+            }
+
+            shape.add(request.getLimit() != null);
+            shape.add(request.getOffset() != null);
+            shape.add(request.getPaginationMode());
+            shape.add(request.getCursor() != null && !request.getCursor().isBlank());
+            shape.add(Boolean.TRUE.equals(request.getIncludeTotal()));
+            shape.add(windowCount);
+
+            return new PlanKey(request.getTenantCode(), request.getAppCode(), request.getDbconnId(),
+                Collections.unmodifiableList(shape));
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.With;
 
 /**
  * Request DTO for dynamic query execution
@@ -23,9 +24,43 @@ public class QueryRequest {
     private List<Filter> filters;
     private List<Sort> sorts;
     
-    private Integer limit;
+    private List<String> groupBy;           // Group fields, same format as selectFields (returned as columns)
+    private List<Aggregate> aggregates;     // COUNT/SUM/... per group; selectFields must then be empty
+    private List<Having> having;            // Conditions on aggregate aliases
+    
+    private List<NestedCollection> collections; // Selected ONE_TO_MANY objects returned as nested arrays (opt-in)
+    
+    @With
+    private Integer limit;              // Cost guard LIMIT runs a copy (withLimit), not the caller's request
     private Integer offset;
     
+    private PaginationMode paginationMode;  // OFFSET (default) or KEYSET
+    private String cursor;                  // Keyset: opaque token from previous QueryResult.nextCursor
+    
+    private Boolean includeTotal;           // Return total row count with the page (single round trip)
+    private CountMode countMode;            // EXACT (default), ESTIMATE or AUTO; totals and /count
+    
+    private Integer timeoutSec;             // Statement timeout (capped by dqes.query.timeout.max-sec)
+    
+    private ResultFormat format;            // ROWS (default) or COLUMNAR
+    private Boolean rawJson;                // Rows built as JSON by the database and passed through unparsed
+    
+    public enum PaginationMode {
+        OFFSET,     // LIMIT/OFFSET
+        KEYSET      // Seek on sort keys + primary key tiebreaker
+    }
+    
+    public enum CountMode {
+        EXACT,      // COUNT(*) over the query
+        ESTIMATE,   // Planner row estimate (pg_class.reltuples for an unfiltered root)
+        AUTO        // Exact when the estimate is small, else (or on timeout) the estimate
+    }
+    
+    public enum ResultFormat {
+        ROWS,       // One JSON object per row
+        COLUMNAR    // Column arrays, low-cardinality strings dictionary-encoded
+    }
+    
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -72,4 +107,34 @@ public class QueryRequest {
             this.fieldCode = fieldCode;
         }
     }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Aggregate {
+        private String function;          // COUNT, COUNT_DISTINCT, SUM, AVG, MIN, MAX
+        private String objectCode;        // Direct codes (omit the field for COUNT(*))
+        private String fieldCode;
+        private String field;             // Or alias-based format: "emp.salary"
+        private String alias;             // Result column name (required)
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class NestedCollection {
+        private String objectCode;        // Direct code (e.g., "ORDER_LINE")
+        private String object;            // Or object alias (e.g., "line")
+        private Integer limit;            // Elements per parent row (default dqes.query.nested-collection.default-limit)
+        private List<Sort> sorts;         // Element order, fields of this object (default: primary key)
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Having {
+        private String aggregate;         // Aggregate alias
+        private String operatorCode;      // EQ, NE, GT, GE, LT, LE, BETWEEN
+        private Object value;             // Single value, or array of 2 for BETWEEN
+    }
 }
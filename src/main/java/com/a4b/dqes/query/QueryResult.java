@@ -2,6 +2,7 @@ package com.a4b.dqes.query;
 
 import java.util.List;
 import java.util.Map;
+import com.fasterxml.jackson.annotation.JsonRawValue;
 import lombok.Data;
 
 /**
@@ -10,7 +11,14 @@ import lombok.Data;
 @Data
 public class QueryResult {
     private List<Map<String, Object>> rows;
+    private ColumnarRows columnar;      // format=COLUMNAR: the rows as columns (rows is then null)
+    @JsonRawValue
+    private String rowsJson;            // rawJson=true: the rows as a JSON array built by the database (rows is then null)
     private int rowCount;
+    private Long totalCount;            // Total matching rows (when includeTotal is requested)
+    private Boolean totalEstimated;     // totalCount is a planner estimate (countMode ESTIMATE/AUTO)
+    private String nextCursor;          // Keyset pagination: cursor for the next page (null on last page)
+    private Integer forcedLimit;        // Cost guard ran the query with this row limit instead of the requested one
     // private String generatedSql;
     // private Map<String, String> aliasMap;
 }
@@ -0,0 +1,137 @@
+package com.a4b.dqes.query;
+
+import com.a4b.core.server.json.JSON;
+import com.a4b.dqes.config.QueryEngineProperties;
+import com.a4b.dqes.constant.CacheNames;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.query.Predicate;
+import com.hazelcast.query.Predicates;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Distributed result cache for dynamic queries (Hazelcast map {@link CacheNames#QUERY_RESULT})
+ *
+ * Opt-in per object: a query is cached only when every object it reads has
+ * {@code result_cache_ttl_sec} set; the shortest TTL applies. Keys combine the
+ * generated SQL, a hash of the bound values, tenant and dbconnId. Entries can be
+ * evicted by object code (manually or via {@link ObjectDataChangedEvent}).
+ * Spilled results and results over {@code max-entry-rows} / {@code max-entry-bytes}
+ * are not cached, so one large result cannot flush the map.
+ *
+ * Cache failures never fail a query: they are logged and the query hits the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueryResultCache {
+
+    private final HazelcastInstance hazelcastInstance;
+    private final QueryEngineProperties properties;
+
+    public boolean isCacheable(CompiledQuery compiled) {
+        return properties.getResultCache().isEnabled() && compiled.getResultCacheTtlSec() != null;
+    }
+
+    /**
+     * Cache key: tenant/app/dbconnId prefix + SHA-256 of SQL text, count mode and bound values
+     * (also the executor's coalescing key for identical in-flight queries).
+     * Values are hashed as the request sent them, not as bound parameters: typed arrays
+     * ({@code SqlArrayValue}) do not serialize their elements.
+     */
+    public String key(QueryRequest request, CompiledQuery compiled) {
+        try {
+            Hasher hasher = Hashing.sha256().newHasher()
+                .putString(compiled.getDataSql().getSql(), StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(compiled.getCountSql() != null ? compiled.getCountSql().getSql() : "", StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(String.valueOf(request.getCountMode()), StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putBytes(JSON.getObjectMapper().writeValueAsBytes(compiled.boundValues(request)));
+            return request.getTenantCode() + ":" + request.getAppCode() + ":" + request.getDbconnId()
+                + ":" + hasher.hash();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to build result cache key", e);
+        }
+    }
+
+    public QueryResult get(String key) {
+        try {
+            CachedQueryResult entry = map().get(key);
+            return entry != null ? JSON.getObjectMapper().readValue(entry.getPayload(), QueryResult.class) : null;
+        } catch (Exception e) {
+            log.warn("Result cache read failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public void put(String key, QueryRequest request, CompiledQuery compiled, QueryResult result) {
+        QueryEngineProperties.ResultCache config = properties.getResultCache();
+        if ((result.getRows() instanceof SpillableRowList spilled && spilled.isSpilled())
+                || result.getRowCount() > config.getMaxEntryRows()) {
+            log.debug("Result not cached: {} rows", result.getRowCount());
+            return;
+        }
+        try {
+            byte[] payload = JSON.getObjectMapper().writeValueAsBytes(result);
+            if (payload.length > config.getMaxEntryBytes()) {
+                log.debug("Result not cached: {} bytes", payload.length);
+                return;
+            }
+            CachedQueryResult entry = new CachedQueryResult(
+                request.getTenantCode(),
+                request.getAppCode(),
+                compiled.getObjectCodes().toArray(String[]::new),
+                payload
+            );
+            map().set(key, entry, compiled.getResultCacheTtlSec(), TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("Result cache write failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Evict every cached result that reads the given object
+     */
+    public void evict(String tenantCode, String appCode, String objectCode) {
+        Predicate<String, CachedQueryResult> predicate = Predicates.and(
+            Predicates.equal("tenantCode", tenantCode),
+            Predicates.equal("appCode", appCode),
+            Predicates.equal("objectCodes[any]", objectCode)
+        );
+        map().removeAll(predicate);
+        log.info("Evicted query results: tenant={}, app={}, object={}", tenantCode, appCode, objectCode);
+    }
+
+    /**
+     * Evict every cached result of a tenant/app
+     */
+    public void evictAll(String tenantCode, String appCode) {
+        Predicate<String, CachedQueryResult> predicate = Predicates.and(
+            Predicates.equal("tenantCode", tenantCode),
+            Predicates.equal("appCode", appCode)
+        );
+        map().removeAll(predicate);
+        log.info("Evicted query results: tenant={}, app={}", tenantCode, appCode);
+    }
+
+    @EventListener
+    public void onObjectDataChanged(ObjectDataChangedEvent event) {
+        evict(event.tenantCode(), event.appCode(), event.objectCode());
+    }
+
+    private IMap<String, CachedQueryResult> map() {
+        return hazelcastInstance.getMap(CacheNames.QUERY_RESULT);
+    }
+}
@@ -0,0 +1,65 @@
+package com.a4b.dqes.query;
+
+import com.a4b.core.server.json.JSON;
+import com.a4b.dqes.exception.DqesRuntimeException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+
+import lombok.EqualsAndHashCode;
+
+/**
+ * JSON text of a jsonb cell, written verbatim by Jackson
+ *
+ * Result values from jsonb columns (joined objects are built with jsonb_build_object)
+ * are kept as text instead of being parsed into maps and serialized again. Only jsonb
+ * text is safe to embed: PostgreSQL prints it normalized on one line, while json keeps
+ * the stored text (newlines would split NDJSON and spooled result lines).
+ * {@link #parsed()} parses on demand for server-side code that inspects the value.
+ */
+@EqualsAndHashCode(of = "json")
+@JsonSerialize(using = RawJson.Serializer.class)
+public final class RawJson {
+
+    private final String json;
+    private volatile Object parsed;
+
+    public RawJson(String json) {
+        this.json = json;
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * The value as Map / List / scalar (parsed once)
+     */
+    public Object parsed() {
+        Object value = parsed;
+        if (value == null) {
+            try {
+                value = JSON.getObjectMapper().readValue(json, Object.class);
+            } catch (IOException e) {
+                throw new DqesRuntimeException("Failed to read json column value", e);
+            }
+            parsed = value;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+
+    public static class Serializer extends JsonSerializer<RawJson> {
+        @Override
+        public void serialize(RawJson value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeRawValue(value.json);
+        }
+    }
+}
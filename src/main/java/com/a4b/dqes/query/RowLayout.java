@@ -0,0 +1,140 @@
+package com.a4b.dqes.query;
+
+import com.a4b.core.server.json.JSON;
+import com.a4b.dqes.exception.DqesRuntimeException;
+import com.a4b.dqes.query.generator.SqlGenerator;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * Column layout of a compiled query's result set
+ *
+ * Resolved once from {@link ResultSetMetaData}: visible column labels, a reader per
+ * column chosen by its database type (jsonb kept as {@link RawJson}, json parsed, ltree as text,
+ * timestamps read directly) and the positions of the hidden engine columns. Rows are read into
+ * plain value arrays and exposed as {@link ArrayRow}s sharing the label array.
+ */
+@Getter
+final class RowLayout {
+
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet rs, int column) throws SQLException;
+    }
+
+    private static final ColumnReader JSONB_READER = (rs, column) -> {
+        String json = rs.getString(column);
+        return json != null ? new RawJson(json) : null;
+    };
+    // json keeps the input text verbatim (newlines, spacing): parsed so NDJSON lines stay single-line
+    private static final ColumnReader JSON_READER = (rs, column) -> readJson(rs.getString(column));
+    private static final ColumnReader TEXT_READER = ResultSet::getString;
+    private static final ColumnReader TIMESTAMP_READER = ResultSet::getTimestamp;
+    private static final ColumnReader DATE_READER = ResultSet::getDate;
+    private static final ColumnReader DEFAULT_READER = JdbcUtils::getResultSetValue;
+
+    private final int columnCount;          // Total result set columns, visible and hidden
+    private final String[] columns;         // Visible column labels
+    private final int totalColumn;          // Window total column; -1 if absent
+    private final int[] keyColumns;         // Keyset sort-key columns, by key index
+    private final int[] sourceColumns;      // Result set position of each visible column
+
+    @Getter(AccessLevel.NONE)
+    private final ColumnReader[] readers;
+
+    private RowLayout(int columnCount, String[] columns, int[] sourceColumns, ColumnReader[] readers,
+                      int totalColumn, int[] keyColumns) {
+        this.columnCount = columnCount;
+        this.columns = columns;
+        this.sourceColumns = sourceColumns;
+        this.readers = readers;
+        this.totalColumn = totalColumn;
+        this.keyColumns = keyColumns;
+    }
+
+    static RowLayout of(ResultSetMetaData rsmd, int keysetKeyCount) throws SQLException {
+        int columnCount = rsmd.getColumnCount();
+        int totalColumn = -1;
+        int[] keyColumns = new int[keysetKeyCount];
+        List<String> names = new ArrayList<>(columnCount);
+        int[] sourceColumns = new int[columnCount];
+        ColumnReader[] readers = new ColumnReader[columnCount];
+
+        for (int i = 1; i <= columnCount; i++) {
+            String column = JdbcUtils.lookupColumnName(rsmd, i);
+            if (column.equals(SqlGenerator.TOTAL_COUNT_COLUMN)) {
+                totalColumn = i;
+            } else if (column.startsWith(SqlGenerator.KEYSET_COLUMN_PREFIX)) {
+                keyColumns[Integer.parseInt(column.substring(SqlGenerator.KEYSET_COLUMN_PREFIX.length()))] = i;
+            } else if (!column.startsWith(SqlGenerator.HIDDEN_COLUMN_PREFIX)) {
+                sourceColumns[names.size()] = i;
+                readers[names.size()] = readerFor(rsmd.getColumnTypeName(i));
+                names.add(column);
+            }
+        }
+
+        return new RowLayout(columnCount, names.toArray(String[]::new),
+            Arrays.copyOf(sourceColumns, names.size()), Arrays.copyOf(readers, names.size()),
+            totalColumn, keyColumns);
+    }
+
+    /**
+     * Whether this layout still describes the given result set
+     */
+    boolean matches(ResultSetMetaData rsmd) throws SQLException {
+        return rsmd.getColumnCount() == columnCount;
+    }
+
+    /**
+     * Read the visible values of the current row
+     */
+    Object[] read(ResultSet rs) throws SQLException {
+        Object[] values = new Object[readers.length];
+        for (int i = 0; i < readers.length; i++) {
+            values[i] = readers[i].read(rs, sourceColumns[i]);
+        }
+        return values;
+    }
+
+    private static ColumnReader readerFor(String typeName) {
+        if (typeName == null) {
+            return DEFAULT_READER;
+        }
+        return switch (typeName) {
+            case "jsonb" -> JSONB_READER;
+            case "json" -> JSON_READER;
+            case "ltree" -> TEXT_READER;
+            case "timestamp", "timestamptz" -> TIMESTAMP_READER;
+            case "date" -> DATE_READER;
+            default -> DEFAULT_READER;
+        };
+    }
+
+    private static Object readJson(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            json = json.trim();
+            if (json.startsWith("[")) {
+                return JSON.getObjectMapper().readValue(json, List.class);
+            } else if (json.startsWith("{")) {
+                return JSON.getObjectMapper().readValue(json, Map.class);
+            }
+            return json;
+        } catch (Exception e) {
+            throw new DqesRuntimeException("Failed to read json column value", e);
+        }
+    }
+}
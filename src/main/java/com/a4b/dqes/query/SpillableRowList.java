@@ -0,0 +1,408 @@
+package com.a4b.dqes.query;
+
+import com.a4b.core.server.json.JSON;
+import com.a4b.dqes.exception.DqesRuntimeException;
+import com.a4b.dqes.exception.QueryRejectedException;
+import com.google.common.io.CountingOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.math.BigDecimal;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Result row list that spills to disk once it grows past a row or (estimated) byte threshold
+ *
+ * Below the threshold rows are {@link ArrayRow}s on the heap. Past it, rows are appended
+ * in a compact binary encoding (type tag + value per column) to a temp file which is
+ * memory-mapped read-only ({@link FileChannel#map} into a {@link MemorySegment}) after
+ * {@link #seal()}. Rows are then decoded one at a time while the result is serialized,
+ * so a large result no longer lives on the heap as maps.
+ *
+ * The temp file is deleted right after mapping; the mapping is released by GC
+ * ({@link Arena#ofAuto()}) once the list is no longer referenced. A spill file growing
+ * past maxSpillBytes aborts the query ({@link QueryRejectedException}, RESULT_SIZE).
+ */
+@Slf4j
+public class SpillableRowList extends AbstractList<Map<String, Object>> {
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    // Value type tags
+    private static final byte T_NULL = 0;
+    private static final byte T_STRING = 1;
+    private static final byte T_INT = 2;
+    private static final byte T_LONG = 3;
+    private static final byte T_DOUBLE = 4;
+    private static final byte T_BOOLEAN = 5;
+    private static final byte T_DECIMAL = 6;
+    private static final byte T_TIMESTAMP = 7;
+    private static final byte T_DATE = 8;
+    private static final byte T_UUID = 9;
+    private static final byte T_JSON = 10;      // Any other value, as its JSON form
+    private static final byte T_RAW_JSON = 11;  // RawJson cell text
+
+    private final String[] columns;
+    private final int rowThreshold;
+    private final long byteThreshold;
+    private final long maxSpillBytes;       // 0 = unlimited
+    private final String spillDir;
+
+    // Heap mode
+    private final List<ArrayRow> heapRows = new ArrayList<>();
+    private long estimatedBytes;
+
+    // Spill mode
+    private Path spillFile;
+    private CountingOutputStream counter;
+    private DataOutputStream out;
+    private long[] rowOffsets;
+    private int size;
+    private MemorySegment segment;
+
+    public SpillableRowList(String[] columns, int rowThreshold, long byteThreshold, long maxSpillBytes, 
+                            String spillDir) {
+        this.columns = columns;
+        this.rowThreshold = rowThreshold;
+        this.byteThreshold = byteThreshold;
+        this.maxSpillBytes = maxSpillBytes;
+        this.spillDir = spillDir;
+    }
+
+    /**
+     * Append a row (values in column order)
+     */
+    public void addRow(Object[] values) {
+        if (segment != null) {
+            throw new IllegalStateException("Row list is sealed");
+        }
+        try {
+            if (out == null) {
+                heapRows.add(new ArrayRow(columns, values));
+                estimatedBytes += estimateSize(values);
+                size++;
+                if (size > rowThreshold || estimatedBytes > byteThreshold) {
+                    spill();
+                }
+            } else {
+                writeRow(values);
+                size++;
+            }
+            if (out != null && maxSpillBytes > 0 && counter.getCount() > maxSpillBytes) {
+                discard();
+                throw new QueryRejectedException(QueryRejectedException.Reason.RESULT_SIZE, String.format(
+                    "Query result too large: spilled %d rows over the %d byte limit; "
+                        + "use a smaller limit, /stream or a query job", size, maxSpillBytes));
+            }
+        } catch (IOException e) {
+            discard();
+            throw new DqesRuntimeException("Failed to spill query result to disk", e);
+        }
+    }
+
+    /**
+     * Finish writing; maps the spill file for reading (no-op when the rows stayed on heap)
+     */
+    public SpillableRowList seal() {
+        if (out == null || segment != null) {
+            return this;
+        }
+        try {
+            out.close();
+            long written = counter.getCount();
+            try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, written, Arena.ofAuto());
+            }
+            log.debug("Sealed spilled result: {} rows, {} bytes", size, segment.byteSize());
+        } catch (IOException e) {
+            throw new DqesRuntimeException("Failed to map spilled query result", e);
+        } finally {
+            deleteSpillFile();
+        }
+        return this;
+    }
+
+    public String[] getColumns() {
+        return columns;
+    }
+
+    public boolean isSpilled() {
+        return out != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (out == null) {
+            return heapRows.get(index);
+        }
+        requireSealed();
+        return readRow(new long[] { rowOffsets[index] });
+    }
+
+    @Override
+    public Iterator<Map<String, Object>> iterator() {
+        if (out == null) {
+            return Collections.<Map<String, Object>>unmodifiableList(heapRows).iterator();
+        }
+        requireSealed();
+        // Sequential decode: no offset lookups
+        return new Iterator<>() {
+            private final long[] position = { 0 };
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                next++;
+                return readRow(position);
+            }
+        };
+    }
+
+    private void spill() throws IOException {
+        Path dir = Paths.get(spillDir);
+        Files.createDirectories(dir);
+        spillFile = Files.createTempFile(dir, "dqes-result-", ".bin");
+        counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile), 64 * 1024));
+        out = new DataOutputStream(counter);
+        rowOffsets = new long[Math.max(1024, size * 2)];
+
+        int spilled = size;
+        size = 0;
+        for (ArrayRow row : heapRows) {
+            writeRow(row.rowValues());
+            size++;
+        }
+        heapRows.clear();
+        log.info("Query result passed spill threshold: {} rows moved to {}", spilled, spillFile);
+    }
+
+    private void writeRow(Object[] values) throws IOException {
+        if (size == rowOffsets.length) {
+            rowOffsets = Arrays.copyOf(rowOffsets, size * 2);
+        }
+        rowOffsets[size] = counter.getCount();
+        for (Object value : values) {
+            writeValue(value);
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        switch (value) {
+            case null -> out.writeByte(T_NULL);
+            case String s -> {
+                out.writeByte(T_STRING);
+                writeBytes(s.getBytes(StandardCharsets.UTF_8));
+            }
+            case Integer i -> {
+                out.writeByte(T_INT);
+                out.writeInt(i);
+            }
+            case Short s -> {
+                out.writeByte(T_INT);
+                out.writeInt(s);
+            }
+            case Long l -> {
+                out.writeByte(T_LONG);
+                out.writeLong(l);
+            }
+            case Double d -> {
+                out.writeByte(T_DOUBLE);
+                out.writeDouble(d);
+            }
+            case Float f -> {
+                out.writeByte(T_DOUBLE);
+                out.writeDouble(f);
+            }
+            case Boolean b -> {
+                out.writeByte(T_BOOLEAN);
+                out.writeBoolean(b);
+            }
+            case BigDecimal d -> {
+                out.writeByte(T_DECIMAL);
+                writeBytes(d.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            case Timestamp t -> {
+                out.writeByte(T_TIMESTAMP);
+                out.writeLong(t.getTime());
+                out.writeInt(t.getNanos());
+            }
+            case java.sql.Date d -> {
+                out.writeByte(T_DATE);
+                out.writeLong(d.toLocalDate().toEpochDay());
+            }
+            case UUID u -> {
+                out.writeByte(T_UUID);
+                out.writeLong(u.getMostSignificantBits());
+                out.writeLong(u.getLeastSignificantBits());
+            }
+            case RawJson j -> {
+                out.writeByte(T_RAW_JSON);
+                writeBytes(j.getJson().getBytes(StandardCharsets.UTF_8));
+            }
+            default -> {
+                out.writeByte(T_JSON);
+                writeBytes(JSON.getObjectMapper().writeValueAsBytes(value));
+            }
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Decode one row at position[0] and advance it
+     */
+    private Map<String, Object> readRow(long[] position) {
+        Object[] values = new Object[columns.length];
+        long pos = position[0];
+        for (int i = 0; i < columns.length; i++) {
+            byte tag = segment.get(ValueLayout.JAVA_BYTE, pos++);
+            Object value;
+            switch (tag) {
+                case T_NULL -> value = null;
+                case T_STRING, T_DECIMAL, T_JSON, T_RAW_JSON -> {
+                    int length = segment.get(INT, pos);
+                    pos += 4;
+                    byte[] bytes = segment.asSlice(pos, length).toArray(ValueLayout.JAVA_BYTE);
+                    pos += length;
+                    value = decodeBytes(tag, bytes);
+                }
+                case T_INT -> {
+                    value = segment.get(INT, pos);
+                    pos += 4;
+                }
+                case T_LONG -> {
+                    value = segment.get(LONG, pos);
+                    pos += 8;
+                }
+                case T_DOUBLE -> {
+                    value = segment.get(DOUBLE, pos);
+                    pos += 8;
+                }
+                case T_BOOLEAN -> value = segment.get(ValueLayout.JAVA_BYTE, pos++) != 0;
+                case T_TIMESTAMP -> {
+                    Timestamp ts = new Timestamp(segment.get(LONG, pos));
+                    ts.setNanos(segment.get(INT, pos + 8));
+                    value = ts;
+                    pos += 12;
+                }
+                case T_DATE -> {
+                    value = java.sql.Date.valueOf(LocalDate.ofEpochDay(segment.get(LONG, pos)));
+                    pos += 8;
+                }
+                case T_UUID -> {
+                    value = new UUID(segment.get(LONG, pos), segment.get(LONG, pos + 8));
+                    pos += 16;
+                }
+                default -> throw new IllegalStateException("Corrupt spilled row, tag " + tag);
+            }
+            values[i] = value;
+        }
+        position[0] = pos;
+        return new ArrayRow(columns, values);
+    }
+
+    private Object decodeBytes(byte tag, byte[] bytes) {
+        return switch (tag) {
+            case T_STRING -> new String(bytes, StandardCharsets.UTF_8);
+            case T_DECIMAL -> new BigDecimal(new String(bytes, StandardCharsets.UTF_8));
+            case T_RAW_JSON -> new RawJson(new String(bytes, StandardCharsets.UTF_8));
+            default -> {
+                try {
+                    yield JSON.getObjectMapper().readValue(bytes, Object.class);
+                } catch (IOException e) {
+                    throw new DqesRuntimeException("Failed to decode spilled value", e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Rough heap footprint of a row: array slots plus value payload
+     */
+    private long estimateSize(Object[] values) {
+        long bytes = 48 + 8L * values.length;
+        for (Object value : values) {
+            bytes += switch (value) {
+                case String s -> 40 + 2L * s.length();
+                case RawJson j -> 56 + 2L * j.getJson().length();
+                case null, default -> 24;
+            };
+        }
+        return bytes;
+    }
+
+    private void requireSealed() {
+        if (segment == null) {
+            throw new IllegalStateException("Spilled row list must be sealed before reading");
+        }
+    }
+
+    /**
+     * Drop a partially written list (e.g. the query failed mid-read)
+     */
+    void discard() {
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } catch (IOException e) {
+            log.debug("Failed to close spill file: {}", e.getMessage());
+        }
+        deleteSpillFile();
+    }
+
+    private void deleteSpillFile() {
+        if (spillFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(spillFile);
+        } catch (IOException e) {
+            log.warn("Failed to delete spill file {}: {}", spillFile, e.getMessage());
+        }
+    }
+}
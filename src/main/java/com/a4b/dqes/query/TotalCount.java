@@ -0,0 +1,16 @@
+package com.a4b.dqes.query;
+
+/**
+ * Row count of a query; {@code estimated} when it is a planner / statistics
+ * estimate rather than COUNT(*) (countMode ESTIMATE or AUTO)
+ */
+public record TotalCount(long count, boolean estimated) {
+
+    public static TotalCount exact(long count) {
+        return new TotalCount(count, false);
+    }
+
+    public static TotalCount estimate(long count) {
+        return new TotalCount(count, true);
+    }
+}
@@ -0,0 +1,32 @@
+package com.a4b.dqes.query.ast;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Represents an aggregate in SELECT clause (grouped queries)
+ * Maps to: FUNC(field) AS alias, or COUNT(*) when no field is given
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AggregateNode {
+    private AggregateFunction function;
+    private String objectCode;      // Null for COUNT(*)
+    private String fieldCode;
+    private String alias;           // Result column name (also referenced by HAVING / ORDER BY)
+    
+    public boolean isCountAll() {
+        return fieldCode == null;
+    }
+    
+    public enum AggregateFunction {
+        COUNT,
+        COUNT_DISTINCT,
+        SUM,
+        AVG,
+        MIN,
+        MAX
+    }
+}
@@ -0,0 +1,20 @@
+package com.a4b.dqes.query.ast;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Selected ONE_TO_MANY object returned as one JSON array per parent row
+ * Rendered as LEFT JOIN LATERAL (SELECT jsonb_agg(...) ... LIMIT n)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CollectionNode {
+    private String objectCode;                          // Child object (selected fields become array elements)
+    private Integer limit;                              // Max elements per parent row (resolved by JoinPathPlanner)
+    private List<SortNode> sorts = new ArrayList<>();   // Element order; primary key when empty
+}
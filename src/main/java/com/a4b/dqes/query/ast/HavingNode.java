@@ -0,0 +1,18 @@
+package com.a4b.dqes.query.ast;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Represents a HAVING predicate on an aggregate (AND-combined)
+ * Supports: aggregate OP value(s)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HavingNode {
+    private String aggregateAlias;  // AggregateNode.alias
+    private String operatorCode;    // EQ, NE, GT, GE, LT, LE, BETWEEN
+    private Object value;           // Single value, or List of 2 for BETWEEN
+}
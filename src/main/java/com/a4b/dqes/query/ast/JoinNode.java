@@ -18,14 +18,12 @@ public class JoinNode {
     private String fromObjectCode;      // Left side of join
     private String toObjectCode;        // Right side of join
     private JoinType joinType;          // INNER/LEFT
-    private JoinStrategy strategy;      // JOIN/EXISTS
+    private JoinStrategy strategy;      // JOIN/EXISTS/LATERAL
+    private boolean toOne;              // At most one target row per source row (MANY_TO_ONE / ONE_TO_ONE)
     
     // Join predicates from qrytb_relation_join_key
     private List<JoinPredicate> predicates = new ArrayList<>();
     
-    // Runtime alias allocation (set by SQL generator)
-    private String fromAlias;
-    private String toAlias;
     private Integer totalWeight;
     
     // Dependency order (for topological sort)
@@ -51,7 +49,8 @@ public class JoinNode {
     public enum JoinStrategy {
         JOIN,           // Standard JOIN
         EXISTS,         // EXISTS subquery (for ONE_TO_MANY filters)
-        EXISTS_ONLY     // Force EXISTS regardless of usage
+        EXISTS_ONLY,    // Force EXISTS regardless of usage
+        LATERAL         // LEFT JOIN LATERAL jsonb_agg array (selected ONE_TO_MANY object)
     }
     
     @Data
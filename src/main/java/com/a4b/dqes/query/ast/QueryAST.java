@@ -7,6 +7,7 @@ import lombok.Data;
 /**
  * Root AST node representing a complete query
  * Maps to: SELECT {selects} FROM {root} {joins} WHERE {filters} ORDER BY {sorts}
+ * Grouped: SELECT {groupBy}, {aggregates} ... GROUP BY {groupBy} HAVING {having}
  */
 @Data
 public class QueryAST {
@@ -26,6 +27,16 @@ public class QueryAST {
     // ORDER BY clause nodes
     private List<SortNode> sorts = new ArrayList<>();
     
+    // GROUP BY fields (returned as flat columns) and aggregate selects
+    private List<SelectNode> groupBy = new ArrayList<>();
+    private List<AggregateNode> aggregates = new ArrayList<>();
+    
+    // HAVING clause nodes (AND-combined)
+    private List<HavingNode> having = new ArrayList<>();
+    
+    // Selected ONE_TO_MANY objects returned as nested arrays (limits resolved by JoinPathPlanner)
+    private List<CollectionNode> collections = new ArrayList<>();
+    
     // JOIN graph (computed by JoinPathPlanner)
     private List<JoinNode> joins = new ArrayList<>();
     
@@ -33,6 +44,16 @@ public class QueryAST {
     private Integer limit;
     private Integer offset;
     
+    // Keyset (seek) pagination: last row's sort-key values as PostgreSQL text (null for first page)
+    private boolean keysetPagination;
+    private List<String> keysetValues;
+    
+    // Append COUNT(*) OVER() so the total is returned with the page
+    private boolean windowCount;
+    
+    // Page root keys first, then join selected objects for that page only (when the shape allows)
+    private boolean deferredJoin;
+    
     public void addSelect(SelectNode node) {
         this.selects.add(node);
     }
@@ -48,4 +69,41 @@ public class QueryAST {
     public void addJoin(JoinNode node) {
         this.joins.add(node);
     }
+    
+    public void addGroupBy(SelectNode node) {
+        this.groupBy.add(node);
+    }
+    
+    public void addAggregate(AggregateNode node) {
+        this.aggregates.add(node);
+    }
+    
+    public void addHaving(HavingNode node) {
+        this.having.add(node);
+    }
+    
+    public void addCollection(CollectionNode node) {
+        this.collections.add(node);
+    }
+    
+    /**
+     * Grouped query: one row per group (or a single row of aggregates)
+     */
+    public boolean isAggregate() {
+        return !groupBy.isEmpty() || !aggregates.isEmpty();
+    }
+    
+    public AggregateNode findAggregate(String alias) {
+        return aggregates.stream()
+            .filter(a -> a.getAlias().equals(alias))
+            .findFirst()
+            .orElse(null);
+    }
+    
+    public CollectionNode findCollection(String objectCode) {
+        return collections.stream()
+            .filter(c -> c.getObjectCode().equals(objectCode))
+            .findFirst()
+            .orElse(null);
+    }
 }
@@ -20,12 +20,26 @@ public class SortNode {
     private String exprCode;        // From qrytb_expr_allowlist (optional)
     private Object exprArgs;        // Arguments for template substitution
     
+    // Grouped queries: sort by an aggregate result column (objectCode/fieldCode are then null)
+    private String aggregateAlias;
+    
     public SortNode(String objectCode, String fieldCode, SortDirection direction) {
         this.objectCode = objectCode;
         this.fieldCode = fieldCode;
         this.direction = direction;
     }
     
+    public static SortNode byAggregate(String aggregateAlias, SortDirection direction) {
+        SortNode node = new SortNode();
+        node.setAggregateAlias(aggregateAlias);
+        node.setDirection(direction);
+        return node;
+    }
+    
+    public boolean isAggregateSort() {
+        return aggregateAlias != null;
+    }
+    
     public boolean isExpression() {
         return exprCode != null;
     }
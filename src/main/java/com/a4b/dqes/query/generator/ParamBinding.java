@@ -0,0 +1,54 @@
+package com.a4b.dqes.query.generator;
+
+import java.util.Collection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.jdbc.support.SqlArrayValue;
+
+/**
+ * Records where a generated named parameter takes its value from,
+ * so a compiled statement can be re-bound with new request values
+ * without regenerating the SQL text.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParamBinding {
+    private String name;            // Named parameter (without ':')
+    private Source source;
+    private int index;              // Filter / HAVING position, keyset key position
+    private int element = -1;       // List element (BETWEEN bounds), -1 = whole value
+    private Integer sqlType;        // Explicit java.sql.Types (null = inferred)
+    private String arrayType;       // IN-list element type (pg_cast): bound as one typed SQL array
+
+    public ParamBinding(String name, Source source, int index, int element, Integer sqlType) {
+        this(name, source, index, element, sqlType, null);
+    }
+
+    /**
+     * Parameter value for this binding: list values of array bindings become a typed SQL array
+     * (elements sent in their text form, so any JSON scalar fits the pg_cast type)
+     */
+    public Object parameterValue(Object value) {
+        if (arrayType == null) {
+            return value;
+        }
+        Object[] values = value instanceof Collection<?> c ? c.toArray() 
+            : value instanceof Object[] a ? a 
+            : new Object[] { value };
+        String[] elements = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            elements[i] = values[i] != null ? values[i].toString() : null;
+        }
+        return new SqlArrayValue(arrayType, (Object[]) elements);
+    }
+
+    public enum Source {
+        FILTER,     // QueryAST.filters[index].value
+        KEYSET,     // Decoded cursor value [index]
+        HAVING,     // QueryAST.having[index].value
+        LIMIT,
+        OFFSET
+    }
+}
@@ -2,9 +2,13 @@ package com.a4b.dqes.query.generator;
 
 import com.a4b.dqes.query.ast.*;
 import com.a4b.dqes.query.ast.JoinNode.JoinPredicate;
-import com.a4b.dqes.query.ast.JoinNode.JoinStrategy;
 import com.a4b.dqes.query.ast.SortNode.SortDirection;
 import com.a4b.dqes.query.metadata.*;
+import com.a4b.dqes.query.planner.LogicalPlan;
+import com.a4b.dqes.query.planner.LogicalPlan.CollectionJoin;
+import com.a4b.dqes.query.planner.LogicalPlan.ExistsBlock;
+import com.a4b.dqes.query.planner.LogicalPlan.PlanFilter;
+import java.sql.Types;
 import java.util.*;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -16,41 +20,86 @@ import org.springframework.stereotype.Component;
  * SQL Generator for Dynamic Query Engine
  * Generates safe SQL with named parameters for NamedParameterJdbcTemplate
  * 
+ * Renders an optimized {@link LogicalPlan} in one walk: real JOINs, EXISTS blocks with
+ * their pushed-down filters and the outer WHERE filters come pre-sorted from the plan.
+ * 
  * Key features:
  * - Runtime alias allocation (t0, t1, t2, ...)
- * - Named parameter binding (:param0, :param1, ...)
+ * - Named parameter binding (:param0, :param1, ...); IN lists as one typed array (= ANY)
  * - EXISTS subquery generation for ONE_TO_MANY filter-only
  * - Expression template substitution from qrytb_expr_allowlist
+ * - Keyset (seek) pagination on sort keys
+ * - Deferred-join pagination: page root keys first, build joined objects for the page only
+ * - Nested collections: selected ONE_TO_MANY objects as per-row jsonb arrays (LEFT JOIN LATERAL)
+ * - GROUP BY / aggregates / HAVING, validated against field data types
+ * - Parameter bindings recorded per placeholder so compiled SQL can be re-bound
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class SqlGenerator {
     
+    /** Prefix of all hidden engine columns (stripped from returned rows) */
+    public static final String HIDDEN_COLUMN_PREFIX = "__dqes_";
+    
+    /** Prefix of hidden sort-key columns selected for keyset pagination */
+    public static final String KEYSET_COLUMN_PREFIX = "__dqes_k";
+    
+    /** Hidden COUNT(*) OVER() column holding the total row count */
+    public static final String TOTAL_COUNT_COLUMN = "__dqes_total";
+    
+    /** Deferred join: derived table of the paged root keys, its key and sort-key columns */
+    private static final String PAGE_ALIAS = "dqes_page";
+    private static final String PAGE_KEY_PREFIX = "__dqes_pk";
+    private static final String PAGE_SORT_PREFIX = "__dqes_o";
+    
+    /** Nested collection: LATERAL alias prefix, its array column and the element derived table */
+    private static final String COLLECTION_ALIAS_PREFIX = "lat_";
+    private static final String COLLECTION_ITEMS = "items";
+    private static final String COLLECTION_ELEMENTS_ALIAS = "dqes_items";
+    
+    /** Data types SUM / AVG accept */
+    private static final Set<String> NUMERIC_DATA_TYPES = Set.of("NUMBER", "INT");
+    
+    /** Data types MIN / MAX accept */
+    private static final Set<String> ORDERABLE_DATA_TYPES = Set.of("NUMBER", "INT", "STRING", "DATE", "TIMESTAMP");
+    
     private final DqesMetadataRepository metadataRepo;
     
     /**
-     * Generate SQL and parameter map from QueryAST
+     * Generate SQL and parameter map from an optimized logical plan
      */
-    public GeneratedSql generateSql(QueryAST ast) {
-        SqlContext ctx = new SqlContext(ast);
+    public GeneratedSql generateSql(LogicalPlan plan) {
+        SqlContext ctx = new SqlContext(plan);
         
         // Allocate aliases
-        allocateAliases(ast, ctx);
+        allocateAliases(plan, ctx);
         
         // Build SQL parts
         StringBuilder sql = new StringBuilder();
-        sql.append(buildSelectClause(ast, ctx));
-        sql.append(buildFromClause(ast, ctx));
-        sql.append(buildJoinClauses(ast, ctx));
-        sql.append(buildWhereClause(ast, ctx));
-        sql.append(buildOrderByClause(ast, ctx));
-        sql.append(buildLimitOffsetClause(ast, ctx));
+        List<JoinNode> deferredJoins = planDeferredJoins(plan);
+        boolean deferred = deferredJoins != null && (!deferredJoins.isEmpty() || !plan.getCollections().isEmpty());
+        List<FieldMeta> rootKeys = deferred ? loadRootKeyFields(plan) : List.of();
+        if (!rootKeys.isEmpty()) {
+            sql.append(buildDeferredJoinQuery(plan, ctx, deferredJoins, rootKeys));
+        } else {
+            sql.append(buildSelectClause(plan, ctx));
+            sql.append(buildFromClause(plan, ctx));
+            sql.append(buildJoinClauses(plan, ctx));
+            sql.append(buildCollectionJoins(plan, ctx));
+            sql.append(buildWhereClause(plan, ctx));
+            sql.append(buildGroupByClause(plan, ctx));
+            sql.append(buildHavingClause(plan, ctx));
+            sql.append(buildOrderByClause(plan, ctx));
+            sql.append(buildLimitOffsetClause(plan, ctx));
+        }
         
         GeneratedSql result = new GeneratedSql();
         result.setSql(sql.toString());
         result.setParameters(ctx.parameters);
+        result.setBindings(ctx.bindings);
         result.setAliasMap(ctx.aliasMap);
+        result.setColumnTypes(ctx.columnTypes);
         
         log.debug("Generated SQL with {} parameters:\n{}", ctx.paramCounter, result.getSql());
         
@@ -58,22 +107,179 @@ public class SqlGenerator {
     }
     
     /**
-     * Allocate runtime aliases for all objects
+     * Generate total-count SQL from an optimized logical plan
+     * Ignores SELECT list, ORDER BY, pagination and keyset seek (grouped queries count groups).
+     * LEFT to-one joins used only by selects or sorts are left out; ungrouped queries are
+     * counted with a plain SELECT COUNT(*), grouped ones over a subquery of the groups.
+     */
+    public GeneratedSql generateCountSql(LogicalPlan plan) {
+        SqlContext ctx = new SqlContext(plan);
+        ctx.countOnly = true;
+        
+        allocateAliases(plan, ctx);
+        
+        // Objects that decide which rows (or groups) are counted
+        Set<String> countObjects = new HashSet<>();
+        plan.getFilters().forEach(f -> countObjects.add(f.objectCode()));
+        plan.getGroupBy().forEach(g -> countObjects.add(g.getObjectCode()));
+        plan.getAggregates().stream()
+            .filter(a -> !a.isCountAll())
+            .forEach(a -> countObjects.add(a.getObjectCode()));
+        Map<String, JoinNode> removable = plan.findRemovableJoins(countObjects);
+        List<JoinNode> countJoins = plan.getJoins().stream()
+            .filter(join -> removable.get(join.getToObjectCode()) != join)
+            .toList();
+        
+        StringBuilder body = new StringBuilder();
+        body.append(buildFromClause(plan, ctx));
+        body.append(buildJoinClauses(countJoins, plan, ctx));
+        body.append(buildWhereClause(plan, ctx));
+        body.append(buildGroupByClause(plan, ctx));
+        body.append(buildHavingClause(plan, ctx));
+        String subquery = "SELECT 1\n" + body;
+        
+        GeneratedSql result = new GeneratedSql();
+        result.setSql(plan.isAggregate()
+            ? "SELECT COUNT(*) FROM (\n" + subquery + ") count_subquery"
+            : "SELECT COUNT(*)\n" + body);
+        result.setCountSubquerySql(subquery);
+        result.setParameters(ctx.parameters);
+        result.setBindings(ctx.bindings);
+        result.setAliasMap(ctx.aliasMap);
+        
+        log.debug("Generated count SQL with {} parameters:\n{}", ctx.paramCounter, result.getSql());
+        
+        return result;
+    }
+    
+    /**
+     * Joins that can run after LIMIT: removable joins (see {@link LogicalPlan#findRemovableJoins})
+     * for objects no filter or sort uses, reached from the root through such joins only.
+     * Null unless the query is paged, not grouped and every selected joined object is among
+     * them; nested collections must hang off the root.
+     */
+    private List<JoinNode> planDeferredJoins(LogicalPlan plan) {
+        if (!plan.isDeferredJoin() || plan.getLimit() == null || plan.isAggregate()) {
+            return null;
+        }
+        
+        // Objects the key query needs
+        Set<String> pageObjects = new HashSet<>();
+        plan.getFilters().forEach(f -> pageObjects.add(f.objectCode()));
+        plan.getSorts().forEach(s -> pageObjects.add(s.getObjectCode()));
+        Map<String, JoinNode> deferred = plan.findRemovableJoins(pageObjects);
+        
+        // The outer query only has the root: drop joins hanging off a page join, until stable
+        boolean changed = true;
+        while (changed) {
+            changed = deferred.values().removeIf(join -> 
+                !join.getFromObjectCode().equals(plan.getRootObject()) 
+                    && !deferred.containsKey(join.getFromObjectCode()));
+        }
+        
+        for (SelectNode select : plan.getSelects()) {
+            String objectCode = select.getObjectCode();
+            CollectionJoin collection = plan.findCollection(objectCode);
+            boolean afterPage = collection != null
+                ? collection.join().getFromObjectCode().equals(plan.getRootObject())
+                : objectCode.equals(plan.getRootObject()) || deferred.containsKey(objectCode);
+            if (!afterPage) {
+                return null;
+            }
+        }
+        return List.copyOf(deferred.values());
+    }
+    
+    /**
+     * Root primary key columns (empty if the root has none or a key field is an expression)
+     */
+    private List<FieldMeta> loadRootKeyFields(LogicalPlan plan) {
+        List<FieldMeta> keys = metadataRepo.findFieldsByObject(plan.getTenantCode(), plan.getAppCode(), plan.getRootObject())
+            .stream()
+            .filter(FieldMeta::isPrimaryKeyField)
+            .toList();
+        return keys.stream().allMatch(FieldMeta::isColumn) ? keys : List.of();
+    }
+    
+    /**
+     * Deferred join (late materialization)
+     * The inner query pages root keys over the joins that filters and sorts need; the outer
+     * query reads the page's root rows by key and joins the selected objects, so select
+     * expressions, jsonb_build_object and nested collections run for page rows only. Sort keys, the window
+     * total and keyset columns are carried out of the page.
+     */
+    private String buildDeferredJoinQuery(LogicalPlan plan, SqlContext ctx, List<JoinNode> deferredJoins, 
+                                          List<FieldMeta> rootKeys) {
+        String rootAlias = ctx.aliasMap.get(plan.getRootObject());
+        List<JoinNode> pageJoins = plan.getJoins().stream()
+            .filter(join -> !deferredJoins.contains(join))
+            .toList();
+        
+        List<String> pageColumns = new ArrayList<>();
+        List<String> keyConditions = new ArrayList<>();
+        for (int i = 0; i < rootKeys.size(); i++) {
+            String column = rootAlias + "." + quoteIdentifier(rootKeys.get(i).getColumnName());
+            pageColumns.add(column + " AS " + PAGE_KEY_PREFIX + i);
+            keyConditions.add(column + " = " + PAGE_ALIAS + "." + PAGE_KEY_PREFIX + i);
+        }
+        
+        List<String> pageOrder = new ArrayList<>();
+        for (int i = 0; i < plan.getSorts().size(); i++) {
+            SortNode sort = plan.getSorts().get(i);
+            FieldMeta field = loadFieldMeta(plan, sort.getObjectCode(), sort.getFieldCode());
+            String expr = renderFieldExpression(field, ctx.aliasMap.get(sort.getObjectCode()), null, ctx);
+            pageColumns.add(expr + " AS " + PAGE_SORT_PREFIX + i);
+            pageOrder.add(PAGE_ALIAS + "." + PAGE_SORT_PREFIX + i + " " + renderSortOrder(sort));
+        }
+        
+        if (plan.isWindowCount()) {
+            pageColumns.add("COUNT(*) OVER() AS " + TOTAL_COUNT_COLUMN);
+        }
+        if (plan.isKeysetPagination()) {
+            for (int i = 0; i < plan.getSorts().size(); i++) {
+                pageColumns.add(buildKeysetColumn(plan, ctx, i));
+            }
+        }
+        
+        StringBuilder page = new StringBuilder("SELECT ");
+        page.append(String.join(", ", pageColumns)).append("\n");
+        page.append(buildFromClause(plan, ctx));
+        page.append(buildJoinClauses(pageJoins, plan, ctx));
+        page.append(buildWhereClause(plan, ctx));
+        page.append(buildOrderByClause(plan, ctx));
+        page.append(buildLimitOffsetClause(plan, ctx));
+        
+        ctx.deferredPage = true;
+        ObjectMeta rootObj = loadObjectMeta(plan, plan.getRootObject());
+        StringBuilder sql = new StringBuilder(buildSelectClause(plan, ctx));
+        sql.append("FROM (\n").append(page).append(") ").append(PAGE_ALIAS).append("\n");
+        sql.append("INNER JOIN ").append(rootObj.getDbTable()).append(" ").append(rootAlias);
+        sql.append(" ON ").append(String.join(" AND ", keyConditions)).append("\n");
+        sql.append(buildJoinClauses(deferredJoins, plan, ctx));
+        sql.append(buildCollectionJoins(plan, ctx));
+        if (!pageOrder.isEmpty()) {
+            sql.append("ORDER BY ").append(String.join(", ", pageOrder)).append("\n");
+        }
+        return sql.toString();
+    }
+    
+    /**
+     * Allocate runtime aliases for the root and joined objects (EXISTS blocks use their own)
      * Uses aliasHint from metadata if available, otherwise generates t0, t1, t2, ...
      */
-    private void allocateAliases(QueryAST ast, SqlContext ctx) {
+    private void allocateAliases(LogicalPlan plan, SqlContext ctx) {
         // Root object: use aliasHint or default to t0
-        ObjectMeta rootObj = loadObjectMeta(ast, ast.getRootObject());
+        ObjectMeta rootObj = loadObjectMeta(plan, plan.getRootObject());
         String rootAlias = (rootObj.getAliasHint() != null && !rootObj.getAliasHint().isEmpty()) 
             ? rootObj.getAliasHint() 
             : "t0";
-        ctx.aliasMap.put(ast.getRootObject(), rootAlias);
+        ctx.aliasMap.put(plan.getRootObject(), rootAlias);
         ctx.aliasCounter = 1;
         
         // Allocate aliases for joined objects
-        for (JoinNode join : ast.getJoins()) {
+        for (JoinNode join : plan.getJoins()) {
             if (!ctx.aliasMap.containsKey(join.getToObjectCode())) {
-                ObjectMeta toObj = loadObjectMeta(ast, join.getToObjectCode());
+                ObjectMeta toObj = loadObjectMeta(plan, join.getToObjectCode());
                 String alias;
                 if (toObj.getAliasHint() != null && !toObj.getAliasHint().isEmpty()) {
                     alias = toObj.getAliasHint();
@@ -82,10 +288,6 @@ public class SqlGenerator {
                 }
                 ctx.aliasMap.put(join.getToObjectCode(), alias);
             }
-            
-            // Set aliases in JoinNode
-            join.setFromAlias(ctx.aliasMap.get(join.getFromObjectCode()));
-            join.setToAlias(ctx.aliasMap.get(join.getToObjectCode()));
         }
     }
     
@@ -93,37 +295,30 @@ public class SqlGenerator {
      * Build SELECT clause
      * Groups fields by object and uses jsonb_build_object for joined objects
      */
-    private String buildSelectClause(QueryAST ast, SqlContext ctx) {
+    private String buildSelectClause(LogicalPlan plan, SqlContext ctx) {
         StringBuilder sb = new StringBuilder("SELECT ");
         
         // Group selects by object
         Map<String, List<SelectNode>> selectsByObject = new LinkedHashMap<>();
-        for (SelectNode select : ast.getSelects()) {
+        for (SelectNode select : plan.getSelects()) {
             selectsByObject.computeIfAbsent(select.getObjectCode(), k -> new ArrayList<>()).add(select);
         }
         
         List<String> selectExpressions = new ArrayList<>();
         
         // Process root object fields (flat columns)
-        String rootObjectCode = ast.getRootObject();
+        String rootObjectCode = plan.getRootObject();
         if (selectsByObject.containsKey(rootObjectCode)) {
             for (SelectNode select : selectsByObject.get(rootObjectCode)) {
-                FieldMeta field = loadFieldMeta(ast, select.getObjectCode(), select.getFieldCode());
+                FieldMeta field = loadFieldMeta(plan, select.getObjectCode(), select.getFieldCode());
                 String alias = ctx.aliasMap.get(select.getObjectCode());
                 String expr = renderFieldExpression(field, alias, select, ctx);
                 
-                // Priority: SelectNode.alias > FieldMeta.aliasHint > default (fieldCode only for root)
-                String columnAlias;
-                if (select.getAlias() != null) {
-                    columnAlias = select.getAlias();
-                } else if (field.getAliasHint() != null && !field.getAliasHint().isEmpty()) {
-                    columnAlias = field.getAliasHint();
-                } else {
-                    columnAlias = select.getFieldCode();
-                }
+                String columnAlias = resolveColumnAlias(select, field);
                 expr += " AS " + quoteIdentifier(columnAlias);
                 
                 selectExpressions.add(expr);
+                ctx.columnTypes.put(columnAlias, field.getDataType());
             }
         }
         
@@ -137,77 +332,210 @@ public class SqlGenerator {
             }
             
             List<SelectNode> objectSelects = entry.getValue();
-            String tableAlias = ctx.aliasMap.get(objectCode);
-            ObjectMeta objectMeta = loadObjectMeta(ast, objectCode);
+            ObjectMeta objectMeta = loadObjectMeta(plan, objectCode);
             
-            // Build jsonb_build_object for this joined object
-            StringBuilder jsonbBuilder = new StringBuilder("jsonb_build_object(");
-            List<String> jsonbPairs = new ArrayList<>();
-            
-            for (SelectNode select : objectSelects) {
-                FieldMeta field = loadFieldMeta(ast, select.getObjectCode(), select.getFieldCode());
-                String expr = renderFieldExpression(field, tableAlias, select, ctx);
-                
-                // Determine JSON key name
-                String jsonKey;
-                if (select.getAlias() != null) {
-                    jsonKey = select.getAlias();
-                } else if (field.getAliasHint() != null && !field.getAliasHint().isEmpty()) {
-                    jsonKey = field.getAliasHint();
-                } else {
-                    jsonKey = select.getFieldCode();
-                }
-                
-                jsonbPairs.add("'" + jsonKey + "', " + expr);
+            // Nested collection: array built by its LATERAL join; joined object: jsonb_build_object
+            String tableAlias;
+            StringBuilder jsonbBuilder;
+            if (plan.findCollection(objectCode) != null) {
+                tableAlias = COLLECTION_ALIAS_PREFIX + objectCode.toLowerCase();
+                jsonbBuilder = new StringBuilder("COALESCE(" + tableAlias + "." + COLLECTION_ITEMS + ", '[]'::jsonb)");
+            } else {
+                tableAlias = ctx.aliasMap.get(objectCode);
+                jsonbBuilder = new StringBuilder(buildJsonObject(objectSelects, tableAlias, plan, ctx));
             }
             
-            jsonbBuilder.append(String.join(", ", jsonbPairs));
-            jsonbBuilder.append(")");
-            
             // Use object's alias hint or alias as column name
             String objectColumnAlias = (objectMeta.getAliasHint() != null && !objectMeta.getAliasHint().isEmpty())
                 ? objectMeta.getAliasHint()
                 : tableAlias;
             
             jsonbBuilder.append(" AS ").append(quoteIdentifier(objectColumnAlias));
+            ctx.columnTypes.put(objectColumnAlias, "JSON");
             
             selectExpressions.add(jsonbBuilder.toString());
         }
         
+        // Grouped query: group fields as flat columns plus aggregates (no plain selects)
+        if (plan.isAggregate()) {
+            selectExpressions.addAll(buildAggregateSelects(plan, ctx));
+        }
+        
         if (selectExpressions.isEmpty()) {
             // Default: select all fields from root object
-            ObjectMeta rootObj = loadObjectMeta(ast, ast.getRootObject());
-            String rootAlias = ctx.aliasMap.get(ast.getRootObject());
+            ObjectMeta rootObj = loadObjectMeta(plan, plan.getRootObject());
+            String rootAlias = ctx.aliasMap.get(plan.getRootObject());
             selectExpressions.add(rootAlias + ".*");
         }
         
+        // Total row count computed alongside the page (deferred join: by the key query)
+        if (plan.isWindowCount()) {
+            selectExpressions.add(ctx.deferredPage 
+                ? PAGE_ALIAS + "." + TOTAL_COUNT_COLUMN 
+                : "COUNT(*) OVER() AS " + TOTAL_COUNT_COLUMN);
+        }
+        
+        // Hidden sort-key columns (as text) used to build the next keyset cursor
+        if (plan.isKeysetPagination()) {
+            for (int i = 0; i < plan.getSorts().size(); i++) {
+                selectExpressions.add(ctx.deferredPage 
+                    ? PAGE_ALIAS + "." + KEYSET_COLUMN_PREFIX + i 
+                    : buildKeysetColumn(plan, ctx, i));
+            }
+        }
+        
         sb.append(String.join(", ", selectExpressions));
         sb.append("\n");
         
         return sb.toString();
     }
     
+    /**
+     * jsonb_build_object of an object's selected fields
+     * JSON key priority: SelectNode.alias > FieldMeta.aliasHint > fieldCode
+     */
+    private String buildJsonObject(List<SelectNode> selects, String tableAlias, LogicalPlan plan, SqlContext ctx) {
+        List<String> jsonbPairs = new ArrayList<>();
+        for (SelectNode select : selects) {
+            FieldMeta field = loadFieldMeta(plan, select.getObjectCode(), select.getFieldCode());
+            String expr = renderFieldExpression(field, tableAlias, select, ctx);
+            jsonbPairs.add("'" + resolveColumnAlias(select, field) + "', " + expr);
+        }
+        return "jsonb_build_object(" + String.join(", ", jsonbPairs) + ")";
+    }
+    
+    /**
+     * Hidden keyset column: sort key {@code keyIndex} as text
+     */
+    private String buildKeysetColumn(LogicalPlan plan, SqlContext ctx, int keyIndex) {
+        SortNode sort = plan.getSorts().get(keyIndex);
+        FieldMeta field = loadFieldMeta(plan, sort.getObjectCode(), sort.getFieldCode());
+        String expr = renderFieldExpression(field, ctx.aliasMap.get(sort.getObjectCode()), null, ctx);
+        return "(" + expr + ")::text AS " + KEYSET_COLUMN_PREFIX + keyIndex;
+    }
+    
+    /**
+     * Column alias priority: SelectNode.alias > FieldMeta.aliasHint > fieldCode
+     */
+    private String resolveColumnAlias(SelectNode select, FieldMeta field) {
+        if (select.getAlias() != null) {
+            return select.getAlias();
+        } else if (field.getAliasHint() != null && !field.getAliasHint().isEmpty()) {
+            return field.getAliasHint();
+        }
+        return select.getFieldCode();
+    }
+    
+    /**
+     * Group fields and aggregate expressions of a grouped query
+     */
+    private List<String> buildAggregateSelects(LogicalPlan plan, SqlContext ctx) {
+        List<String> exprs = new ArrayList<>();
+        
+        for (SelectNode group : plan.getGroupBy()) {
+            FieldMeta field = loadFieldMeta(plan, group.getObjectCode(), group.getFieldCode());
+            String expr = renderFieldExpression(field, ctx.aliasMap.get(group.getObjectCode()), group, ctx);
+            String columnAlias = resolveColumnAlias(group, field);
+            exprs.add(expr + " AS " + quoteIdentifier(columnAlias));
+            ctx.columnTypes.put(columnAlias, field.getDataType());
+        }
+        
+        for (AggregateNode aggregate : plan.getAggregates()) {
+            exprs.add(renderAggregate(aggregate, plan, ctx) + " AS " + quoteIdentifier(aggregate.getAlias()));
+            ctx.columnTypes.put(aggregate.getAlias(), aggregateDataType(aggregate, plan));
+        }
+        
+        return exprs;
+    }
+    
+    /**
+     * Render an aggregate call; the field's data type must suit the function
+     * (SUM/AVG numeric, MIN/MAX orderable). Expression fields use the allowlist
+     * entry's return type and must be allowed in SELECT.
+     */
+    private String renderAggregate(AggregateNode aggregate, LogicalPlan plan, SqlContext ctx) {
+        if (aggregate.isCountAll()) {
+            return "COUNT(*)";
+        }
+        
+        FieldMeta field = loadFieldMeta(plan, aggregate.getObjectCode(), aggregate.getFieldCode());
+        String dataType = effectiveDataType(field);
+        boolean valid = switch (aggregate.getFunction()) {
+            case COUNT, COUNT_DISTINCT -> true;
+            case SUM, AVG -> NUMERIC_DATA_TYPES.contains(dataType);
+            case MIN, MAX -> ORDERABLE_DATA_TYPES.contains(dataType);
+        };
+        if (!valid) {
+            throw new IllegalArgumentException(aggregate.getFunction() + " is not supported for "
+                + aggregate.getObjectCode() + "." + aggregate.getFieldCode() + " (data type " + dataType + ")");
+        }
+        
+        String expr = renderFieldExpression(field, ctx.aliasMap.get(aggregate.getObjectCode()), null, ctx);
+        return switch (aggregate.getFunction()) {
+            case COUNT -> "COUNT(" + expr + ")";
+            case COUNT_DISTINCT -> "COUNT(DISTINCT " + expr + ")";
+            case SUM -> "SUM(" + expr + ")";
+            case AVG -> "AVG(" + expr + ")";
+            case MIN -> "MIN(" + expr + ")";
+            case MAX -> "MAX(" + expr + ")";
+        };
+    }
+    
+    /**
+     * Data type code of an aggregate result column
+     */
+    private String aggregateDataType(AggregateNode aggregate, LogicalPlan plan) {
+        return switch (aggregate.getFunction()) {
+            case COUNT, COUNT_DISTINCT -> "INT";
+            case SUM, AVG -> "NUMBER";
+            case MIN, MAX -> effectiveDataType(
+                loadFieldMeta(plan, aggregate.getObjectCode(), aggregate.getFieldCode()));
+        };
+    }
+    
+    /**
+     * Field data type; expression fields take the allowlist return type
+     */
+    private String effectiveDataType(FieldMeta field) {
+        String dataType = field.getDataType();
+        if (field.isExpression() && field.getSelectExprCode() != null) {
+            ExprAllowlist exprMeta = metadataRepo.findExprAllowlist(
+                field.getTenantCode(), field.getAppCode(), field.getSelectExprCode()
+            ).orElseThrow(() -> new IllegalStateException(
+                "Expression template not found: " + field.getSelectExprCode()
+            ));
+            if (Boolean.FALSE.equals(exprMeta.getAllowInSelect())) {
+                throw new IllegalArgumentException("Expression not allowed in SELECT: " + exprMeta.getExprCode());
+            }
+            if (exprMeta.getReturnDataType() != null) {
+                dataType = exprMeta.getReturnDataType();
+            }
+        }
+        return dataType != null ? dataType.toUpperCase() : null;
+    }
+    
     /**
      * Build FROM clause
      */
-    private String buildFromClause(QueryAST ast, SqlContext ctx) {
-        ObjectMeta rootObj = loadObjectMeta(ast, ast.getRootObject());
-        String rootAlias = ctx.aliasMap.get(ast.getRootObject());
+    private String buildFromClause(LogicalPlan plan, SqlContext ctx) {
+        ObjectMeta rootObj = loadObjectMeta(plan, plan.getRootObject());
+        String rootAlias = ctx.aliasMap.get(plan.getRootObject());
         
         return "FROM " + rootObj.getDbTable() + " " + rootAlias + "\n";
     }
     
     /**
-     * Build JOIN clauses (or EXISTS subqueries)
+     * Build JOIN clauses (EXISTS blocks are rendered in WHERE)
      */
-    private String buildJoinClauses(QueryAST ast, SqlContext ctx) {
+    private String buildJoinClauses(LogicalPlan plan, SqlContext ctx) {
+        return buildJoinClauses(plan.getJoins(), plan, ctx);
+    }
+    
+    private String buildJoinClauses(List<JoinNode> joins, LogicalPlan plan, SqlContext ctx) {
         StringBuilder sb = new StringBuilder();
         
-        for (JoinNode join : ast.getJoins()) {
-            if (join.getStrategy() == JoinStrategy.JOIN) {
-                sb.append(buildStandardJoin(join, ast, ctx));
-            }
-            // EXISTS is handled in WHERE clause
+        for (JoinNode join : joins) {
+            sb.append(buildStandardJoin(join, plan, ctx));
         }
         
         return sb.toString();
@@ -216,13 +544,15 @@ public class SqlGenerator {
     /**
      * Build standard JOIN
      */
-    private String buildStandardJoin(JoinNode join, QueryAST ast, SqlContext ctx) {
-        ObjectMeta toObj = loadObjectMeta(ast, join.getToObjectCode());
+    private String buildStandardJoin(JoinNode join, LogicalPlan plan, SqlContext ctx) {
+        ObjectMeta toObj = loadObjectMeta(plan, join.getToObjectCode());
         String joinType = join.getJoinType() == JoinNode.JoinType.INNER ? "INNER JOIN" : "LEFT JOIN";
+        String fromAlias = ctx.aliasMap.get(join.getFromObjectCode());
+        String toAlias = ctx.aliasMap.get(join.getToObjectCode());
         
         StringBuilder sb = new StringBuilder();
         sb.append(joinType).append(" ");
-        sb.append(toObj.getDbTable()).append(" ").append(join.getToAlias());
+        sb.append(toObj.getDbTable()).append(" ").append(toAlias);
         sb.append(" ON ");
         
         List<String> onConditions = new ArrayList<>();
@@ -230,14 +560,14 @@ public class SqlGenerator {
             String condition;
             if (pred.isNullSafe()) {
                 condition = String.format("%s.%s IS NOT DISTINCT FROM %s.%s",
-                    join.getFromAlias(), quoteIdentifier(pred.getFromColumn()),
-                    join.getToAlias(), quoteIdentifier(pred.getToColumn())
+                    fromAlias, quoteIdentifier(pred.getFromColumn()),
+                    toAlias, quoteIdentifier(pred.getToColumn())
                 );
             } else {
                 condition = String.format("%s.%s %s %s.%s",
-                    join.getFromAlias(), quoteIdentifier(pred.getFromColumn()),
+                    fromAlias, quoteIdentifier(pred.getFromColumn()),
                     pred.getOperator(),
-                    join.getToAlias(), quoteIdentifier(pred.getToColumn())
+                    toAlias, quoteIdentifier(pred.getToColumn())
                 );
             }
             onConditions.add(condition);
@@ -249,32 +579,101 @@ public class SqlGenerator {
         return sb.toString();
     }
     
+    /**
+     * Nested collections: one LEFT JOIN LATERAL per selected ONE_TO_MANY object. Each returns
+     * exactly one row per parent (an aggregate without GROUP BY), so parent rows are not multiplied:
+     * LEFT JOIN LATERAL (SELECT jsonb_agg(e.item ORDER BY e.k) AS items FROM (SELECT ... LIMIT n) e) lat_x ON TRUE
+     */
+    private String buildCollectionJoins(LogicalPlan plan, SqlContext ctx) {
+        StringBuilder sb = new StringBuilder();
+        for (CollectionJoin collection : plan.getCollections()) {
+            sb.append(buildCollectionJoin(collection, plan, ctx));
+        }
+        return sb.toString();
+    }
+    
+    private String buildCollectionJoin(CollectionJoin collection, LogicalPlan plan, SqlContext ctx) {
+        JoinNode join = collection.join();
+        String objectCode = collection.objectCode();
+        ObjectMeta toObj = loadObjectMeta(plan, objectCode);
+        String fromAlias = ctx.aliasMap.get(join.getFromObjectCode());
+        String childAlias = "sq_" + objectCode.toLowerCase();
+        
+        List<SelectNode> selects = plan.getSelects().stream()
+            .filter(s -> s.getObjectCode().equals(objectCode))
+            .toList();
+        List<String> columns = new ArrayList<>();
+        columns.add(buildJsonObject(selects, childAlias, plan, ctx) + " AS item");
+        
+        // Elements sorted before LIMIT, and again inside jsonb_agg (array order)
+        List<SortNode> sorts = collection.collection().getSorts();
+        if (sorts.isEmpty()) {
+            sorts = metadataRepo.findFieldsByObject(plan.getTenantCode(), plan.getAppCode(), objectCode).stream()
+                .filter(FieldMeta::isPrimaryKeyField)
+                .map(pk -> new SortNode(objectCode, pk.getFieldCode(), SortDirection.ASC))
+                .toList();
+        }
+        List<String> childOrder = new ArrayList<>();
+        List<String> itemOrder = new ArrayList<>();
+        for (int i = 0; i < sorts.size(); i++) {
+            SortNode sort = sorts.get(i);
+            FieldMeta field = loadFieldMeta(plan, sort.getObjectCode(), sort.getFieldCode());
+            String expr = renderFieldExpression(field, childAlias, null, ctx);
+            columns.add(expr + " AS " + PAGE_SORT_PREFIX + i);
+            childOrder.add(expr + " " + renderSortOrder(sort));
+            itemOrder.add(COLLECTION_ELEMENTS_ALIAS + "." + PAGE_SORT_PREFIX + i + " " + renderSortOrder(sort));
+        }
+        
+        List<String> conditions = new ArrayList<>();
+        for (JoinPredicate pred : join.getPredicates()) {
+            String fromColumn = fromAlias + "." + quoteIdentifier(pred.getFromColumn());
+            String toColumn = childAlias + "." + quoteIdentifier(pred.getToColumn());
+            conditions.add(pred.isNullSafe()
+                ? fromColumn + " IS NOT DISTINCT FROM " + toColumn
+                : fromColumn + " " + pred.getOperator() + " " + toColumn);
+        }
+        
+        StringBuilder sb = new StringBuilder();
+        sb.append("LEFT JOIN LATERAL (\n");
+        sb.append("  SELECT jsonb_agg(").append(COLLECTION_ELEMENTS_ALIAS).append(".item");
+        if (!itemOrder.isEmpty()) {
+            sb.append(" ORDER BY ").append(String.join(", ", itemOrder));
+        }
+        sb.append(") AS ").append(COLLECTION_ITEMS).append("\n");
+        sb.append("  FROM (\n");
+        sb.append("    SELECT ").append(String.join(", ", columns)).append("\n");
+        sb.append("    FROM ").append(toObj.getDbTable()).append(" ").append(childAlias).append("\n");
+        sb.append("    WHERE ").append(String.join(" AND ", conditions)).append("\n");
+        if (!childOrder.isEmpty()) {
+            sb.append("    ORDER BY ").append(String.join(", ", childOrder)).append("\n");
+        }
+        sb.append("    LIMIT ").append(collection.collection().getLimit()).append("\n");
+        sb.append("  ) ").append(COLLECTION_ELEMENTS_ALIAS).append("\n");
+        sb.append(") ").append(COLLECTION_ALIAS_PREFIX).append(objectCode.toLowerCase()).append(" ON TRUE\n");
+        return sb.toString();
+    }
+    
     /**
      * Build WHERE clause (includes EXISTS subqueries)
      */
-    private String buildWhereClause(QueryAST ast, SqlContext ctx) {
+    private String buildWhereClause(LogicalPlan plan, SqlContext ctx) {
         List<String> conditions = new ArrayList<>();
         
-        // Regular filters
-        for (FilterNode filter : ast.getFilters()) {
-            String condition = buildFilterCondition(filter, ast, ctx);
-            conditions.add(condition);
+        // Regular filters (folded ones are constant)
+        for (PlanFilter filter : plan.getFilters()) {
+            conditions.add(filter.alwaysFalse() 
+                ? "FALSE" 
+                : buildFilterCondition(filter.node(), filter.index(), plan, ctx));
         }
         
-        // EXISTS subqueries for filter-only joins
-        for (JoinNode join : ast.getJoins()) {
-            if (join.getStrategy() == JoinStrategy.EXISTS || 
-                join.getStrategy() == JoinStrategy.EXISTS_ONLY) {
-                
-                // Check if this object has filters
-                boolean hasFilters = ast.getFilters().stream()
-                    .anyMatch(f -> f.getObjectCode().equals(join.getToObjectCode()));
-                
-                if (hasFilters) {
-                    String existsSubquery = buildExistsSubquery(join, ast, ctx);
-                    conditions.add(existsSubquery);
-                }
-            }
+        // EXISTS subqueries with their pushed-down filters
+        for (ExistsBlock block : plan.getExistsBlocks()) {
+            conditions.add(buildExistsSubquery(block, ctx.aliasMap.get(block.join().getFromObjectCode()), plan, ctx));
+        }
+        
+        // Keyset seek predicate
+        if (plan.isKeysetPagination() && plan.getKeysetValues() != null && !ctx.countOnly) {
+            conditions.add(buildKeysetCondition(plan, ctx));
         }
         
         if (conditions.isEmpty()) {
@@ -287,20 +686,8 @@ public class SqlGenerator {
     /**
      * Build filter condition with parameter binding
      */
-    private String buildFilterCondition(FilterNode filter, QueryAST ast, SqlContext ctx) {
-        // Skip if this filter belongs to an EXISTS subquery
-        JoinNode existsJoin = ast.getJoins().stream()
-            .filter(j -> j.getToObjectCode().equals(filter.getObjectCode()))
-            .filter(j -> j.getStrategy() == JoinStrategy.EXISTS || 
-                        j.getStrategy() == JoinStrategy.EXISTS_ONLY)
-            .findFirst()
-            .orElse(null);
-        
-        if (existsJoin != null) {
-            return null; // Will be handled in EXISTS subquery
-        }
-        
-        FieldMeta field = loadFieldMeta(ast, filter.getObjectCode(), filter.getFieldCode());
+    private String buildFilterCondition(FilterNode filter, int filterIndex, LogicalPlan plan, SqlContext ctx) {
+        FieldMeta field = loadFieldMeta(plan, filter.getObjectCode(), filter.getFieldCode());
         String alias = ctx.aliasMap.get(filter.getObjectCode());
         String fieldExpr = renderFieldExpression(field, alias, null, ctx);
         
@@ -308,34 +695,103 @@ public class SqlGenerator {
         Object value = filter.getValue();
         
         return switch (opCode) {
-            case "EQ" -> fieldExpr + " = " + bindParameter(ctx, value);
-            case "NE" -> fieldExpr + " != " + bindParameter(ctx, value);
-            case "GT" -> fieldExpr + " > " + bindParameter(ctx, value);
-            case "GE" -> fieldExpr + " >= " + bindParameter(ctx, value);
-            case "LT" -> fieldExpr + " < " + bindParameter(ctx, value);
-            case "LE" -> fieldExpr + " <= " + bindParameter(ctx, value);
-            case "IN" -> fieldExpr + " IN (" + bindParameter(ctx, value) + ")";
-            case "NOT_IN" -> fieldExpr + " NOT IN (" + bindParameter(ctx, value) + ")";
+            case "EQ" -> fieldExpr + " = " + bindFilterValue(ctx, filterIndex, value);
+            case "NE" -> fieldExpr + " != " + bindFilterValue(ctx, filterIndex, value);
+            case "GT" -> fieldExpr + " > " + bindFilterValue(ctx, filterIndex, value);
+            case "GE" -> fieldExpr + " >= " + bindFilterValue(ctx, filterIndex, value);
+            case "LT" -> fieldExpr + " < " + bindFilterValue(ctx, filterIndex, value);
+            case "LE" -> fieldExpr + " <= " + bindFilterValue(ctx, filterIndex, value);
+            case "IN" -> buildInCondition(fieldExpr, field, false, filterIndex, value, ctx);
+            case "NOT_IN" -> buildInCondition(fieldExpr, field, true, filterIndex, value, ctx);
             case "BETWEEN" -> {
                 if (value instanceof List list && list.size() == 2) {
-                    yield fieldExpr + " BETWEEN " + bindParameter(ctx, list.get(0)) + 
-                          " AND " + bindParameter(ctx, list.get(1));
+                    yield fieldExpr + " BETWEEN " + bindFilterElement(ctx, filterIndex, list, 0) + 
+                          " AND " + bindFilterElement(ctx, filterIndex, list, 1);
                 }
                 throw new IllegalArgumentException("BETWEEN requires array of 2 values");
             }
-            case "LIKE" -> fieldExpr + " LIKE " + bindParameter(ctx, value);
-            case "ILIKE" -> fieldExpr + " ILIKE " + bindParameter(ctx, value);
+            case "LIKE" -> fieldExpr + " LIKE " + bindFilterValue(ctx, filterIndex, value);
+            case "ILIKE" -> fieldExpr + " ILIKE " + bindFilterValue(ctx, filterIndex, value);
             case "IS_NULL" -> fieldExpr + " IS NULL";
             case "IS_NOT_NULL" -> fieldExpr + " IS NOT NULL";
             default -> throw new IllegalArgumentException("Unsupported operator: " + opCode);
         };
     }
     
+    /**
+     * Build keyset seek predicate from cursor values
+     * Uniform direction, NOT NULL keys: (a, b) > (:p0, :p1)
+     * Mixed directions or nullable keys: (a > :p0) OR (a = :p0 AND b < :p1),
+     * with NULL-aware terms for nullable keys that follow the rendered NULLS FIRST/LAST order
+     * Cursor values are bound untyped (Types.OTHER) so PostgreSQL infers each type
+     */
+    private String buildKeysetCondition(LogicalPlan plan, SqlContext ctx) {
+        List<SortNode> sorts = plan.getSorts();
+        List<String> values = plan.getKeysetValues();
+        if (values.size() != sorts.size()) {
+            throw new IllegalArgumentException("Pagination cursor does not match the query sort keys");
+        }
+        
+        List<String> exprs = new ArrayList<>();
+        List<String> params = new ArrayList<>();
+        boolean[] nullable = new boolean[sorts.size()];
+        for (int i = 0; i < sorts.size(); i++) {
+            SortNode sort = sorts.get(i);
+            FieldMeta field = loadFieldMeta(plan, sort.getObjectCode(), sort.getFieldCode());
+            exprs.add(renderFieldExpression(field, ctx.aliasMap.get(sort.getObjectCode()), null, ctx));
+            params.add(bindKeysetValue(ctx, i, values.get(i)));
+            nullable[i] = !Boolean.TRUE.equals(field.getNotNull()) && !field.isPrimaryKeyField();
+        }
+        
+        boolean uniformDirection = sorts.stream().map(SortNode::getDirection).distinct().count() == 1;
+        boolean anyNullable = false;
+        for (boolean n : nullable) {
+            anyNullable |= n;
+        }
+        if (uniformDirection && !anyNullable) {
+            String op = sorts.get(0).getDirection() == SortDirection.ASC ? " > " : " < ";
+            return "(" + String.join(", ", exprs) + ")" + op + "(" + String.join(", ", params) + ")";
+        }
+        
+        List<String> branches = new ArrayList<>();
+        for (int i = 0; i < sorts.size(); i++) {
+            List<String> parts = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                parts.add(exprs.get(j) + (nullable[j] ? " IS NOT DISTINCT FROM " : " = ") + params.get(j));
+            }
+            parts.add(buildKeysetAfter(sorts.get(i), exprs.get(i), params.get(i), nullable[i]));
+            branches.add(parts.size() == 1 && nullable[i] ? parts.get(0) : "(" + String.join(" AND ", parts) + ")");
+        }
+        return "(" + String.join(" OR ", branches) + ")";
+    }
+    
+    /**
+     * Rows ordered after the cursor value on one sort key. The statement text must not depend
+     * on whether the cursor value is NULL (plans are reused per shape), so nullable keys test
+     * the parameter in SQL (cast to text: cursor values are text and an untyped parameter
+     * needs a type for IS NULL):
+     * NULLS LAST:  (CAST(:p AS text) IS NOT NULL AND (a > :p OR a IS NULL))
+     * NULLS FIRST: (a > :p OR (CAST(:p AS text) IS NULL AND a IS NOT NULL))
+     */
+    private String buildKeysetAfter(SortNode sort, String expr, String param, boolean nullable) {
+        String comparison = expr + (sort.getDirection() == SortDirection.ASC ? " > " : " < ") + param;
+        if (!nullable) {
+            return comparison;
+        }
+        if (sort.getNullsOrder() == SortNode.NullsOrder.FIRST) {
+            return "(" + comparison + " OR (CAST(" + param + " AS text) IS NULL AND " + expr + " IS NOT NULL))";
+        }
+        return "(CAST(" + param + " AS text) IS NOT NULL AND (" + comparison + " OR " + expr + " IS NULL))";
+    }
+    
     /**
      * Build EXISTS subquery for filter-only ONE_TO_MANY relations
+     * Nested blocks (later hops of the path) become EXISTS subqueries correlated to this one:
+     * EXISTS (SELECT 1 FROM b sq_b WHERE t0.id = sq_b.a_id AND EXISTS (SELECT 1 FROM c sq_c WHERE sq_b.id = sq_c.b_id AND ...))
      */
-    private String buildExistsSubquery(JoinNode join, QueryAST ast, SqlContext ctx) {
-        ObjectMeta toObj = loadObjectMeta(ast, join.getToObjectCode());
+    private String buildExistsSubquery(ExistsBlock block, String fromAlias, LogicalPlan plan, SqlContext ctx) {
+        JoinNode join = block.join();
+        ObjectMeta toObj = loadObjectMeta(plan, join.getToObjectCode());
         String subqueryAlias = "sq_" + join.getToObjectCode().toLowerCase();
         
         StringBuilder sb = new StringBuilder();
@@ -347,7 +803,7 @@ public class SqlGenerator {
         List<String> conditions = new ArrayList<>();
         for (JoinPredicate pred : join.getPredicates()) {
             String condition = String.format("%s.%s %s %s.%s",
-                join.getFromAlias(), quoteIdentifier(pred.getFromColumn()),
+                fromAlias, quoteIdentifier(pred.getFromColumn()),
                 pred.getOperator(),
                 subqueryAlias, quoteIdentifier(pred.getToColumn())
             );
@@ -355,16 +811,20 @@ public class SqlGenerator {
         }
         
         // Filters on the joined object
-        for (FilterNode filter : ast.getFilters()) {
-            if (filter.getObjectCode().equals(join.getToObjectCode())) {
-                FieldMeta field = loadFieldMeta(ast, filter.getObjectCode(), filter.getFieldCode());
-                String fieldExpr = renderFieldExpression(field, subqueryAlias, null, ctx);
-                
-                String filterCondition = buildFilterConditionForSubquery(
-                    fieldExpr, filter.getOperatorCode(), filter.getValue(), ctx
-                );
-                conditions.add(filterCondition);
-            }
+        for (PlanFilter planFilter : block.filters()) {
+            FilterNode filter = planFilter.node();
+            FieldMeta field = loadFieldMeta(plan, filter.getObjectCode(), filter.getFieldCode());
+            String fieldExpr = renderFieldExpression(field, subqueryAlias, null, ctx);
+            
+            String filterCondition = buildFilterConditionForSubquery(
+                fieldExpr, field, filter.getOperatorCode(), filter.getValue(), planFilter.index(), ctx
+            );
+            conditions.add(filterCondition);
+        }
+        
+        // Next hops of the chain
+        for (ExistsBlock nested : block.nested()) {
+            conditions.add(buildExistsSubquery(nested, subqueryAlias, plan, ctx));
         }
         
         sb.append(String.join(" AND ", conditions));
@@ -373,60 +833,147 @@ public class SqlGenerator {
         return sb.toString();
     }
     
-    private String buildFilterConditionForSubquery(String fieldExpr, String opCode, 
-                                                    Object value, SqlContext ctx) {
+    private String buildFilterConditionForSubquery(String fieldExpr, FieldMeta field, String opCode, 
+                                                    Object value, int filterIndex, SqlContext ctx) {
         return switch (opCode) {
-            case "EQ" -> fieldExpr + " = " + bindParameter(ctx, value);
-            case "NE" -> fieldExpr + " != " + bindParameter(ctx, value);
-            case "GT" -> fieldExpr + " > " + bindParameter(ctx, value);
-            case "GE" -> fieldExpr + " >= " + bindParameter(ctx, value);
-            case "LT" -> fieldExpr + " < " + bindParameter(ctx, value);
-            case "LE" -> fieldExpr + " <= " + bindParameter(ctx, value);
-            case "IN" -> fieldExpr + " IN (" + bindParameter(ctx, value) + ")";
-            case "NOT_IN" -> fieldExpr + " NOT IN (" + bindParameter(ctx, value) + ")";
+            case "EQ" -> fieldExpr + " = " + bindFilterValue(ctx, filterIndex, value);
+            case "NE" -> fieldExpr + " != " + bindFilterValue(ctx, filterIndex, value);
+            case "GT" -> fieldExpr + " > " + bindFilterValue(ctx, filterIndex, value);
+            case "GE" -> fieldExpr + " >= " + bindFilterValue(ctx, filterIndex, value);
+            case "LT" -> fieldExpr + " < " + bindFilterValue(ctx, filterIndex, value);
+            case "LE" -> fieldExpr + " <= " + bindFilterValue(ctx, filterIndex, value);
+            case "IN" -> buildInCondition(fieldExpr, field, false, filterIndex, value, ctx);
+            case "NOT_IN" -> buildInCondition(fieldExpr, field, true, filterIndex, value, ctx);
             case "IS_NULL" -> fieldExpr + " IS NULL";
             case "IS_NOT_NULL" -> fieldExpr + " IS NOT NULL";
             default -> throw new IllegalArgumentException("Unsupported operator in subquery: " + opCode);
         };
     }
     
+    /**
+     * IN / NOT_IN with the list bound as one array: {@code = ANY(:p)} / {@code <> ALL(:p)}.
+     * The array is typed by the field's pg_cast (qrytb_data_type), so the statement text
+     * is the same for any list length. Data types without a pg_cast keep the expanded list.
+     */
+    private String buildInCondition(String fieldExpr, FieldMeta field, boolean negate, 
+                                    int filterIndex, Object value, SqlContext ctx) {
+        String pgCast = field.getDataType() != null 
+            ? metadataRepo.findDataTypePgCast(field.getTenantCode(), field.getAppCode(), field.getDataType())
+                .orElse(null)
+            : null;
+        if (pgCast == null) {
+            return fieldExpr + (negate ? " NOT IN (" : " IN (") + bindFilterValue(ctx, filterIndex, value) + ")";
+        }
+        
+        ParamBinding binding = new ParamBinding(null, ParamBinding.Source.FILTER, filterIndex, -1, null);
+        binding.setArrayType(pgCast);
+        return fieldExpr + (negate ? " <> ALL(" : " = ANY(") + bindParameter(ctx, value, binding) + ")";
+    }
+    
+    /**
+     * Build GROUP BY clause (grouped queries)
+     */
+    private String buildGroupByClause(LogicalPlan plan, SqlContext ctx) {
+        if (plan.getGroupBy().isEmpty()) {
+            return "";
+        }
+        
+        List<String> groupItems = new ArrayList<>();
+        for (SelectNode group : plan.getGroupBy()) {
+            FieldMeta field = loadFieldMeta(plan, group.getObjectCode(), group.getFieldCode());
+            groupItems.add(renderFieldExpression(field, ctx.aliasMap.get(group.getObjectCode()), group, ctx));
+        }
+        
+        return "GROUP BY " + String.join(", ", groupItems) + "\n";
+    }
+    
+    /**
+     * Build HAVING clause on aggregate expressions
+     */
+    private String buildHavingClause(LogicalPlan plan, SqlContext ctx) {
+        if (plan.getHaving().isEmpty()) {
+            return "";
+        }
+        
+        List<String> conditions = new ArrayList<>();
+        for (int i = 0; i < plan.getHaving().size(); i++) {
+            HavingNode having = plan.getHaving().get(i);
+            String expr = renderAggregate(plan.findAggregate(having.getAggregateAlias()), plan, ctx);
+            Object value = having.getValue();
+            
+            conditions.add(switch (having.getOperatorCode()) {
+                case "EQ" -> expr + " = " + bindHavingValue(ctx, i, value);
+                case "NE" -> expr + " != " + bindHavingValue(ctx, i, value);
+                case "GT" -> expr + " > " + bindHavingValue(ctx, i, value);
+                case "GE" -> expr + " >= " + bindHavingValue(ctx, i, value);
+                case "LT" -> expr + " < " + bindHavingValue(ctx, i, value);
+                case "LE" -> expr + " <= " + bindHavingValue(ctx, i, value);
+                case "BETWEEN" -> {
+                    if (value instanceof List list && list.size() == 2) {
+                        yield expr + " BETWEEN " + bindHavingElement(ctx, i, list, 0) + 
+                              " AND " + bindHavingElement(ctx, i, list, 1);
+                    }
+                    throw new IllegalArgumentException("BETWEEN requires array of 2 values");
+                }
+                default -> throw new IllegalArgumentException("Unsupported operator in HAVING: " 
+                    + having.getOperatorCode());
+            });
+        }
+        
+        return "HAVING " + String.join(" AND ", conditions) + "\n";
+    }
+    
     /**
      * Build ORDER BY clause
      */
-    private String buildOrderByClause(QueryAST ast, SqlContext ctx) {
-        if (ast.getSorts().isEmpty()) {
+    private String buildOrderByClause(LogicalPlan plan, SqlContext ctx) {
+        if (plan.getSorts().isEmpty()) {
             return "";
         }
         
         List<String> orderItems = new ArrayList<>();
         
-        for (SortNode sort : ast.getSorts()) {
-            FieldMeta field = loadFieldMeta(ast, sort.getObjectCode(), sort.getFieldCode());
-            String alias = ctx.aliasMap.get(sort.getObjectCode());
-            String expr = renderFieldExpression(field, alias, null, ctx);
-            
-            String direction = sort.getDirection() == SortDirection.ASC ? "ASC" : "DESC";
-            String nullsOrder = sort.getNullsOrder() == SortNode.NullsOrder.FIRST ? "NULLS FIRST" : "NULLS LAST";
+        for (SortNode sort : plan.getSorts()) {
+            String expr;
+            if (sort.isAggregateSort()) {
+                expr = quoteIdentifier(sort.getAggregateAlias());
+            } else {
+                FieldMeta field = loadFieldMeta(plan, sort.getObjectCode(), sort.getFieldCode());
+                String alias = ctx.aliasMap.get(sort.getObjectCode());
+                expr = renderFieldExpression(field, alias, null, ctx);
+            }
             
-            orderItems.add(expr + " " + direction + " " + nullsOrder);
+            orderItems.add(expr + " " + renderSortOrder(sort));
         }
         
         return "ORDER BY " + String.join(", ", orderItems) + "\n";
     }
     
+    /**
+     * Direction and NULLS placement of a sort key
+     */
+    private String renderSortOrder(SortNode sort) {
+        String direction = sort.getDirection() == SortDirection.ASC ? "ASC" : "DESC";
+        String nullsOrder = sort.getNullsOrder() == SortNode.NullsOrder.FIRST ? "NULLS FIRST" : "NULLS LAST";
+        return direction + " " + nullsOrder;
+    }
+    
     /**
      * Build LIMIT/OFFSET clause
+     * Values are bound so the statement text does not depend on page position
      */
-    private String buildLimitOffsetClause(QueryAST ast, SqlContext ctx) {
+    private String buildLimitOffsetClause(LogicalPlan plan, SqlContext ctx) {
         StringBuilder sb = new StringBuilder();
         
-         ast.getLimit();
-        if (ast.getLimit() != null) {
-            sb.append("LIMIT ").append(ast.getLimit()).append("\n");
+        if (plan.getLimit() != null) {
+            sb.append("LIMIT ").append(bindParameter(ctx, plan.getLimit(),
+                new ParamBinding(null, ParamBinding.Source.LIMIT, 0, -1, null))).append("\n");
         }
         
-        if (ast.getOffset() != null) {
-            sb.append("OFFSET ").append(ast.getOffset()).append("\n");
+        // Keyset pagination seeks via WHERE; OFFSET is never applied
+        if (plan.getOffset() != null && !plan.isKeysetPagination()) {
+            sb.append("OFFSET ").append(bindParameter(ctx, plan.getOffset(),
+                new ParamBinding(null, ParamBinding.Source.OFFSET, 0, -1, null))).append("\n");
         }
         
         return sb.toString();
@@ -471,11 +1018,57 @@ public class SqlGenerator {
     }
     
     /**
-     * Bind parameter and return placeholder
+     * Bind filter value (whole value, lists expand for IN/NOT_IN)
      */
-    private String bindParameter(SqlContext ctx, Object value) {
+    private String bindFilterValue(SqlContext ctx, int filterIndex, Object value) {
+        return bindParameter(ctx, value, 
+            new ParamBinding(null, ParamBinding.Source.FILTER, filterIndex, -1, null));
+    }
+    
+    /**
+     * Bind one element of a list filter value (BETWEEN bounds)
+     */
+    private String bindFilterElement(SqlContext ctx, int filterIndex, List<?> values, int element) {
+        return bindParameter(ctx, values.get(element), 
+            new ParamBinding(null, ParamBinding.Source.FILTER, filterIndex, element, null));
+    }
+    
+    /**
+     * Bind HAVING value (whole value)
+     */
+    private String bindHavingValue(SqlContext ctx, int havingIndex, Object value) {
+        return bindParameter(ctx, value, 
+            new ParamBinding(null, ParamBinding.Source.HAVING, havingIndex, -1, null));
+    }
+    
+    /**
+     * Bind one element of a HAVING list value (BETWEEN bounds)
+     */
+    private String bindHavingElement(SqlContext ctx, int havingIndex, List<?> values, int element) {
+        return bindParameter(ctx, values.get(element), 
+            new ParamBinding(null, ParamBinding.Source.HAVING, havingIndex, element, null));
+    }
+    
+    /**
+     * Bind keyset cursor value untyped (Types.OTHER)
+     */
+    private String bindKeysetValue(SqlContext ctx, int keyIndex, Object value) {
+        return bindParameter(ctx, value, 
+            new ParamBinding(null, ParamBinding.Source.KEYSET, keyIndex, -1, Types.OTHER));
+    }
+    
+    /**
+     * Bind parameter, record where its value comes from and return placeholder
+     */
+    private String bindParameter(SqlContext ctx, Object value, ParamBinding binding) {
         String paramName = "param" + ctx.paramCounter++;
-        ctx.parameters.addValue(paramName, value);
+        binding.setName(paramName);
+        ctx.bindings.add(binding);
+        if (binding.getSqlType() != null) {
+            ctx.parameters.addValue(paramName, value, binding.getSqlType());
+        } else {
+            ctx.parameters.addValue(paramName, binding.parameterValue(value));
+        }
         return ":" + paramName;
     }
     
@@ -493,8 +1086,8 @@ public class SqlGenerator {
     /**
      * Load ObjectMeta with error handling
      */
-    private ObjectMeta loadObjectMeta(QueryAST ast, String objectCode) {
-        return metadataRepo.findObjectMeta(ast.getTenantCode(), ast.getAppCode(), objectCode)
+    private ObjectMeta loadObjectMeta(LogicalPlan plan, String objectCode) {
+        return metadataRepo.findObjectMeta(plan.getTenantCode(), plan.getAppCode(), objectCode)
             .orElseThrow(() -> new IllegalArgumentException(
                 "Object metadata not found: " + objectCode
             ));
@@ -503,8 +1096,8 @@ public class SqlGenerator {
     /**
      * Load FieldMeta with error handling
      */
-    private FieldMeta loadFieldMeta(QueryAST ast, String objectCode, String fieldCode) {
-        return metadataRepo.findFieldMeta(ast.getTenantCode(), ast.getAppCode(), objectCode, fieldCode)
+    private FieldMeta loadFieldMeta(LogicalPlan plan, String objectCode, String fieldCode) {
+        return metadataRepo.findFieldMeta(plan.getTenantCode(), plan.getAppCode(), objectCode, fieldCode)
             .orElseThrow(() -> new IllegalArgumentException(
                 "Field metadata not found: " + objectCode + "." + fieldCode
             ));
@@ -514,14 +1107,18 @@ public class SqlGenerator {
      * SQL generation context
      */
     private static class SqlContext {
-        final QueryAST ast;
+        final LogicalPlan plan;
         final Map<String, String> aliasMap = new HashMap<>();
         final MapSqlParameterSource parameters = new MapSqlParameterSource();
+        final List<ParamBinding> bindings = new ArrayList<>();
+        final Map<String, String> columnTypes = new LinkedHashMap<>();
         int aliasCounter = 0;
         int paramCounter = 0;
+        boolean countOnly;
+        boolean deferredPage;       // Outer query of a deferred join: hidden columns come from the page
         
-        SqlContext(QueryAST ast) {
-            this.ast = ast;
+        SqlContext(LogicalPlan plan) {
+            this.plan = plan;
         }
     }
     
@@ -532,6 +1129,9 @@ public class SqlGenerator {
     public static class GeneratedSql {
         private String sql;
         private MapSqlParameterSource parameters;
+        private List<ParamBinding> bindings;
         private Map<String, String> aliasMap;
+        private Map<String, String> columnTypes;    // Result column -> FieldMeta.dataType (joined objects: JSON)
+        private String countSubquerySql;            // Count SQL only: the counted subquery (EXPLAIN target for estimates)
     }
 }
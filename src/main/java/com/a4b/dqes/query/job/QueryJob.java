@@ -0,0 +1,65 @@
+package com.a4b.dqes.query.job;
+
+import com.a4b.dqes.query.QueryCancellation;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Asynchronous query job: runs on a worker thread and spools its rows as NDJSON
+ * into a local file that clients page through until the job expires.
+ * 
+ * Mutable state is written by the job thread and read by pollers (volatile);
+ * the row offset index is only read once the job is COMPLETED. A job is only
+ * visible to the user, tenant and app that submitted it.
+ */
+@Getter
+@Setter
+public class QueryJob {
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    private final String id;
+    private final String tenantCode;
+    private final String appCode;
+    private final String submittedBy;       // Login of the submitting user (null when anonymous)
+    private final Path spoolFile;
+    private final Instant createdAt = Instant.now();
+    private final QueryCancellation cancellation = new QueryCancellation();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile long rowCount;
+    private volatile String error;
+    private volatile Instant completedAt;
+    private volatile Instant expiresAt;
+
+    /** Byte offset of every Nth row in the spool file (row 0, N, 2N, ...) */
+    private final List<Long> rowOffsets = new ArrayList<>();
+
+    public QueryJob(String id, String tenantCode, String appCode, String submittedBy, Path spoolFile) {
+        this.id = id;
+        this.tenantCode = tenantCode;
+        this.appCode = appCode;
+        this.submittedBy = submittedBy;
+        this.spoolFile = spoolFile;
+    }
+
+    public boolean isOwnedBy(String tenantCode, String appCode, String user) {
+        return Objects.equals(this.tenantCode, tenantCode)
+            && Objects.equals(this.appCode, appCode)
+            && Objects.equals(this.submittedBy, user);
+    }
+
+    public boolean isDone() {
+        return status != Status.RUNNING;
+    }
+}
@@ -0,0 +1,238 @@
+package com.a4b.dqes.query.job;
+
+import com.a4b.dqes.config.AsyncConfiguration;
+import com.a4b.dqes.config.QueryEngineProperties;
+import com.a4b.dqes.exception.DqesRuntimeException;
+import com.a4b.dqes.exception.QueryThrottledException;
+import com.a4b.dqes.query.DynamicQueryExecutor;
+import com.a4b.dqes.query.QueryRequest;
+import com.a4b.dqes.query.QueryResult;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Asynchronous Query Job Service
+ *
+ * Jobs stream their rows through {@link DynamicQueryExecutor#stream} into a local
+ * NDJSON spool file on a virtual worker thread. Clients poll the status and page
+ * through the spooled rows without re-running the query. Jobs and their files
+ * are removed once their TTL expires.
+ *
+ * Jobs live on the node that accepted them (local spool), so job requests need
+ * sticky routing when several instances run. Lookups are scoped to the submitting
+ * user, tenant and app; other callers see no job.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QueryJobService {
+
+    private final DynamicQueryExecutor queryExecutor;
+    private final QueryEngineProperties properties;
+    @Qualifier(AsyncConfiguration.WORKER_EXECUTOR_BEAN_NAME)
+    private final ExecutorService workerExecutor;
+
+    private final Map<String, QueryJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger runningJobs = new AtomicInteger();  // Admitted jobs whose thread has not finished
+
+    /**
+     * Submit a query job on behalf of a user; returns immediately with the RUNNING job
+     */
+    public QueryJob submit(QueryRequest request, String submittedBy) {
+        QueryEngineProperties.Job config = properties.getJob();
+        // Reserve a slot first: concurrent submits cannot both pass the check
+        if (runningJobs.incrementAndGet() > config.getMaxRunningJobs()) {
+            runningJobs.decrementAndGet();
+            throw new QueryThrottledException("Too many running query jobs: max " + config.getMaxRunningJobs(),
+                config.getRetryAfterSec());
+        }
+
+        String jobId = UUID.randomUUID().toString();
+        QueryJob job;
+        try {
+            Path spoolDir = Paths.get(config.getSpoolDir());
+            Files.createDirectories(spoolDir);
+            job = new QueryJob(jobId, request.getTenantCode(), request.getAppCode(), submittedBy,
+                spoolDir.resolve(jobId + ".ndjson"));
+            jobs.put(jobId, job);
+            workerExecutor.execute(() -> run(job, request));
+        } catch (IOException e) {
+            runningJobs.decrementAndGet();
+            throw new DqesRuntimeException("Failed to create query job spool directory", e);
+        } catch (RuntimeException e) {
+            runningJobs.decrementAndGet();
+            jobs.remove(jobId);
+            throw e;
+        }
+
+        log.info("Submitted query job {}: tenant={}, app={}, user={}, root={}",
+            jobId, request.getTenantCode(), request.getAppCode(), submittedBy, request.getRootObjectCode());
+        return job;
+    }
+
+    private void run(QueryJob job, QueryRequest request) {
+        QueryEngineProperties.Job config = properties.getJob();
+        try (OutputStream out = new SpoolOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(job.getSpoolFile())), job, config.getIndexInterval())) {
+            queryExecutor.stream(request, out, job.getCancellation(), resolveTimeoutSec(request));
+            out.flush();
+            job.setStatus(QueryJob.Status.COMPLETED);
+            log.info("Query job {} completed: {} rows", job.getId(), job.getRowCount());
+        } catch (Exception e) {
+            job.setError(e.getMessage());
+            job.setStatus(job.getCancellation().isCancelled() ? QueryJob.Status.CANCELLED : QueryJob.Status.FAILED);
+            deleteSpool(job);
+            log.warn("Query job {} {}: {}", job.getId(), job.getStatus(), e.getMessage());
+        } finally {
+            if (job.getCancellation().isCancelled()) {
+                // Cancelled while finishing: the job is no longer registered, drop its result
+                job.setStatus(QueryJob.Status.CANCELLED);
+                deleteSpool(job);
+            }
+            job.setCompletedAt(Instant.now());
+            job.setExpiresAt(job.getCompletedAt().plus(Duration.ofMinutes(config.getTtlMinutes())));
+            runningJobs.decrementAndGet();
+        }
+    }
+
+    /**
+     * Job statement timeout: the request's timeoutSec capped by dqes.query.job.timeout-sec,
+     * else that value (jobs are exempt from the interactive timeout.max-sec)
+     */
+    private int resolveTimeoutSec(QueryRequest request) {
+        int max = properties.getJob().getTimeoutSec();
+        Integer timeout = request.getTimeoutSec();
+        if (timeout == null || timeout <= 0) {
+            return max;
+        }
+        return max > 0 ? Math.min(timeout, max) : timeout;
+    }
+
+    /**
+     * Job submitted by the user for the tenant / app; empty for unknown jobs and any other caller
+     */
+    public Optional<QueryJob> find(String jobId, String tenantCode, String appCode, String user) {
+        return Optional.ofNullable(jobs.get(jobId))
+            .filter(job -> job.isOwnedBy(tenantCode, appCode, user));
+    }
+
+    /**
+     * Read a page of spooled rows; the job must be COMPLETED.
+     * The NDJSON lines are returned as {@code rowsJson} without being parsed, so values
+     * (e.g. NUMERIC beyond double precision) come back exactly as spooled.
+     */
+    public QueryResult readPage(QueryJob job, long offset, int limit) {
+        if (job.getStatus() != QueryJob.Status.COMPLETED) {
+            throw new IllegalStateException("Query job is not completed: " + job.getStatus());
+        }
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Invalid page: offset=" + offset + ", limit=" + limit);
+        }
+
+        int pageSize = Math.min(limit, properties.getJob().getMaxPageSize());
+        int indexInterval = properties.getJob().getIndexInterval();
+        StringBuilder rowsJson = new StringBuilder("[");
+        int rowCount = 0;
+
+        if (offset < job.getRowCount()) {
+            int slot = (int) (offset / indexInterval);
+            long skip = offset - (long) slot * indexInterval;
+            try (FileChannel channel = FileChannel.open(job.getSpoolFile(), StandardOpenOption.READ);
+                 BufferedReader reader = new BufferedReader(
+                     Channels.newReader(channel.position(job.getRowOffsets().get(slot)), StandardCharsets.UTF_8))) {
+                for (long i = 0; i < skip; i++) {
+                    reader.readLine();
+                }
+                String line;
+                while (rowCount < pageSize && (line = reader.readLine()) != null) {
+                    if (rowCount++ > 0) {
+                        rowsJson.append(',');
+                    }
+                    rowsJson.append(line);
+                }
+            } catch (IOException e) {
+                throw new DqesRuntimeException("Failed to read query job result: " + job.getId(), e);
+            }
+        }
+
+        QueryResult result = new QueryResult();
+        result.setRowsJson(rowsJson.append(']').toString());
+        result.setRowCount(rowCount);
+        result.setTotalCount(job.getRowCount());
+        return result;
+    }
+
+    /**
+     * Cancel a running job (its statement is cancelled on the database) and drop its result
+     */
+    public void cancel(QueryJob job) {
+        job.getCancellation().cancel();
+        jobs.remove(job.getId());
+        if (job.isDone()) {
+            deleteSpool(job);
+        }
+        // Otherwise the job thread deletes its spool once the cancelled statement returns
+        log.info("Query job {} cancelled", job.getId());
+    }
+
+    /**
+     * Drop jobs whose TTL has expired
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        Instant now = Instant.now();
+        jobs.values().removeIf(job -> {
+            Instant expiresAt = job.getExpiresAt();
+            if (expiresAt != null && expiresAt.isBefore(now)) {
+                deleteSpool(job);
+                log.debug("Query job {} expired", job.getId());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(job -> {
+            job.getCancellation().cancel();
+            deleteSpool(job);
+        });
+        jobs.clear();
+    }
+
+    private void deleteSpool(QueryJob job) {
+        try {
+            Files.deleteIfExists(job.getSpoolFile());
+        } catch (IOException e) {
+            log.warn("Failed to delete query job spool {}: {}", job.getSpoolFile(), e.getMessage());
+        }
+    }
+}
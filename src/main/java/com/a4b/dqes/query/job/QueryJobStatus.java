@@ -0,0 +1,30 @@
+package com.a4b.dqes.query.job;
+
+import java.time.Instant;
+import lombok.Data;
+
+/**
+ * Status DTO for an asynchronous query job
+ */
+@Data
+public class QueryJobStatus {
+    private String jobId;
+    private QueryJob.Status status;
+    private long rowCount;              // Rows spooled so far (final once COMPLETED)
+    private String error;
+    private Instant createdAt;
+    private Instant completedAt;
+    private Instant expiresAt;          // Spooled result is deleted after this instant
+
+    public static QueryJobStatus of(QueryJob job) {
+        QueryJobStatus status = new QueryJobStatus();
+        status.setJobId(job.getId());
+        status.setStatus(job.getStatus());
+        status.setRowCount(job.getRowCount());
+        status.setError(job.getError());
+        status.setCreatedAt(job.getCreatedAt());
+        status.setCompletedAt(job.getCompletedAt());
+        status.setExpiresAt(job.getExpiresAt());
+        return status;
+    }
+}
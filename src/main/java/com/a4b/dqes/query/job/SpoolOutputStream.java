@@ -0,0 +1,49 @@
+package com.a4b.dqes.query.job;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * NDJSON spool writer that counts rows as they are written and records the
+ * byte offset of every {@code indexInterval}-th row for page seeks.
+ */
+class SpoolOutputStream extends FilterOutputStream {
+
+    private final QueryJob job;
+    private final int indexInterval;
+    private long position;
+    private long rows;
+
+    SpoolOutputStream(OutputStream out, QueryJob job, int indexInterval) {
+        super(out);
+        this.job = job;
+        this.indexInterval = indexInterval;
+        job.getRowOffsets().add(0L);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        advance((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        for (int i = off; i < off + len; i++) {
+            advance(b[i]);
+        }
+    }
+
+    private void advance(byte b) {
+        position++;
+        if (b == '\n') {
+            rows++;
+            job.setRowCount(rows);
+            if (rows % indexInterval == 0) {
+                job.getRowOffsets().add(position);
+            }
+        }
+    }
+}
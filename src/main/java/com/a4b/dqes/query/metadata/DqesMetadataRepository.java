@@ -38,7 +38,7 @@ public class DqesMetadataRepository {
     public Optional<ObjectMeta> findObjectMeta(String tenantCode, String appCode, String objectCode) {
         String sql = """
             SELECT id, tenant_code, app_code, object_code, object_name, 
-                   db_table, alias_hint, dbconn_id, description, current_flg
+                   db_table, alias_hint, dbconn_id, description, result_cache_ttl_sec, current_flg
             FROM dqes.qrytb_object_meta
             WHERE tenant_code = :tenantCode
               AND app_code = :appCode
@@ -60,7 +60,7 @@ public class DqesMetadataRepository {
     public List<ObjectMeta> findAllObjectMeta(String tenantCode, String appCode, Integer dbconnId) {
         String sql = """
             SELECT id, tenant_code, app_code, object_code, object_name, 
-                   db_table, alias_hint, dbconn_id, description, current_flg
+                   db_table, alias_hint, dbconn_id, description, result_cache_ttl_sec, current_flg
             FROM dqes.qrytb_object_meta
             WHERE tenant_code = :tenantCode
               AND app_code = :appCode
@@ -208,7 +208,7 @@ public class DqesMetadataRepository {
         String sql = """
             SELECT id, tenant_code, app_code, object_code, field_code, field_label, alias_hint,
                    mapping_type, column_name, select_expr_code, filter_expr_code, expr_args,
-                   select_expr, filter_expr, expr_lang, data_type, not_null,
+                   select_expr, filter_expr, expr_lang, data_type, not_null, is_primary_key,
                    allow_select, allow_filter, allow_sort, default_select, description
             FROM dqes.qrytb_field_meta
             WHERE tenant_code = :tenantCode
@@ -234,7 +234,7 @@ public class DqesMetadataRepository {
         String sql = """
             SELECT id, tenant_code, app_code, object_code, field_code, field_label, alias_hint,
                    mapping_type, column_name, select_expr_code, filter_expr_code, expr_args,
-                   select_expr, filter_expr, expr_lang, data_type, not_null,
+                   select_expr, filter_expr, expr_lang, data_type, not_null, is_primary_key,
                    allow_select, allow_filter, allow_sort, default_select, description
             FROM dqes.qrytb_field_meta
             WHERE tenant_code = :tenantCode
@@ -281,6 +281,32 @@ public class DqesMetadataRepository {
         return results.isEmpty() ? Optional.empty() : Optional.of(results);
     }
     
+    // ========== DataType ==========
+    
+    /**
+     * PostgreSQL type name of a data type code (qrytb_data_type.pg_cast), e.g. INT -> bigint
+     */
+    @Cacheable(value = "dqes-data-type-cast", key = "#tenantCode + '_' + #appCode + '_' + #code")
+    public Optional<String> findDataTypePgCast(String tenantCode, String appCode, String code) {
+        String sql = """
+            SELECT pg_cast
+            FROM dqes.qrytb_data_type
+            WHERE tenant_code = :tenantCode
+              AND app_code = :appCode
+              AND code = :code
+              AND current_flg = true
+              AND record_status <> 'D'
+            """;
+        
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("tenantCode", tenantCode)
+            .addValue("appCode", appCode)
+            .addValue("code", code);
+        
+        List<String> results = jdbcTemplate.queryForList(sql, params, String.class);
+        return results.stream().filter(Objects::nonNull).findFirst();
+    }
+    
     // ========== ExprAllowlist ==========
     
     @Cacheable(value = "dqes-expr-allowlist", key = "#tenantCode + '_' + #appCode + '_' + #exprCode")
@@ -321,6 +347,7 @@ public class DqesMetadataRepository {
             meta.setAliasHint(rs.getString("alias_hint"));
             meta.setDbconnId(rs.getInt("dbconn_id"));
             meta.setDescription(rs.getString("description"));
+            meta.setResultCacheTtlSec(rs.getObject("result_cache_ttl_sec", Integer.class));
             meta.setCurrentFlg(rs.getBoolean("current_flg"));
             return meta;
         }
@@ -378,6 +405,7 @@ public class DqesMetadataRepository {
             meta.setExprLang(rs.getString("expr_lang"));
             meta.setDataType(rs.getString("data_type"));
             meta.setNotNull(rs.getBoolean("not_null"));
+            meta.setPrimaryKey(rs.getBoolean("is_primary_key"));
             meta.setAllowSelect(rs.getBoolean("allow_select"));
             meta.setAllowFilter(rs.getBoolean("allow_filter"));
             meta.setAllowSort(rs.getBoolean("allow_sort"));
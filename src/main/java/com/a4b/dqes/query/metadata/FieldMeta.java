@@ -38,6 +38,7 @@ public class FieldMeta {
     
     private String dataType;            // STRING, NUMBER, etc.
     private Boolean notNull;
+    private Boolean primaryKey;         // Part of the object's primary key
     private Boolean allowSelect;
     private Boolean allowFilter;
     private Boolean allowSort;
@@ -57,6 +58,10 @@ public class FieldMeta {
         return mappingType == MappingType.EXPR;
     }
     
+    public boolean isPrimaryKeyField() {
+        return Boolean.TRUE.equals(primaryKey);
+    }
+    
     public String getEffectiveSelectExpr() {
         if (isColumn()) {
             return columnName;
@@ -21,5 +21,6 @@ public class ObjectMeta {
     private String aliasHint;       // Hint only
     private Integer dbconnId;
     private String description;
+    private Integer resultCacheTtlSec;  // Result cache TTL; null = results not cached
     private Boolean currentFlg;
 }
@@ -1,5 +1,8 @@
 package com.a4b.dqes.query.planner;
 
+import com.a4b.dqes.config.QueryEngineProperties;
+import com.a4b.dqes.query.ast.AggregateNode;
+import com.a4b.dqes.query.ast.CollectionNode;
 import com.a4b.dqes.query.ast.FilterNode;
 import com.a4b.dqes.query.ast.JoinNode;
 import com.a4b.dqes.query.ast.JoinNode.JoinPredicate;
@@ -24,7 +27,10 @@ import org.springframework.stereotype.Component;
  * 1. Identify all required objects from SELECT/WHERE/ORDER BY
  * 2. Use qrytb_object_path_cache for shortest paths (pre-computed via BFS)
  * 3. Resolve relation dependencies (depends_on_code) for topological order
- * 4. Apply EXISTS strategy for ONE_TO_MANY filter-only relations
+ * 4. Apply EXISTS strategy for ONE_TO_MANY filter-only relations; every later hop of a
+ *    filter-only path through such a relation is evaluated inside the semi-join (EXISTS chain)
+ * 5. Requested nested collections (selected objects behind a trailing ONE_TO_MANY hop) become
+ *    LATERAL arrays; filters on them still select parents through EXISTS
  */
 @Slf4j
 @Component
@@ -32,6 +38,7 @@ import org.springframework.stereotype.Component;
 public class JoinPathPlanner {
     
     private final DqesMetadataRepository metadataRepo;
+    private final QueryEngineProperties properties;
     
     /**
      * Plan JOIN graph for the query AST
@@ -47,6 +54,9 @@ public class JoinPathPlanner {
         referencedObjects.remove(rootObject); // Root doesn't need JOIN
         
         if (referencedObjects.isEmpty()) {
+            if (!ast.getCollections().isEmpty()) {
+                throw notACollection(ast.getCollections().get(0).getObjectCode());
+            }
             log.debug("No joins needed for root object: {}", rootObject);
             return;
         }
@@ -99,17 +109,56 @@ public class JoinPathPlanner {
             ));
 
         
-        // 5. Build JoinNodes from relations
-        List<JoinNode> joinNodes = new ArrayList<>();
+        // 5. Nested collections: the hops before their ONE_TO_MANY relation are joined; the
+        //    relation itself is planned again (as EXISTS) only when filters use the object
+        Set<String> outputObjects = collectOutputObjects(ast);
+        Map<String, RelationMeta> collectionRelations = resolveCollections(ast, pathCache, relationMetaMap, outputObjects);
+        outputObjects.removeAll(collectionRelations.keySet());
+        Set<String> filterObjects = ast.getFilters().stream()
+            .map(FilterNode::getObjectCode)
+            .collect(Collectors.toSet());
+        
+        // 6. Build JoinNodes from relations; relations on the path to an output object must be joined
+        Set<String> outputRelations = pathCache.entrySet().stream()
+            .filter(e -> outputObjects.contains(e.getKey()))
+            .flatMap(e -> e.getValue().getPathRelationCodes().stream())
+            .collect(Collectors.toCollection(HashSet::new));
+        Set<String> joinedRelations = pathCache.entrySet().stream()
+            .filter(e -> !collectionRelations.containsKey(e.getKey()) || filterObjects.contains(e.getKey()))
+            .flatMap(e -> e.getValue().getPathRelationCodes().stream())
+            .collect(Collectors.toCollection(HashSet::new));
+        for (String objectCode : collectionRelations.keySet()) {
+            List<String> path = pathCache.get(objectCode).getPathRelationCodes();
+            outputRelations.addAll(path.subList(0, path.size() - 1));
+            joinedRelations.addAll(path.subList(0, path.size() - 1));
+        }
+        
+        Map<String, JoinNode> joinNodeMap = new LinkedHashMap<>();
         for (RelationMeta rel : relationMetaMap.values()) {
-            JoinNode joinNode = buildJoinNode(rel, ast);
-            joinNodes.add(joinNode);
+            if (joinedRelations.contains(rel.getCode())) {
+                JoinNode joinNode = buildJoinNode(rel, outputRelations.contains(rel.getCode()));
+                joinNodeMap.put(rel.getCode(), joinNode);
+            }
         }
+        // A filtered collection object selects parents by semi-join; joining it would multiply them
+        for (RelationMeta rel : collectionRelations.values()) {
+            JoinNode filterJoin = joinNodeMap.get(rel.getCode());
+            if (filterJoin != null && filterJoin.getStrategy() == JoinStrategy.JOIN) {
+                filterJoin.setStrategy(JoinStrategy.EXISTS);
+            }
+        }
+        applyExistsChains(pathCache, joinNodeMap, outputRelations);
+        List<JoinNode> joinNodes = new ArrayList<>(joinNodeMap.values());
         
-        // 6. Topological sort based on depends_on_code
+        // 7. Topological sort based on depends_on_code; collections follow the joins they hang off
         List<JoinNode> sortedJoins = topologicalSort(joinNodes, relationMetaMap);
+        for (RelationMeta rel : collectionRelations.values()) {
+            JoinNode lateral = buildJoinNode(rel, true);
+            lateral.setStrategy(JoinStrategy.LATERAL);
+            sortedJoins.add(lateral);
+        }
         
-        // 7. Set execution order
+        // 8. Set execution order
         for (int i = 0; i < sortedJoins.size(); i++) {
             sortedJoins.get(i).setExecutionOrder(i);
         }
@@ -135,28 +184,135 @@ public class JoinPathPlanner {
             objects.add(filter.getObjectCode());
         }
         
-        // From ORDER BY
+        // From ORDER BY (aggregate sorts reference no object)
         for (SortNode sort : ast.getSorts()) {
-            objects.add(sort.getObjectCode());
+            if (!sort.isAggregateSort()) {
+                objects.add(sort.getObjectCode());
+            }
         }
         
+        // From GROUP BY / aggregates (COUNT(*) references no object)
+        for (SelectNode group : ast.getGroupBy()) {
+            objects.add(group.getObjectCode());
+        }
+        for (AggregateNode aggregate : ast.getAggregates()) {
+            if (!aggregate.isCountAll()) {
+                objects.add(aggregate.getObjectCode());
+            }
+        }
+        
+        return objects;
+    }
+    
+    /**
+     * Objects whose values reach the result: SELECT, ORDER BY, GROUP BY and aggregates
+     */
+    private Set<String> collectOutputObjects(QueryAST ast) {
+        Set<String> objects = new HashSet<>();
+        ast.getSelects().forEach(s -> objects.add(s.getObjectCode()));
+        ast.getSorts().stream()
+            .filter(s -> !s.isAggregateSort())
+            .forEach(s -> objects.add(s.getObjectCode()));
+        ast.getGroupBy().forEach(g -> objects.add(g.getObjectCode()));
+        ast.getAggregates().stream()
+            .filter(a -> !a.isCountAll())
+            .forEach(a -> objects.add(a.getObjectCode()));
         return objects;
     }
     
+    /**
+     * Nested collections requested in QueryAST.collections, keyed by object code with their
+     * ONE_TO_MANY relation. Opt-in per request: other selected objects keep the joined shape.
+     * A collection object must be selected, reached through a single to-many relation as the
+     * last hop, not sorted or grouped at the top level and have no other output object behind
+     * it. Resolves each collection's element limit.
+     */
+    private Map<String, RelationMeta> resolveCollections(QueryAST ast, Map<String, ObjectPathCache> pathCache,
+                                                         Map<String, RelationMeta> relationMetaMap,
+                                                         Set<String> outputObjects) {
+        Set<String> sortedOrGrouped = new HashSet<>();
+        ast.getSorts().stream()
+            .filter(s -> !s.isAggregateSort())
+            .forEach(s -> sortedOrGrouped.add(s.getObjectCode()));
+        ast.getGroupBy().forEach(g -> sortedOrGrouped.add(g.getObjectCode()));
+        
+        QueryEngineProperties.NestedCollection limits = properties.getNestedCollection();
+        Map<String, RelationMeta> collections = new LinkedHashMap<>();
+        for (CollectionNode collection : ast.getCollections()) {
+            String objectCode = collection.getObjectCode();
+            boolean selected = ast.getSelects().stream().anyMatch(s -> s.getObjectCode().equals(objectCode));
+            ObjectPathCache path = pathCache.get(objectCode);
+            List<RelationMeta> hops = path != null
+                ? path.getPathRelationCodes().stream().map(relationMetaMap::get).toList()
+                : List.of();
+            if (!selected || hops.isEmpty() || hops.contains(null) || sortedOrGrouped.contains(objectCode)) {
+                throw notACollection(objectCode);
+            }
+            
+            RelationMeta last = hops.get(hops.size() - 1);
+            long toManyHops = hops.stream()
+                .filter(r -> r.getRelationType() == RelationMeta.RelationType.ONE_TO_MANY
+                    || r.getRelationType() == RelationMeta.RelationType.MANY_TO_MANY)
+                .count();
+            boolean objectsBehind = outputObjects.stream()
+                .filter(o -> !o.equals(objectCode) && pathCache.containsKey(o))
+                .anyMatch(o -> pathCache.get(o).getPathRelationCodes().contains(last.getCode()));
+            if (last.getRelationType() != RelationMeta.RelationType.ONE_TO_MANY || toManyHops != 1 || objectsBehind) {
+                throw notACollection(objectCode);
+            }
+            
+            int limit = collection.getLimit() != null ? collection.getLimit() : limits.getDefaultLimit();
+            collection.setLimit(Math.min(limit, limits.getMaxLimit()));
+            collections.put(objectCode, last);
+            log.debug("Nested collection {} via {} (limit {})", objectCode, last.getCode(), collection.getLimit());
+        }
+        return collections;
+    }
+    
+    private IllegalArgumentException notACollection(String objectCode) {
+        return new IllegalArgumentException("Not a nested collection (selected object behind a single "
+            + "ONE_TO_MANY relation, not sorted or grouped): " + objectCode);
+    }
+    
+    /**
+     * Once a path leaves the outer query through an EXISTS hop, the remaining hops run
+     * inside that semi-join (chained EXISTS), so intermediate objects are never joined
+     * into the outer query and cannot multiply its rows
+     */
+    private void applyExistsChains(Map<String, ObjectPathCache> pathCache, Map<String, JoinNode> joinNodeMap,
+                                   Set<String> outputRelations) {
+        for (ObjectPathCache path : pathCache.values()) {
+            boolean insideSemiJoin = false;
+            for (String relationCode : path.getPathRelationCodes()) {
+                JoinNode join = joinNodeMap.get(relationCode);
+                if (join == null || outputRelations.contains(relationCode)) {
+                    continue;
+                }
+                if (insideSemiJoin && join.getStrategy() == JoinStrategy.JOIN) {
+                    join.setStrategy(JoinStrategy.EXISTS);
+                    log.debug("Relation {} evaluated inside EXISTS chain", relationCode);
+                }
+                insideSemiJoin |= join.getStrategy() != JoinStrategy.JOIN;
+            }
+        }
+    }
+    
     /**
      * Build JoinNode from RelationMeta
      * Apply EXISTS strategy for ONE_TO_MANY filter-only relations
      */
-    private JoinNode buildJoinNode(RelationMeta rel, QueryAST ast) {
+    private JoinNode buildJoinNode(RelationMeta rel, boolean onOutputPath) {
         JoinNode joinNode = new JoinNode();
         joinNode.setRelationCode(rel.getCode());
         joinNode.setFromObjectCode(rel.getFromObjectCode());
         joinNode.setToObjectCode(rel.getToObjectCode());
         joinNode.setJoinType(rel.getJoinType() == RelationMeta.JoinType.INNER ? JoinType.INNER : JoinType.LEFT);
         joinNode.setDependsOnRelationCode(rel.getDependsOnCode());
+        joinNode.setToOne(rel.getRelationType() == RelationMeta.RelationType.MANY_TO_ONE
+            || rel.getRelationType() == RelationMeta.RelationType.ONE_TO_ONE);
         
         // Determine JOIN vs EXISTS strategy
-        JoinStrategy strategy = determineJoinStrategy(rel, ast);
+        JoinStrategy strategy = determineJoinStrategy(rel, onOutputPath);
         joinNode.setStrategy(strategy);
         
         // Map join keys
@@ -182,12 +338,11 @@ public class JoinPathPlanner {
      * 
      * Rules:
      * - EXISTS_ONLY: Always use EXISTS
-     * - EXISTS_PREFERRED: Use EXISTS if object is filter-only (not selected/sorted)
+     * - EXISTS_PREFERRED: Use EXISTS if filter-only (no selected/sorted/grouped object behind it)
      * - AUTO: Use EXISTS for ONE_TO_MANY filter-only
      * - JOIN_ONLY: Always use JOIN
      */
-    private JoinStrategy determineJoinStrategy(RelationMeta rel, QueryAST ast) {
-        String toObject = rel.getToObjectCode();
+    private JoinStrategy determineJoinStrategy(RelationMeta rel, boolean isUsedInOutput) {
         RelationMeta.FilterMode filterMode = rel.getFilterMode();
         
         // Force EXISTS
@@ -195,14 +350,6 @@ public class JoinPathPlanner {
             return JoinStrategy.EXISTS_ONLY;
         }
         
-        // Check if object is used in SELECT or ORDER BY
-        boolean isSelected = ast.getSelects().stream()
-            .anyMatch(s -> s.getObjectCode().equals(toObject));
-        boolean isSorted = ast.getSorts().stream()
-            .anyMatch(s -> s.getObjectCode().equals(toObject));
-        
-        boolean isUsedInOutput = isSelected || isSorted;
-        
         // Force JOIN
         if (filterMode == RelationMeta.FilterMode.JOIN_ONLY) {
             return JoinStrategy.JOIN;
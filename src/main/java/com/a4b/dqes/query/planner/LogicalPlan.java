@@ -0,0 +1,250 @@
+package com.a4b.dqes.query.planner;
+
+import com.a4b.dqes.query.ast.AggregateNode;
+import com.a4b.dqes.query.ast.CollectionNode;
+import com.a4b.dqes.query.ast.FilterNode;
+import com.a4b.dqes.query.ast.HavingNode;
+import com.a4b.dqes.query.ast.JoinNode;
+import com.a4b.dqes.query.ast.JoinNode.JoinStrategy;
+import com.a4b.dqes.query.ast.QueryAST;
+import com.a4b.dqes.query.ast.SelectNode;
+import com.a4b.dqes.query.ast.SortNode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Immutable logical plan of a planned query (between JoinPathPlanner and SqlGenerator)
+ *
+ * Built once from the QueryAST after join planning. Joins are split into real JOINs and
+ * EXISTS semi-join blocks, each block holding the filters evaluated inside it and the
+ * blocks of the next hops of its path (chained semi-joins), and nested collections
+ * (LATERAL arrays of selected ONE_TO_MANY objects); the remaining filters form the
+ * outer WHERE, so rendering needs no per-filter join scans.
+ * Aggregates are indexed by alias. {@link LogicalPlanOptimizer} rewrites the plan
+ * through copies ({@code with...}).
+ */
+@Getter
+public final class LogicalPlan {
+
+    private final String tenantCode;
+    private final String appCode;
+    private final String rootObject;
+
+    private final List<SelectNode> selects;
+    private final List<SortNode> sorts;
+    private final List<SelectNode> groupBy;
+    private final List<AggregateNode> aggregates;
+    private final List<HavingNode> having;
+
+    private final List<JoinNode> joins;             // Real JOINs, in execution order
+    private final List<ExistsBlock> existsBlocks;   // Semi-joins with their filters
+    private final List<PlanFilter> filters;         // Outer WHERE predicates
+    private final List<CollectionJoin> collections; // LATERAL nested arrays, after the joins
+
+    private final Integer limit;
+    private final Integer offset;
+    private final boolean keysetPagination;
+    private final List<String> keysetValues;
+    private final boolean windowCount;
+    private final boolean deferredJoin;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, AggregateNode> aggregateByAlias;
+
+    /**
+     * Filter of the request, kept with its request index (parameter bindings refer to it)
+     * alwaysFalse: folded to FALSE, rendered without its value
+     */
+    public record PlanFilter(int index, FilterNode node, boolean alwaysFalse) {
+
+        public String objectCode() {
+            return node.getObjectCode();
+        }
+    }
+
+    /**
+     * EXISTS semi-join on one relation with the filters evaluated inside it
+     * nested: semi-joins correlated to this block's object (next hops of a multi-hop path)
+     */
+    public record ExistsBlock(JoinNode join, List<PlanFilter> filters, List<ExistsBlock> nested) {
+
+        public ExistsBlock {
+            filters = List.copyOf(filters);
+            nested = List.copyOf(nested);
+        }
+
+        public String objectCode() {
+            return join.getToObjectCode();
+        }
+    }
+
+    /**
+     * Selected ONE_TO_MANY object aggregated per parent row (limit and element order)
+     */
+    public record CollectionJoin(JoinNode join, CollectionNode collection) {
+
+        public String objectCode() {
+            return join.getToObjectCode();
+        }
+    }
+
+    private LogicalPlan(QueryAST ast, List<JoinNode> joins, List<ExistsBlock> existsBlocks, List<PlanFilter> filters,
+                        List<CollectionJoin> collections) {
+        this.tenantCode = ast.getTenantCode();
+        this.appCode = ast.getAppCode();
+        this.rootObject = ast.getRootObject();
+        this.selects = List.copyOf(ast.getSelects());
+        this.sorts = List.copyOf(ast.getSorts());
+        this.groupBy = List.copyOf(ast.getGroupBy());
+        this.aggregates = List.copyOf(ast.getAggregates());
+        this.having = List.copyOf(ast.getHaving());
+        this.limit = ast.getLimit();
+        this.offset = ast.getOffset();
+        this.keysetPagination = ast.isKeysetPagination();
+        this.keysetValues = ast.getKeysetValues() != null     // Cursor values may be NULL (nullable sort keys)
+            ? Collections.unmodifiableList(new ArrayList<>(ast.getKeysetValues())) 
+            : null;
+        this.windowCount = ast.isWindowCount();
+        this.deferredJoin = ast.isDeferredJoin();
+        this.joins = List.copyOf(joins);
+        this.existsBlocks = List.copyOf(existsBlocks);
+        this.filters = List.copyOf(filters);
+        this.collections = List.copyOf(collections);
+
+        Map<String, AggregateNode> byAlias = new HashMap<>();
+        for (AggregateNode aggregate : this.aggregates) {
+            byAlias.putIfAbsent(aggregate.getAlias(), aggregate);
+        }
+        this.aggregateByAlias = Collections.unmodifiableMap(byAlias);
+    }
+
+    private LogicalPlan(LogicalPlan base, List<JoinNode> joins, List<ExistsBlock> existsBlocks,
+                        List<PlanFilter> filters) {
+        this.tenantCode = base.tenantCode;
+        this.appCode = base.appCode;
+        this.rootObject = base.rootObject;
+        this.selects = base.selects;
+        this.sorts = base.sorts;
+        this.groupBy = base.groupBy;
+        this.aggregates = base.aggregates;
+        this.having = base.having;
+        this.limit = base.limit;
+        this.offset = base.offset;
+        this.keysetPagination = base.keysetPagination;
+        this.keysetValues = base.keysetValues;
+        this.windowCount = base.windowCount;
+        this.deferredJoin = base.deferredJoin;
+        this.aggregateByAlias = base.aggregateByAlias;
+        this.collections = base.collections;
+        this.joins = List.copyOf(joins);
+        this.existsBlocks = List.copyOf(existsBlocks);
+        this.filters = List.copyOf(filters);
+    }
+
+    /**
+     * Initial plan: EXISTS strategy joins become empty blocks and every filter stays
+     * in the outer WHERE until {@link LogicalPlanOptimizer} pushes them down. An EXISTS
+     * join from an object that is itself reached by EXISTS is nested in that block.
+     */
+    public static LogicalPlan of(QueryAST ast) {
+        List<JoinNode> joins = new ArrayList<>();
+        List<CollectionJoin> collections = new ArrayList<>();
+        Map<String, List<JoinNode>> existsByFrom = new HashMap<>();
+        Set<String> existsObjects = new HashSet<>();
+        for (JoinNode join : ast.getJoins()) {
+            switch (join.getStrategy()) {
+                case JOIN -> joins.add(join);
+                case LATERAL -> collections.add(new CollectionJoin(join, ast.findCollection(join.getToObjectCode())));
+                case EXISTS, EXISTS_ONLY -> {
+                    existsByFrom.computeIfAbsent(join.getFromObjectCode(), k -> new ArrayList<>()).add(join);
+                    existsObjects.add(join.getToObjectCode());
+                }
+            }
+        }
+
+        List<ExistsBlock> existsBlocks = new ArrayList<>();
+        for (JoinNode join : ast.getJoins()) {
+            boolean semiJoin = join.getStrategy() == JoinStrategy.EXISTS || join.getStrategy() == JoinStrategy.EXISTS_ONLY;
+            if (semiJoin && !existsObjects.contains(join.getFromObjectCode())) {
+                existsBlocks.add(emptyBlock(join, existsByFrom));
+            }
+        }
+
+        List<PlanFilter> filters = new ArrayList<>();
+        for (int i = 0; i < ast.getFilters().size(); i++) {
+            filters.add(new PlanFilter(i, ast.getFilters().get(i), false));
+        }
+        return new LogicalPlan(ast, joins, existsBlocks, filters, collections);
+    }
+
+    private static ExistsBlock emptyBlock(JoinNode join, Map<String, List<JoinNode>> existsByFrom) {
+        List<ExistsBlock> nested = existsByFrom.getOrDefault(join.getToObjectCode(), List.of()).stream()
+            .map(next -> emptyBlock(next, existsByFrom))
+            .toList();
+        return new ExistsBlock(join, List.of(), nested);
+    }
+
+    public LogicalPlan withJoins(List<JoinNode> joins) {
+        return new LogicalPlan(this, joins, existsBlocks, filters);
+    }
+
+    public LogicalPlan withExistsBlocks(List<ExistsBlock> existsBlocks) {
+        return new LogicalPlan(this, joins, existsBlocks, filters);
+    }
+
+    public LogicalPlan withFilters(List<PlanFilter> filters) {
+        return new LogicalPlan(this, joins, existsBlocks, filters);
+    }
+
+    public boolean isAggregate() {
+        return !groupBy.isEmpty() || !aggregates.isEmpty();
+    }
+
+    public AggregateNode findAggregate(String alias) {
+        return aggregateByAlias.get(alias);
+    }
+
+    public CollectionJoin findCollection(String objectCode) {
+        return collections.stream()
+            .filter(c -> c.objectCode().equals(objectCode))
+            .findFirst()
+            .orElse(null);
+    }
+
+    /**
+     * LEFT to-one JOINs to objects outside {@code usedObjects} that no other join (or EXISTS
+     * block, or nested collection) hangs off: leaving them out changes neither the row set
+     * nor row multiplicity.
+     * Keyed by joined object code, in join order.
+     */
+    public Map<String, JoinNode> findRemovableJoins(Set<String> usedObjects) {
+        Map<String, JoinNode> removable = new LinkedHashMap<>();
+        for (JoinNode join : joins) {
+            if (join.getJoinType() == JoinNode.JoinType.LEFT && join.isToOne()
+                && !usedObjects.contains(join.getToObjectCode())) {
+                removable.put(join.getToObjectCode(), join);
+            }
+        }
+
+        // Keep joins that a kept join, an EXISTS block or a collection hangs off, until stable
+        boolean changed = true;
+        while (changed) {
+            changed = removable.values().removeIf(join ->
+                joins.stream().anyMatch(other -> other.getFromObjectCode().equals(join.getToObjectCode())
+                    && !removable.containsKey(other.getToObjectCode()))
+                || existsBlocks.stream().anyMatch(block ->
+                    block.join().getFromObjectCode().equals(join.getToObjectCode()))
+                || collections.stream().anyMatch(collection ->
+                    collection.join().getFromObjectCode().equals(join.getToObjectCode())));
+        }
+        return removable;
+    }
+}
@@ -0,0 +1,220 @@
+package com.a4b.dqes.query.planner;
+
+import com.a4b.dqes.query.ast.AggregateNode;
+import com.a4b.dqes.query.ast.JoinNode;
+import com.a4b.dqes.query.ast.SelectNode;
+import com.a4b.dqes.query.ast.SortNode;
+import com.a4b.dqes.query.planner.LogicalPlan.ExistsBlock;
+import com.a4b.dqes.query.planner.LogicalPlan.PlanFilter;
+import java.util.*;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rewrite passes over the logical plan, run in order before SQL rendering
+ *
+ * 1. Push filters on EXISTS objects into their semi-join block (at any depth of a chain)
+ * 2. Merge EXISTS blocks on the same relation
+ * 3. Fold empty IN lists (IN () is FALSE, NOT_IN () is TRUE)
+ * 4. Eliminate LEFT to-one JOINs nothing references
+ *
+ * Folding depends on list emptiness, which is part of the plan cache key.
+ */
+@Slf4j
+@Component
+public class LogicalPlanOptimizer {
+
+    private static final List<UnaryOperator<LogicalPlan>> PASSES = List.of(
+        LogicalPlanOptimizer::pushDownExistsPredicates,
+        LogicalPlanOptimizer::mergeExistsBlocks,
+        LogicalPlanOptimizer::foldEmptyInLists,
+        LogicalPlanOptimizer::eliminateRedundantJoins
+    );
+
+    /**
+     * Apply all passes
+     */
+    public LogicalPlan optimize(LogicalPlan plan) {
+        for (UnaryOperator<LogicalPlan> pass : PASSES) {
+            plan = pass.apply(plan);
+        }
+
+        log.debug("Optimized plan: {} joins, {} EXISTS blocks, {} WHERE filters",
+            plan.getJoins().size(), plan.getExistsBlocks().size(), plan.getFilters().size());
+
+        return plan;
+    }
+
+    /**
+     * Move filters on EXISTS objects into their block; blocks that receive no filter and
+     * keep no nested block are dropped (the planner only chooses EXISTS for filtered objects)
+     */
+    static LogicalPlan pushDownExistsPredicates(LogicalPlan plan) {
+        if (plan.getExistsBlocks().isEmpty()) {
+            return plan;
+        }
+
+        Map<String, List<PlanFilter>> pushed = new HashMap<>();
+        plan.getExistsBlocks().forEach(block -> collectBlockFilters(block, pushed));
+
+        List<PlanFilter> outer = new ArrayList<>();
+        for (PlanFilter filter : plan.getFilters()) {
+            List<PlanFilter> target = pushed.get(filter.objectCode());
+            if (target != null) {
+                target.add(filter);
+            } else {
+                outer.add(filter);
+            }
+        }
+
+        return plan.withExistsBlocks(pushDown(plan.getExistsBlocks(), pushed)).withFilters(outer);
+    }
+
+    private static void collectBlockFilters(ExistsBlock block, Map<String, List<PlanFilter>> pushed) {
+        pushed.computeIfAbsent(block.objectCode(), k -> new ArrayList<>()).addAll(block.filters());
+        block.nested().forEach(nested -> collectBlockFilters(nested, pushed));
+    }
+
+    private static List<ExistsBlock> pushDown(List<ExistsBlock> blocks, Map<String, List<PlanFilter>> pushed) {
+        List<ExistsBlock> result = new ArrayList<>();
+        for (ExistsBlock block : blocks) {
+            List<PlanFilter> filters = pushed.get(block.objectCode());
+            List<ExistsBlock> nested = pushDown(block.nested(), pushed);
+            if (!filters.isEmpty() || !nested.isEmpty()) {
+                result.add(new ExistsBlock(block.join(), filters, nested));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * One semi-join per relation and correlating object: filters of blocks on the same
+     * relation are evaluated against the same child row
+     */
+    static LogicalPlan mergeExistsBlocks(LogicalPlan plan) {
+        if (plan.getExistsBlocks().isEmpty()) {
+            return plan;
+        }
+        return plan.withExistsBlocks(merge(plan.getExistsBlocks()));
+    }
+
+    private static List<ExistsBlock> merge(List<ExistsBlock> blocks) {
+        Map<List<String>, ExistsBlock> merged = new LinkedHashMap<>();
+        for (ExistsBlock block : blocks) {
+            List<String> key = List.of(block.join().getRelationCode(), block.join().getFromObjectCode());
+            merged.merge(key, block, (first, next) -> {
+                List<PlanFilter> filters = new ArrayList<>(first.filters());
+                next.filters().stream()
+                    .filter(f -> !filters.contains(f))
+                    .forEach(filters::add);
+                List<ExistsBlock> nested = new ArrayList<>(first.nested());
+                nested.addAll(next.nested());
+                return new ExistsBlock(first.join(), filters, nested);
+            });
+        }
+
+        return merged.values().stream()
+            .map(block -> new ExistsBlock(block.join(), block.filters(), merge(block.nested())))
+            .toList();
+    }
+
+    /**
+     * IN with an empty list matches nothing: the filter becomes FALSE (inside an EXISTS
+     * block the whole block does, up to the outermost block of its chain). NOT_IN with an
+     * empty list matches everything and is dropped.
+     */
+    static LogicalPlan foldEmptyInLists(LogicalPlan plan) {
+        List<PlanFilter> outer = new ArrayList<>();
+        for (PlanFilter filter : plan.getFilters()) {
+            PlanFilter folded = foldEmptyIn(filter);
+            if (folded != null) {
+                outer.add(folded);
+            }
+        }
+
+        List<ExistsBlock> blocks = new ArrayList<>();
+        for (ExistsBlock block : plan.getExistsBlocks()) {
+            List<PlanFilter> alwaysFalse = new ArrayList<>(1);
+            ExistsBlock folded = foldEmptyInLists(block, alwaysFalse);
+            if (folded != null) {
+                blocks.add(folded);
+            } else {
+                outer.add(alwaysFalse.get(0));
+            }
+        }
+
+        return plan.withExistsBlocks(blocks).withFilters(outer);
+    }
+
+    /**
+     * Folded block; null when it can never match (the FALSE filter is added to alwaysFalse)
+     */
+    private static ExistsBlock foldEmptyInLists(ExistsBlock block, List<PlanFilter> alwaysFalse) {
+        List<PlanFilter> filters = new ArrayList<>();
+        for (PlanFilter filter : block.filters()) {
+            PlanFilter folded = foldEmptyIn(filter);
+            if (folded == null) {
+                continue;
+            }
+            if (folded.alwaysFalse()) {
+                alwaysFalse.add(folded);
+                return null;
+            }
+            filters.add(folded);
+        }
+
+        List<ExistsBlock> nested = new ArrayList<>();
+        for (ExistsBlock next : block.nested()) {
+            ExistsBlock folded = foldEmptyInLists(next, alwaysFalse);
+            if (folded == null) {
+                return null;
+            }
+            nested.add(folded);
+        }
+        return new ExistsBlock(block.join(), filters, nested);
+    }
+
+    /**
+     * Folded filter; null when it is always true
+     */
+    private static PlanFilter foldEmptyIn(PlanFilter filter) {
+        boolean emptyList = filter.node().getValue() instanceof Collection<?> values && values.isEmpty();
+        if (!emptyList) {
+            return filter;
+        }
+        return switch (filter.node().getOperatorCode()) {
+            case "IN" -> new PlanFilter(filter.index(), filter.node(), true);
+            case "NOT_IN" -> null;
+            default -> filter;
+        };
+    }
+
+    /**
+     * Drop LEFT to-one JOINs to objects no select, filter, sort, group or aggregate uses
+     */
+    static LogicalPlan eliminateRedundantJoins(LogicalPlan plan) {
+        Set<String> usedObjects = new HashSet<>();
+        plan.getSelects().stream().map(SelectNode::getObjectCode).forEach(usedObjects::add);
+        plan.getFilters().stream().map(PlanFilter::objectCode).forEach(usedObjects::add);
+        plan.getSorts().stream()
+            .filter(s -> !s.isAggregateSort())
+            .map(SortNode::getObjectCode)
+            .forEach(usedObjects::add);
+        plan.getGroupBy().stream().map(SelectNode::getObjectCode).forEach(usedObjects::add);
+        plan.getAggregates().stream()
+            .filter(a -> !a.isCountAll())
+            .map(AggregateNode::getObjectCode)
+            .forEach(usedObjects::add);
+
+        Map<String, JoinNode> removable = plan.findRemovableJoins(usedObjects);
+        if (removable.isEmpty()) {
+            return plan;
+        }
+
+        log.debug("Eliminated unused joins to {}", removable.keySet());
+        return plan.withJoins(plan.getJoins().stream()
+            .filter(join -> removable.get(join.getToObjectCode()) != join)
+            .toList());
+    }
+}
@@ -11,9 +11,11 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.sql.DataSource;
 
@@ -28,6 +30,8 @@ import com.a4b.dqes.crypto.CryptoService;
 import com.a4b.dqes.dto.record.DbConnInfo;
 import com.a4b.dqes.dto.record.MetaRefreshStats;
 import com.a4b.dqes.query.DynamicDataSourceService;
+import com.a4b.dqes.query.QueryPlanCache;
+import com.a4b.dqes.query.QueryResultCache;
 import com.google.common.base.CaseFormat;
 
 import lombok.RequiredArgsConstructor;
@@ -40,6 +44,8 @@ public class MetadataRefreshService {
     private final NamedParameterJdbcTemplate dqesJdbc;
     private final JdbcTemplate dqesPlainJdbc; // dùng batchUpdate nhanh hơn
     private final CryptoService cryptoService;
+    private final QueryPlanCache queryPlanCache;
+    private final QueryResultCache queryResultCache;
 
     private static final int BATCH_SIZE = 500;
 
@@ -59,7 +65,7 @@ public class MetadataRefreshService {
             String tenant, String app, String objectCode,
             String fieldCode, String fieldLabel,
             String columnName, String aliasHint, String dataType,
-            boolean notNull, String description, String fts
+            boolean notNull, boolean primaryKey, String description, String fts
     ) {}
 
         private record RelationRow(
@@ -119,6 +125,10 @@ public class MetadataRefreshService {
             if (targetDs instanceof com.zaxxer.hikari.HikariDataSource hk) hk.close();
         }
 
+        // compiled query plans reference the old metadata
+        queryPlanCache.invalidate(tenantCode, appCode);
+        queryResultCache.evictAll(tenantCode, appCode);
+
                 // 3) optional: refresh path cache
         // dqesJdbc.getJdbcTemplate().execute(
         //         "CALL dqes.refresh_qry_object_paths(?, ?, ?, ?)",
@@ -193,6 +203,13 @@ public class MetadataRefreshService {
                 String schema = parts[0];
                 String table  = parts[1];
 
+                Set<String> pkColumns = new HashSet<>();
+                try (ResultSet pk = md.getPrimaryKeys(cx.getCatalog(), schema, table)) {
+                    while (pk.next()) {
+                        pkColumns.add(pk.getString("COLUMN_NAME"));
+                    }
+                }
+
                 try (ResultSet cols = md.getColumns(cx.getCatalog(), schema, table, "%")) {
                     while (cols.next()) {
                         String colName = cols.getString("COLUMN_NAME");
@@ -210,6 +227,7 @@ public class MetadataRefreshService {
                                 fieldCode, humanize(colName), 
                                 colName,aliasHint, dataTypeCode,
                                 nullable != DatabaseMetaData.columnNullable,
+                                pkColumns.contains(colName),
                                 remarks,
                                 objectCode + " " + fieldCode + " " + colName + " " + colName
                         ));
@@ -385,10 +403,10 @@ public class MetadataRefreshService {
         final String sql = """
             INSERT INTO dqes.qrytb_field_meta
               (object_code, field_code, field_label, alias_hint, mapping_type, column_name,
-               data_type, not_null, allow_select, allow_filter, allow_sort,
+               data_type, not_null, is_primary_key, allow_select, allow_filter, allow_sort,
                description, fts_string_value, tenant_code, app_code)
             VALUES
-              (?, ?, ?, ?, ?, ?, ?, ?, true, true, true, ?, ?, ?, ?)
+              (?, ?, ?, ?, ?, ?, ?, ?, ?, true, true, true, ?, ?, ?, ?)
             ON CONFLICT (tenant_code, app_code, object_code, field_code)
             DO UPDATE SET
                 field_label      = EXCLUDED.field_label,
@@ -397,6 +415,7 @@ public class MetadataRefreshService {
                 column_name      = EXCLUDED.column_name,
                 data_type        = EXCLUDED.data_type,
                 not_null         = EXCLUDED.not_null,
+                is_primary_key   = EXCLUDED.is_primary_key,
                 allow_select     = TRUE,
                 allow_filter     = TRUE,
                 allow_sort       = TRUE,
@@ -413,10 +432,11 @@ public class MetadataRefreshService {
             ps.setString(6, r.columnName());
             ps.setString(7, r.dataType());
             ps.setBoolean(8, r.notNull());
-            ps.setString(9, r.description());
-            ps.setString(10, r.fts());
-            ps.setString(11, r.tenant());
-            ps.setString(12, r.app());
+            ps.setBoolean(9, r.primaryKey());
+            ps.setString(10, r.description());
+            ps.setString(11, r.fts());
+            ps.setString(12, r.tenant());
+            ps.setString(13, r.app());
         });
     }
 
@@ -1,21 +1,55 @@
 package com.a4b.dqes.web.rest;
 
+import com.a4b.dqes.config.AsyncConfiguration;
+import com.a4b.dqes.exception.QueryCancelledException;
+import com.a4b.dqes.exception.QueryRejectedException;
+import com.a4b.dqes.exception.QueryThrottledException;
+import com.a4b.dqes.query.BatchQueryExecutor;
+import com.a4b.dqes.query.BatchQueryRequest;
+import com.a4b.dqes.query.BatchQueryResult;
 import com.a4b.dqes.query.DynamicQueryExecutor;
+import com.a4b.dqes.query.QueryCancellation;
 import com.a4b.dqes.query.QueryRequest;
 import com.a4b.dqes.query.QueryResult;
+import com.a4b.dqes.query.QueryResultCache;
+import com.a4b.dqes.query.TotalCount;
+import com.a4b.dqes.query.job.QueryJobService;
+import com.a4b.dqes.query.job.QueryJobStatus;
+import com.a4b.dqes.security.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST Controller for Dynamic Query Engine
  * 
  * Endpoints:
- * - POST /api/dqes/query/execute - Execute dynamic query
+ * - POST /api/dqes/query/execute - Execute dynamic query (Arrow IPC stream with Accept: application/vnd.apache.arrow.stream)
  * - POST /api/dqes/query/count - Get count only
+ * - POST /api/dqes/query/stream - Stream rows as NDJSON
+ * - POST /api/dqes/query/batch - Execute named queries concurrently
+ * - DELETE /api/dqes/query/cache - Evict cached query results
+ * - POST /api/dqes/query/jobs - Submit asynchronous query job
+ * - GET /api/dqes/query/jobs/{jobId} - Job status
+ * - GET /api/dqes/query/jobs/{jobId}/rows - Page through spooled job rows
+ * - DELETE /api/dqes/query/jobs/{jobId} - Cancel job / drop its result
+ * Job endpoints only see jobs of the calling user for the given tenant / app (404 otherwise).
  */
 @Slf4j
 @RestController
@@ -24,35 +58,245 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "Dynamic Query Engine", description = "Execute dynamic queries with multi-hop joins")
 public class DynamicQueryResource {
     
+    /** Response header naming why a query was cancelled (TIMEOUT / CLIENT_ABORT) */
+    public static final String QUERY_CANCELLED_HEADER = "X-Dqes-Query-Cancelled";
+    
+    /** Response header naming why a query was refused (COST / RESULT_SIZE) */
+    public static final String QUERY_REJECTED_HEADER = "X-Dqes-Query-Rejected";
+    
+    /** Response header set to true when /count returned an estimate (countMode ESTIMATE / AUTO) */
+    public static final String COUNT_ESTIMATED_HEADER = "X-Dqes-Count-Estimated";
+    
+    /** Arrow IPC streaming format */
+    public static final String ARROW_STREAM_VALUE = "application/vnd.apache.arrow.stream";
+    
+    private static final long NO_ASYNC_TIMEOUT = 0L;
+    
     private final DynamicQueryExecutor queryExecutor;
+    private final BatchQueryExecutor batchExecutor;
+    private final QueryResultCache resultCache;
+    private final QueryJobService jobService;
+    @Qualifier(AsyncConfiguration.WORKER_EXECUTOR_BEAN_NAME)
+    private final ExecutorService workerExecutor;
     
     @PostMapping("/execute")
     @Operation(summary = "Execute dynamic query", 
                description = "Execute a dynamic query with SELECT, WHERE, ORDER BY, and multi-hop JOINs")
-    public ResponseEntity<QueryResult> executeQuery(@RequestBody QueryRequest request) {
+    public DeferredResult<ResponseEntity<QueryResult>> executeQuery(@RequestBody QueryRequest request) {
         log.info("POST /api/dqes/query/execute - root={}", request.getRootObjectCode());
         
-        try {
-            QueryResult result = queryExecutor.execute(request);
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            log.error("Query execution failed", e);
-            return ResponseEntity.badRequest().build();
-        }
+        return runCancellable("Query execution", cancellation -> queryExecutor.execute(request, cancellation));
+    }
+    
+    @PostMapping(value = "/execute", produces = ARROW_STREAM_VALUE)
+    @Operation(summary = "Execute dynamic query as Arrow", 
+               description = "Stream the query result as Arrow IPC record batches (columnar, no JSON parsing)")
+    public ResponseEntity<StreamingResponseBody> executeQueryArrow(@RequestBody QueryRequest request,
+                                                                   WebRequest webRequest) {
+        log.info("POST /api/dqes/query/execute (arrow) - root={}", request.getRootObjectCode());
+        
+        QueryCancellation cancellation = streamCancellation("Arrow query", webRequest);
+        StreamingResponseBody body = out -> queryExecutor.streamArrow(request, out, cancellation);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(ARROW_STREAM_VALUE))
+            .body(body);
     }
     
     @PostMapping("/count")
     @Operation(summary = "Get query count", 
-               description = "Get count of rows matching the query criteria")
-    public ResponseEntity<Long> executeCount(@RequestBody QueryRequest request) {
+               description = "Get count of rows matching the query criteria (countMode ESTIMATE/AUTO may estimate)")
+    public DeferredResult<ResponseEntity<Long>> executeCount(@RequestBody QueryRequest request) {
         log.info("POST /api/dqes/query/count - root={}", request.getRootObjectCode());
         
+        return runCancellableResponse("Count query", cancellation -> {
+            TotalCount count = queryExecutor.executeTotalCount(request, cancellation);
+            return ResponseEntity.ok()
+                .header(COUNT_ESTIMATED_HEADER, String.valueOf(count.estimated()))
+                .body(count.count());
+        });
+    }
+    
+    @PostMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream dynamic query", 
+               description = "Stream rows as newline-delimited JSON through a forward-only database cursor")
+    public ResponseEntity<StreamingResponseBody> streamQuery(@RequestBody QueryRequest request,
+                                                             WebRequest webRequest) {
+        log.info("POST /api/dqes/query/stream - root={}", request.getRootObjectCode());
+        
+        QueryCancellation cancellation = streamCancellation("Query stream", webRequest);
+        StreamingResponseBody body = out -> queryExecutor.stream(request, out, cancellation);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
+    }
+    
+    @PostMapping("/batch")
+    @Operation(summary = "Execute query batch", 
+               description = "Execute named queries concurrently; failures are reported per query")
+    public DeferredResult<ResponseEntity<BatchQueryResult>> executeBatch(@RequestBody BatchQueryRequest request) {
+        log.info("POST /api/dqes/query/batch - queries={}", 
+            request.getQueries() != null ? request.getQueries().size() : 0);
+        
+        return runCancellable("Batch execution", cancellation -> batchExecutor.execute(request, cancellation));
+    }
+    
+    @DeleteMapping("/cache")
+    @Operation(summary = "Evict cached query results", 
+               description = "Evict cached results reading the given object, or all results of the tenant/app")
+    public ResponseEntity<Void> evictCache(@RequestParam String tenantCode, 
+                                           @RequestParam String appCode,
+                                           @RequestParam(required = false) String objectCode) {
+        log.info("DELETE /api/dqes/query/cache - tenant={}, app={}, object={}", tenantCode, appCode, objectCode);
+        
+        if (objectCode != null) {
+            resultCache.evict(tenantCode, appCode, objectCode);
+        } else {
+            resultCache.evictAll(tenantCode, appCode);
+        }
+        return ResponseEntity.noContent().build();
+    }
+    
+    @PostMapping("/jobs")
+    @Operation(summary = "Submit query job", 
+               description = "Run the query asynchronously, spooling rows for later paging")
+    public ResponseEntity<QueryJobStatus> submitJob(@RequestBody QueryRequest request) {
+        log.info("POST /api/dqes/query/jobs - root={}", request.getRootObjectCode());
+        
         try {
-            long count = queryExecutor.executeCount(request);
-            return ResponseEntity.ok(count);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(QueryJobStatus.of(jobService.submit(request, currentUser())));
+        } catch (QueryThrottledException e) {
+            log.warn("Query job rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSec()))
+                .build();
         } catch (Exception e) {
-            log.error("Count query failed", e);
+            log.error("Query job submission failed", e);
             return ResponseEntity.badRequest().build();
         }
     }
+    
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Get query job status")
+    public ResponseEntity<QueryJobStatus> getJob(@PathVariable String jobId,
+                                                 @RequestParam String tenantCode,
+                                                 @RequestParam String appCode) {
+        return ResponseEntity.of(jobService.find(jobId, tenantCode, appCode, currentUser()).map(QueryJobStatus::of));
+    }
+    
+    @GetMapping("/jobs/{jobId}/rows")
+    @Operation(summary = "Get query job rows", 
+               description = "Page through the spooled rows of a completed job")
+    public ResponseEntity<QueryResult> getJobRows(@PathVariable String jobId,
+                                                  @RequestParam String tenantCode,
+                                                  @RequestParam String appCode,
+                                                  @RequestParam(defaultValue = "0") long offset,
+                                                  @RequestParam(defaultValue = "1000") int limit) {
+        return jobService.find(jobId, tenantCode, appCode, currentUser())
+            .map(job -> {
+                try {
+                    return ResponseEntity.ok(jobService.readPage(job, offset, limit));
+                } catch (IllegalStateException e) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT).<QueryResult>build();
+                } catch (Exception e) {
+                    log.error("Reading query job rows failed", e);
+                    return ResponseEntity.badRequest().<QueryResult>build();
+                }
+            })
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    @DeleteMapping("/jobs/{jobId}")
+    @Operation(summary = "Cancel query job", 
+               description = "Cancel a running job or drop a finished job's spooled result")
+    public ResponseEntity<Void> cancelJob(@PathVariable String jobId,
+                                          @RequestParam String tenantCode,
+                                          @RequestParam String appCode) {
+        log.info("DELETE /api/dqes/query/jobs/{}", jobId);
+        
+        return jobService.find(jobId, tenantCode, appCode, currentUser())
+            .map(job -> {
+                jobService.cancel(job);
+                return ResponseEntity.noContent().<Void>build();
+            })
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Login of the calling user; query jobs are scoped to it
+     */
+    private static String currentUser() {
+        return SecurityUtils.getCurrentUserLogin().orElse(null);
+    }
+    
+    /**
+     * Run the query off the servlet thread; when the client disconnects (async error)
+     * the running statements are cancelled on the database.
+     * No async timeout: every statement is bounded by its statement timeout.
+     */
+    private <T> DeferredResult<ResponseEntity<T>> runCancellable(String operation, 
+                                                                 Function<QueryCancellation, T> work) {
+        return runCancellableResponse(operation, cancellation -> ResponseEntity.ok(work.apply(cancellation)));
+    }
+    
+    private <T> DeferredResult<ResponseEntity<T>> runCancellableResponse(
+            String operation, Function<QueryCancellation, ResponseEntity<T>> work) {
+        QueryCancellation cancellation = new QueryCancellation();
+        DeferredResult<ResponseEntity<T>> deferred = new DeferredResult<>(NO_ASYNC_TIMEOUT);
+        deferred.onError(e -> {
+            log.warn("{} aborted by client: {}", operation, e.getMessage());
+            cancellation.cancel();
+        });
+        
+        workerExecutor.execute(() -> {
+            try {
+                deferred.setResult(work.apply(cancellation));
+            } catch (QueryCancelledException e) {
+                log.warn("{} cancelled ({}): {}", operation, e.getReason(), e.getMessage());
+                deferred.setResult(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .header(QUERY_CANCELLED_HEADER, e.getReason().name())
+                    .build());
+            } catch (QueryThrottledException e) {
+                log.warn("{} throttled: {}", operation, e.getMessage());
+                deferred.setResult(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSec()))
+                    .build());
+            } catch (QueryRejectedException e) {
+                log.warn("{} rejected: {}", operation, e.getMessage());
+                deferred.setResult(ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .header(QUERY_REJECTED_HEADER, e.getReason().name())
+                    .build());
+            } catch (Exception e) {
+                log.error("{} failed", operation, e);
+                deferred.setResult(ResponseEntity.badRequest().build());
+            }
+        });
+        return deferred;
+    }
+    
+    /**
+     * Cancellation handle of a streamed response: the async request timeout or an async
+     * error (client disconnected) cancels the running statement, as runCancellableResponse
+     * does for DeferredResult. The streaming body runs as a Callable of this request, so an
+     * interceptor on its async manager sees both.
+     */
+    private QueryCancellation streamCancellation(String operation, WebRequest webRequest) {
+        QueryCancellation cancellation = new QueryCancellation();
+        WebAsyncUtils.getAsyncManager(webRequest).registerCallableInterceptor(QueryCancellation.class.getName(),
+            new CallableProcessingInterceptor() {
+                @Override
+                public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+                    log.warn("{} timed out: cancelling its statement", operation);
+                    cancellation.cancel();
+                    return RESULT_NONE;
+                }
+                
+                @Override
+                public <T> Object handleError(NativeWebRequest request, Callable<T> task, Throwable t) {
+                    log.warn("{} aborted by client: {}", operation, t.getMessage());
+                    cancellation.cancel();
+                    return RESULT_NONE;
+                }
+            });
+        return cancellation;
+    }
 }
@@ -238,6 +238,7 @@ CREATE TABLE dqes.qrytb_object_meta (
 
   dbconn_id int4 NOT NULL,
   description varchar(2000) NULL,
+  result_cache_ttl_sec int4 NULL,        -- result cache TTL (seconds); NULL = results not cached
 
   LIKE dqes._sys_cols_template INCLUDING DEFAULTS INCLUDING generated,
 
@@ -399,6 +400,7 @@ CREATE TABLE dqes.qrytb_field_meta (
   data_type    varchar(100) NOT NULL,
 
   not_null     bool NULL DEFAULT false,
+  is_primary_key bool NULL DEFAULT false,   -- unique row key (keyset pagination tiebreaker)
 
   ui_control   jsonb NULL,
   is_default   bool NULL DEFAULT false,
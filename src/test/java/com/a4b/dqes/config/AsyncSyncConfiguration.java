@@ -5,6 +5,8 @@
 package com.a4b.dqes.config;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.SyncTaskExecutor;
@@ -16,4 +18,9 @@ public class AsyncSyncConfiguration {
     public Executor taskExecutor() {
         return new SyncTaskExecutor();
     }
+
+    @Bean(name = "workerExecutor")
+    public ExecutorService workerExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
 }
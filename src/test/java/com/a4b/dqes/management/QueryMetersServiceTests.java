@@ -0,0 +1,59 @@
+package com.a4b.dqes.management;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class QueryMetersServiceTests {
+
+    private static final String CANCELLED_QUERIES_METER_EXPECTED_NAME = "dqes.query.cancelled";
+
+    private static final String COST_GUARDED_QUERIES_METER_EXPECTED_NAME = "dqes.query.cost-guarded";
+
+    private MeterRegistry meterRegistry;
+
+    private QueryMetersService queryMetersService;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+
+        queryMetersService = new QueryMetersService(meterRegistry);
+    }
+
+    @Test
+    void testCancelledQueriesCountersByCauseAreCreated() {
+        meterRegistry.get(CANCELLED_QUERIES_METER_EXPECTED_NAME).tag("cause", "timeout").counter();
+
+        meterRegistry.get(CANCELLED_QUERIES_METER_EXPECTED_NAME).tag("cause", "client-abort").counter();
+
+        assertThat(meterRegistry.find(CANCELLED_QUERIES_METER_EXPECTED_NAME).counters()).hasSize(2);
+    }
+
+    @Test
+    void testCountMethodsShouldBeBoundToCorrectCounters() {
+        queryMetersService.trackTimeout();
+
+        assertThat(meterRegistry.get(CANCELLED_QUERIES_METER_EXPECTED_NAME).tag("cause", "timeout").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(CANCELLED_QUERIES_METER_EXPECTED_NAME).tag("cause", "client-abort").counter().count()).isZero();
+
+        queryMetersService.trackClientAbort();
+
+        assertThat(meterRegistry.get(CANCELLED_QUERIES_METER_EXPECTED_NAME).tag("cause", "client-abort").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testCostGuardMethodsShouldBeBoundToCorrectCounters() {
+        queryMetersService.trackCostRejected();
+
+        assertThat(meterRegistry.get(COST_GUARDED_QUERIES_METER_EXPECTED_NAME).tag("action", "rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(COST_GUARDED_QUERIES_METER_EXPECTED_NAME).tag("action", "limited").counter().count()).isZero();
+
+        queryMetersService.trackCostLimited();
+
+        assertThat(meterRegistry.get(COST_GUARDED_QUERIES_METER_EXPECTED_NAME).tag("action", "limited").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,80 @@
+package com.a4b.dqes.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.Map;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Arrow types of numeric columns written by {@link ArrowResultWriter}
+ */
+class ArrowResultWriterTest {
+
+    private static final String[] COLUMNS = { "amount", "wide", "free", "ratio" };
+
+    private static ResultSet resultSet() throws Exception {
+        ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+        when(rsmd.getColumnCount()).thenReturn(COLUMNS.length);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            when(rsmd.getColumnLabel(i + 1)).thenReturn(COLUMNS[i]);
+            when(rsmd.getColumnTypeName(i + 1)).thenReturn(i < 3 ? "numeric" : "float8");
+            when(rsmd.getColumnType(i + 1)).thenReturn(i < 3 ? Types.NUMERIC : Types.DOUBLE);
+        }
+        when(rsmd.getPrecision(1)).thenReturn(20);
+        when(rsmd.getScale(1)).thenReturn(4);
+        when(rsmd.getPrecision(2)).thenReturn(50);
+        when(rsmd.getScale(2)).thenReturn(2);
+        when(rsmd.getPrecision(3)).thenReturn(0);     // Unconstrained numeric
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(rsmd);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getBigDecimal(1)).thenReturn(new BigDecimal("1234567890123456.7891"), null);
+        when(rs.getBigDecimal(2)).thenReturn(new BigDecimal("123456789012345678901234567890123456789012345678.90"),
+            new BigDecimal("1.50"));
+        when(rs.getString(3)).thenReturn("0.1000000000000000000001", "42");
+        when(rs.getDouble(anyInt())).thenReturn(0.5d, 0.25d);
+        return rs;
+    }
+
+    @Test
+    void writesNumericColumnsAsDecimalsOfTheirPrecision() throws Exception {
+        ResultSet rs = resultSet();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = ArrowResultWriter.write(rs, RowLayout.of(rs.getMetaData(), 0), Map.of("amount", "NUMBER"), out, 10);
+
+        assertThat(rows).isEqualTo(2);
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()), allocator)) {
+            assertThat(reader.loadNextBatch()).isTrue();
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+
+            assertThat(root.getVector("amount").getField().getType()).isEqualTo(new ArrowType.Decimal(20, 4, 128));
+            assertThat(root.getVector("amount").getObject(0)).isEqualTo(new BigDecimal("1234567890123456.7891"));
+            assertThat(root.getVector("amount").isNull(1)).isTrue();
+            assertThat(root.getVector("wide").getField().getType()).isEqualTo(new ArrowType.Decimal(50, 2, 256));
+            assertThat(root.getVector("wide").getObject(0))
+                .isEqualTo(new BigDecimal("123456789012345678901234567890123456789012345678.90"));
+            assertThat(root.getVector("free").getField().getType()).isEqualTo(ArrowType.Utf8.INSTANCE);
+            assertThat(root.getVector("free").getObject(0).toString()).isEqualTo("0.1000000000000000000001");
+            assertThat(root.getVector("ratio").getField().getType().getTypeID())
+                .isEqualTo(ArrowType.ArrowTypeID.FloatingPoint);
+            assertThat(root.getVector("ratio").getObject(1)).isEqualTo(0.25d);
+        }
+    }
+}
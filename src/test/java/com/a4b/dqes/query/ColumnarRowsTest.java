@@ -0,0 +1,80 @@
+package com.a4b.dqes.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.a4b.dqes.query.ColumnarRows.Column;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Column pivot and dictionary encoding of {@link ColumnarRows}
+ */
+class ColumnarRowsTest {
+
+    private static List<Map<String, Object>> rows(Object... statuses) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < statuses.length; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", i);
+            row.put("status", statuses[i]);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Column column(ColumnarRows columnar, String name) {
+        return columnar.getColumns().stream().filter(c -> c.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void dictionaryEncodesLowCardinalityStrings() {
+        ColumnarRows columnar = ColumnarRows.of(List.of("id", "status"),
+            rows("OPEN", "CLOSED", "OPEN", null, "OPEN"), 16);
+
+        assertThat(columnar.getColumns()).extracting(Column::getName).containsExactly("id", "status");
+        Column status = column(columnar, "status");
+        assertThat(status.getValues()).isNull();
+        assertThat(status.getDictionary()).containsExactly("OPEN", "CLOSED");
+        assertThat(status.getCodes()).containsExactly(0, 1, 0, -1, 0);
+
+        Column id = column(columnar, "id");
+        assertThat(id.getDictionary()).isNull();
+        assertThat(id.getValues()).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void keepsMostlyUniqueStringsPlain() {
+        Column status = column(ColumnarRows.of(List.of("id", "status"), rows("A", "B", "C", "A"), 16), "status");
+
+        assertThat(status.getDictionary()).isNull();
+        assertThat(status.getValues()).containsExactly("A", "B", "C", "A");
+    }
+
+    @Test
+    void keepsColumnsPastMaxCardinalityPlain() {
+        Column status = column(ColumnarRows.of(List.of("status"), rows("A", "B", "A", "B", "A", "B"), 1), "status");
+
+        assertThat(status.getDictionary()).isNull();
+        assertThat(status.getCodes()).isNull();
+        assertThat(status.getValues()).hasSize(6);
+    }
+
+    @Test
+    void keepsMixedValueColumnsPlain() {
+        Column status = column(ColumnarRows.of(List.of("status"), rows("A", 1, "A", "A"), 16), "status");
+
+        assertThat(status.getDictionary()).isNull();
+        assertThat(status.getValues()).containsExactly("A", 1, "A", "A");
+    }
+
+    @Test
+    void zeroMaxCardinalityDisablesEncoding() {
+        Column status = column(ColumnarRows.of(List.of("status"), rows("A", "A", "A"), 0), "status");
+
+        assertThat(status.getDictionary()).isNull();
+        assertThat(status.getValues()).containsExactly("A", "A", "A");
+    }
+}
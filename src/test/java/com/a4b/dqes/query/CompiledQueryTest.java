@@ -0,0 +1,42 @@
+package com.a4b.dqes.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.a4b.dqes.query.generator.SqlGenerator.GeneratedSql;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CompiledQueryTest {
+
+    private final CompiledQuery compiled = new CompiledQuery(new GeneratedSql(), null, false, false, 0,
+        List.of("ORDER"), null, null);
+
+    @Test
+    void planEstimatesAreBucketedByLimit() {
+        List<Integer> explained = new ArrayList<>();
+
+        for (int limit = 1; limit <= 5000; limit++) {
+            compiled.planEstimate(limit, bucket -> {
+                explained.add(bucket);
+                return new CompiledQuery.PlanEstimate(bucket, bucket);
+            });
+        }
+        compiled.planEstimate(null, bucket -> {
+            explained.add(bucket);
+            return new CompiledQuery.PlanEstimate(1e9, 1e6);
+        });
+
+        assertThat(explained).containsExactly(1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192, null);
+        assertThat(compiled.planEstimate(700, bucket -> null).rows()).isEqualTo(1024);
+    }
+
+    @Test
+    void limitBucketIsTheNextPowerOfTwo() {
+        assertThat(CompiledQuery.limitBucket(0)).isEqualTo(1);
+        assertThat(CompiledQuery.limitBucket(1000)).isEqualTo(1024);
+        assertThat(CompiledQuery.limitBucket(1024)).isEqualTo(1024);
+        assertThat(CompiledQuery.limitBucket(1025)).isEqualTo(2048);
+        assertThat(CompiledQuery.limitBucket(Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+    }
+}
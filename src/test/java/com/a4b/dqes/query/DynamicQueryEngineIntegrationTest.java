@@ -6,6 +6,8 @@ import com.a4b.dqes.query.generator.SqlGenerator;
 import com.a4b.dqes.query.generator.SqlGenerator.GeneratedSql;
 import com.a4b.dqes.query.metadata.DqesMetadataRepository;
 import com.a4b.dqes.query.planner.JoinPathPlanner;
+import com.a4b.dqes.query.planner.LogicalPlan;
+import com.a4b.dqes.query.planner.LogicalPlanOptimizer;
 import java.util.Arrays;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
@@ -35,6 +37,9 @@ class DynamicQueryEngineIntegrationTest {
     @Autowired
     private JoinPathPlanner joinPathPlanner;
     
+    @Autowired
+    private LogicalPlanOptimizer planOptimizer;
+    
     @Autowired
     private SqlGenerator sqlGenerator;
     
@@ -135,7 +140,7 @@ class DynamicQueryEngineIntegrationTest {
         );
         
         // Generate SQL
-        GeneratedSql generatedSql = sqlGenerator.generateSql(ast);
+        GeneratedSql generatedSql = sqlGenerator.generateSql(planOptimizer.optimize(LogicalPlan.of(ast)));
         log.info("Generated SQL:\n{}", generatedSql.getSql());
         
         // Verify multi-hop
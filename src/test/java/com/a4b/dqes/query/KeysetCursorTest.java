@@ -0,0 +1,34 @@
+package com.a4b.dqes.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsSortKeyValues() {
+        List<String> values = Arrays.asList("2024-01-31 10:15:00+00", null, "O'Brien, \"Jr\"", "42");
+
+        String cursor = KeysetCursor.encode(values);
+
+        assertThat(KeysetCursor.decode(cursor)).isEqualTo(values);
+    }
+
+    @Test
+    void encodesUrlSafeWithoutPadding() {
+        String cursor = KeysetCursor.encode(List.of("??>>", "é"));
+
+        assertThat(cursor).doesNotContain("+", "/", "=");
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThatThrownBy(() -> KeysetCursor.decode("not a cursor!"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Invalid pagination cursor");
+    }
+}
@@ -0,0 +1,47 @@
+package com.a4b.dqes.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class QueryCancellationTest {
+
+    @Test
+    void runsCallbacksOnceOnCancel() {
+        QueryCancellation cancellation = new QueryCancellation();
+        AtomicInteger calls = new AtomicInteger();
+        cancellation.onCancel(calls::incrementAndGet);
+
+        cancellation.cancel();
+        cancellation.cancel();
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void runsCallbackRegisteredAfterCancelImmediately() {
+        QueryCancellation cancellation = new QueryCancellation();
+        cancellation.cancel();
+        AtomicInteger calls = new AtomicInteger();
+
+        cancellation.onCancel(calls::incrementAndGet);
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void removedCallbackIsNotRunWhenParentCancels() {
+        QueryCancellation parent = new QueryCancellation();
+        QueryCancellation child = parent.newChild();
+        AtomicInteger calls = new AtomicInteger();
+        Runnable callback = calls::incrementAndGet;
+        child.onCancel(callback);
+        child.removeOnCancel(callback);
+
+        parent.cancel();
+
+        assertThat(child.isCancelled()).isTrue();
+        assertThat(calls).hasValue(0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.a4b.dqes.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.a4b.dqes.config.QueryEngineProperties;
+import com.a4b.dqes.query.QueryPlanCache.PlanKey;
+import com.a4b.dqes.query.ast.SortNode.SortDirection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class QueryPlanCacheTest {
+
+    private static QueryRequest request(Object statusValue, Integer limit) {
+        QueryRequest request = new QueryRequest();
+        request.setTenantCode("T1");
+        request.setAppCode("APP");
+        request.setDbconnId(1);
+        request.setRootObjectCode("ORDER");
+        request.setSelectFields(List.of("ord.order_no", "cust.name"));
+        request.setFilters(new ArrayList<>(List.of(new QueryRequest.Filter("ORDER", "status", "IN", statusValue, null))));
+        request.setSorts(List.of(new QueryRequest.Sort("ORDER", "order_no", SortDirection.DESC, null)));
+        request.setLimit(limit);
+        return request;
+    }
+
+    private static PlanKey key(QueryRequest request) {
+        return PlanKey.of(request, QueryPlanCache.Variant.EXECUTE, false);
+    }
+
+    @Test
+    void valuesAndLimitAreNotPartOfTheShape() {
+        PlanKey first = key(request(List.of("OPEN"), 20));
+        PlanKey second = key(request(List.of("CLOSED", "HELD"), 500));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(second.hashCode()).isEqualTo(first.hashCode());
+    }
+
+    @Test
+    void shapeChangesChangeTheKey() {
+        PlanKey base = key(request(List.of("OPEN"), 20));
+
+        assertThat(key(request(List.of(), 20))).as("empty IN list folds to FALSE").isNotEqualTo(base);
+        assertThat(key(request(List.of("OPEN"), null))).as("limit presence").isNotEqualTo(base);
+        assertThat(PlanKey.of(request(List.of("OPEN"), 20), QueryPlanCache.Variant.STREAM, false)).isNotEqualTo(base);
+        assertThat(PlanKey.of(request(List.of("OPEN"), 20), QueryPlanCache.Variant.EXECUTE, true)).isNotEqualTo(base);
+
+        QueryRequest otherOperator = request(List.of("OPEN"), 20);
+        otherOperator.getFilters().get(0).setOperatorCode("NOT_IN");
+        assertThat(key(otherOperator)).isNotEqualTo(base);
+
+        QueryRequest otherTenant = request(List.of("OPEN"), 20);
+        otherTenant.setTenantCode("T2");
+        assertThat(key(otherTenant)).isNotEqualTo(base);
+    }
+
+    @Test
+    void collectionLimitIsPartOfTheShape() {
+        QueryRequest small = request(List.of("OPEN"), 20);
+        small.setCollections(List.of(new QueryRequest.NestedCollection("ORDER_LINE", null, 5, null)));
+        QueryRequest large = request(List.of("OPEN"), 20);
+        large.setCollections(List.of(new QueryRequest.NestedCollection("ORDER_LINE", null, 50, null)));
+
+        assertThat(key(small)).isNotEqualTo(key(large));
+    }
+
+    @Test
+    void compilesOncePerShapeUntilInvalidated() {
+        QueryPlanCache cache = new QueryPlanCache(new QueryEngineProperties());
+        AtomicInteger compilations = new AtomicInteger();
+        CompiledQuery compiled = mock(CompiledQuery.class);
+
+        CompiledQuery first = cache.get(request(List.of("OPEN"), 20), QueryPlanCache.Variant.EXECUTE, false, () -> {
+            compilations.incrementAndGet();
+            return compiled;
+        });
+        CompiledQuery second = cache.get(request(List.of("HELD"), 10), QueryPlanCache.Variant.EXECUTE, false, () -> {
+            compilations.incrementAndGet();
+            return compiled;
+        });
+
+        assertThat(second).isSameAs(first);
+        assertThat(compilations).hasValue(1);
+
+        cache.invalidate("T1", "APP");
+        assertThat(cache.size()).isZero();
+    }
+}
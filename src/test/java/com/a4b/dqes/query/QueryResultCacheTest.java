@@ -0,0 +1,112 @@
+package com.a4b.dqes.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.a4b.dqes.config.QueryEngineProperties;
+import com.a4b.dqes.query.ast.FilterNode;
+import com.a4b.dqes.query.ast.QueryAST;
+import com.a4b.dqes.query.ast.SelectNode;
+import com.a4b.dqes.query.generator.SqlGenerator;
+import com.a4b.dqes.query.generator.SqlGenerator.GeneratedSql;
+import com.a4b.dqes.query.metadata.DqesMetadataRepository;
+import com.hazelcast.core.HazelcastInstance;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class QueryResultCacheTest {
+
+    private static final String SQL = "SELECT t0.order_no\nFROM sales.orders t0\nWHERE t0.status = :param0\n";
+
+    private final QueryEngineProperties properties = new QueryEngineProperties();
+    private final QueryResultCache cache = new QueryResultCache(mock(HazelcastInstance.class), properties);
+
+    private static CompiledQuery compiled(String sql, Integer ttlSec) {
+        return compiled(sql, ttlSec, "OPEN");
+    }
+
+    private static CompiledQuery compiled(String sql, Integer ttlSec, Object status) {
+        GeneratedSql dataSql = new GeneratedSql();
+        dataSql.setSql(sql);
+        CompiledQuery compiled = mock(CompiledQuery.class);
+        when(compiled.getDataSql()).thenReturn(dataSql);
+        when(compiled.boundValues(any())).thenReturn(Map.of("param0", status));
+        when(compiled.getResultCacheTtlSec()).thenReturn(ttlSec);
+        when(compiled.getObjectCodes()).thenReturn(List.of("ORDER"));
+        return compiled;
+    }
+
+    private static QueryRequest request(String tenantCode) {
+        QueryRequest request = new QueryRequest();
+        request.setTenantCode(tenantCode);
+        request.setAppCode("APP");
+        request.setDbconnId(1);
+        return request;
+    }
+
+    @Test
+    void keyDependsOnBoundValues() {
+        String open = cache.key(request("T1"), compiled(SQL, 60, "OPEN"));
+
+        assertThat(cache.key(request("T1"), compiled(SQL, 60, "OPEN"))).isEqualTo(open);
+        assertThat(cache.key(request("T1"), compiled(SQL, 60, "CLOSED"))).isNotEqualTo(open);
+    }
+
+    @Test
+    void keyDependsOnSqlAndTenant() {
+        String base = cache.key(request("T1"), compiled(SQL, 60));
+
+        assertThat(cache.key(request("T1"), compiled(SQL.replace("status", "channel"), 60)))
+            .isNotEqualTo(base);
+        assertThat(cache.key(request("T2"), compiled(SQL, 60)))
+            .startsWith("T2:APP:1:")
+            .isNotEqualTo(base);
+    }
+
+    @Test
+    void coalescingKeyCoversUncacheableQueries() {
+        QueryRequest estimate = request("T1");
+        estimate.setCountMode(QueryRequest.CountMode.ESTIMATE);
+
+        String open = cache.key(request("T1"), compiled(SQL, null, "OPEN"));
+
+        assertThat(cache.key(request("T1"), compiled(SQL, null, "OPEN"))).isEqualTo(open);
+        assertThat(cache.key(request("T1"), compiled(SQL, null, "HELD"))).isNotEqualTo(open);
+        assertThat(cache.key(estimate, compiled(SQL, null, "OPEN"))).isNotEqualTo(open);
+    }
+
+    @Test
+    void keyDependsOnInListElements() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addFilter(new FilterNode("ORDER", "status", "IN", List.of("OPEN")));
+        DqesMetadataRepository repo = QueryTestMetadata.repository();
+        GeneratedSql dataSql = new SqlGenerator(repo).generateSql(QueryTestMetadata.plan(ast, repo));
+        CompiledQuery compiled = new CompiledQuery(dataSql, null, false, false, 0, List.of("ORDER"), 60, null);
+
+        String open = cache.key(inRequest("OPEN", "HELD"), compiled);
+
+        assertThat(cache.key(inRequest("OPEN", "HELD"), compiled)).isEqualTo(open);
+        assertThat(cache.key(inRequest("OPEN", "CLOSED"), compiled)).isNotEqualTo(open);
+        assertThat(cache.key(inRequest("OPEN"), compiled)).isNotEqualTo(open);
+    }
+
+    private static QueryRequest inRequest(String... statuses) {
+        QueryRequest request = request("T1");
+        request.setFilters(List.of(new QueryRequest.Filter("ORDER", "status", "IN", List.of(statuses), null)));
+        return request;
+    }
+
+    @Test
+    void cachesOnlyWhenEnabledAndEveryObjectHasATtl() {
+        assertThat(cache.isCacheable(compiled(SQL, 60))).isFalse();
+
+        properties.getResultCache().setEnabled(true);
+
+        assertThat(cache.isCacheable(compiled(SQL, 60))).isTrue();
+        assertThat(cache.isCacheable(compiled(SQL, null))).isFalse();
+    }
+}
@@ -0,0 +1,167 @@
+package com.a4b.dqes.query;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.a4b.dqes.config.QueryEngineProperties;
+import com.a4b.dqes.query.ast.QueryAST;
+import com.a4b.dqes.query.metadata.DqesMetadataRepository;
+import com.a4b.dqes.query.metadata.FieldMeta;
+import com.a4b.dqes.query.metadata.ObjectMeta;
+import com.a4b.dqes.query.metadata.ObjectPathCache;
+import com.a4b.dqes.query.metadata.RelationMeta;
+import com.a4b.dqes.query.planner.JoinPathPlanner;
+import com.a4b.dqes.query.planner.LogicalPlan;
+import com.a4b.dqes.query.planner.LogicalPlanOptimizer;
+
+/**
+ * In-memory metadata for database-free planner / generator tests
+ * ORDER (sales.orders) -> CUSTOMER (MANY_TO_ONE), ORDER -> ORDER_LINE (ONE_TO_MANY),
+ * ORDER_LINE -> PRODUCT (MANY_TO_ONE)
+ */
+public final class QueryTestMetadata {
+
+    public static final String TENANT = "T1";
+    public static final String APP = "APP";
+
+    private static final Map<String, ObjectMeta> OBJECTS = Map.of(
+        "ORDER", object("ORDER", "sales.orders", null),
+        "CUSTOMER", object("CUSTOMER", "sales.customer", null),
+        "ORDER_LINE", object("ORDER_LINE", "sales.order_line", "line"),
+        "PRODUCT", object("PRODUCT", "sales.product", null)
+    );
+
+    private static final List<FieldMeta> FIELDS = List.of(
+        field("ORDER", "id", "INT", true),
+        field("ORDER", "order_no", "STRING", false, true),
+        field("ORDER", "status", "STRING", false),
+        field("ORDER", "customer_id", "INT", false),
+        field("ORDER", "channel", "CODE", false),         // Data type without pg_cast
+        field("CUSTOMER", "id", "INT", true),
+        field("CUSTOMER", "name", "STRING", false),
+        field("ORDER_LINE", "id", "INT", true),
+        field("ORDER_LINE", "order_id", "INT", false),
+        field("ORDER_LINE", "line_no", "INT", false),
+        field("ORDER_LINE", "qty", "NUMBER", false),
+        field("ORDER_LINE", "status", "STRING", false),
+        field("ORDER_LINE", "product_id", "INT", false),
+        field("PRODUCT", "id", "INT", true),
+        field("PRODUCT", "sku", "STRING", false)
+    );
+
+    private static final List<RelationMeta> RELATIONS = List.of(
+        relation("ORD_CUST", "ORDER", "CUSTOMER", RelationMeta.RelationType.MANY_TO_ONE, "customer_id", "id"),
+        relation("ORD_LINE", "ORDER", "ORDER_LINE", RelationMeta.RelationType.ONE_TO_MANY, "id", "order_id"),
+        relation("LINE_PROD", "ORDER_LINE", "PRODUCT", RelationMeta.RelationType.MANY_TO_ONE, "product_id", "id")
+    );
+
+    private static final List<ObjectPathCache> PATHS = List.of(
+        path("CUSTOMER", "ORD_CUST"),
+        path("ORDER_LINE", "ORD_LINE"),
+        path("PRODUCT", "ORD_LINE", "LINE_PROD")
+    );
+
+    private static final Map<String, String> PG_CASTS = Map.of("STRING", "text", "INT", "int8", "NUMBER", "numeric");
+
+    private QueryTestMetadata() {}
+
+    /**
+     * Mocked repository answering from the fixture above
+     */
+    public static DqesMetadataRepository repository() {
+        DqesMetadataRepository repo = mock(DqesMetadataRepository.class);
+        when(repo.findObjectMeta(anyString(), anyString(), anyString()))
+            .thenAnswer(inv -> Optional.ofNullable(OBJECTS.get(inv.<String>getArgument(2))));
+        when(repo.findFieldMeta(anyString(), anyString(), anyString(), anyString()))
+            .thenAnswer(inv -> FIELDS.stream()
+                .filter(f -> f.getObjectCode().equals(inv.getArgument(2)) && f.getFieldCode().equals(inv.getArgument(3)))
+                .findFirst());
+        when(repo.findFieldsByObject(anyString(), anyString(), anyString()))
+            .thenAnswer(inv -> FIELDS.stream().filter(f -> f.getObjectCode().equals(inv.getArgument(2))).toList());
+        when(repo.findRelationMeta(anyString(), anyString(), anyList()))
+            .thenAnswer(inv -> Optional.of(RELATIONS.stream()
+                .filter(r -> inv.<List<String>>getArgument(2).contains(r.getCode()))
+                .toList()));
+        when(repo.findObjectPath(anyString(), anyString(), anyString()))
+            .thenAnswer(inv -> Optional.of("ORDER".equals(inv.getArgument(2)) ? PATHS : List.of()));
+        when(repo.findDataTypePgCast(anyString(), anyString(), any()))
+            .thenAnswer(inv -> Optional.ofNullable(PG_CASTS.get(inv.<String>getArgument(2))));
+        return repo;
+    }
+
+    /**
+     * Empty AST over ORDER for the fixture tenant / app
+     */
+    public static QueryAST orderQuery() {
+        QueryAST ast = new QueryAST();
+        ast.setTenantCode(TENANT);
+        ast.setAppCode(APP);
+        ast.setRootObject("ORDER");
+        return ast;
+    }
+
+    /**
+     * Plan joins and run the rewrite passes, as DynamicQueryExecutor does before SQL rendering
+     */
+    public static LogicalPlan plan(QueryAST ast, DqesMetadataRepository repo) {
+        new JoinPathPlanner(repo, new QueryEngineProperties()).planJoins(ast);
+        return new LogicalPlanOptimizer().optimize(LogicalPlan.of(ast));
+    }
+
+    private static ObjectMeta object(String code, String table, String aliasHint) {
+        ObjectMeta meta = new ObjectMeta();
+        meta.setTenantCode(TENANT);
+        meta.setAppCode(APP);
+        meta.setObjectCode(code);
+        meta.setDbTable(table);
+        meta.setAliasHint(aliasHint);
+        return meta;
+    }
+
+    private static FieldMeta field(String objectCode, String fieldCode, String dataType, boolean primaryKey) {
+        return field(objectCode, fieldCode, dataType, primaryKey, primaryKey);
+    }
+
+    private static FieldMeta field(String objectCode, String fieldCode, String dataType, boolean primaryKey,
+                                   boolean notNull) {
+        FieldMeta meta = new FieldMeta();
+        meta.setTenantCode(TENANT);
+        meta.setAppCode(APP);
+        meta.setObjectCode(objectCode);
+        meta.setFieldCode(fieldCode);
+        meta.setMappingType(FieldMeta.MappingType.COLUMN);
+        meta.setColumnName(fieldCode);
+        meta.setDataType(dataType);
+        meta.setPrimaryKey(primaryKey);
+        meta.setNotNull(notNull);
+        return meta;
+    }
+
+    private static RelationMeta relation(String code, String from, String to, RelationMeta.RelationType type,
+                                         String fromColumn, String toColumn) {
+        RelationMeta meta = new RelationMeta();
+        meta.setTenantCode(TENANT);
+        meta.setAppCode(APP);
+        meta.setCode(code);
+        meta.setFromObjectCode(from);
+        meta.setToObjectCode(to);
+        meta.setRelationType(type);
+        meta.setJoinType(RelationMeta.JoinType.LEFT);
+        meta.setFilterMode(RelationMeta.FilterMode.AUTO);
+        meta.setJoinKeys(List.of(new RelationMeta.JoinKeyMeta(null, null, 1, fromColumn, "=", toColumn, false)));
+        return meta;
+    }
+
+    private static ObjectPathCache path(String to, String... relationCodes) {
+        return new ObjectPathCache(null, TENANT, APP, "ORDER", to, relationCodes.length, relationCodes.length,
+            new ArrayList<>(List.of(relationCodes)), null);
+    }
+}
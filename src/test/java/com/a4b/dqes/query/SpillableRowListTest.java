@@ -0,0 +1,126 @@
+package com.a4b.dqes.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.a4b.dqes.exception.QueryRejectedException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Heap/spill modes and the binary row encoding of {@link SpillableRowList}
+ */
+class SpillableRowListTest {
+
+    private static final String[] COLUMNS = {
+        "str", "int", "short", "long", "double", "float", "bool", "decimal", "ts", "date", "uuid", "json", "raw", "empty"
+    };
+
+    @TempDir
+    Path spillDir;
+
+    private SpillableRowList rows(int rowThreshold, long maxSpillBytes) {
+        return new SpillableRowList(COLUMNS, rowThreshold, Long.MAX_VALUE, maxSpillBytes, spillDir.toString());
+    }
+
+    private static Object[] row(int i) {
+        Timestamp ts = Timestamp.valueOf("2024-03-01 10:15:30");
+        ts.setNanos(123_456_789 + i);
+        return new Object[] {
+            "đơn hàng " + i, i, (short) i, 10_000_000_000L + i, i + 0.25, 1.5f, i % 2 == 0,
+            new BigDecimal("12.3400").add(BigDecimal.valueOf(i)), ts, Date.valueOf("2024-03-0" + (i + 1)),
+            new UUID(i, -i), Map.of("n", i), new RawJson("{\"n\": " + i + "}"), null
+        };
+    }
+
+    private static void assertRow(Map<String, Object> actual, int i) {
+        Object[] expected = row(i);
+        assertThat(actual.get("str")).isEqualTo(expected[0]);
+        assertThat(actual.get("int")).isEqualTo(i);
+        assertThat(((Number) actual.get("short")).intValue()).isEqualTo(i);
+        assertThat(actual.get("long")).isEqualTo(expected[3]);
+        assertThat(actual.get("double")).isEqualTo(expected[4]);
+        assertThat(((Number) actual.get("float")).doubleValue()).isEqualTo(1.5d);
+        assertThat(actual.get("bool")).isEqualTo(expected[6]);
+        assertThat(actual.get("decimal")).isEqualTo(expected[7]);
+        assertThat(actual.get("ts")).isEqualTo(expected[8]);
+        assertThat(actual.get("date")).isEqualTo(expected[9]);
+        assertThat(actual.get("uuid")).isEqualTo(expected[10]);
+        assertThat(actual.get("json")).isEqualTo(expected[11]);
+        assertThat(((RawJson) actual.get("raw")).getJson()).isEqualTo("{\"n\": " + i + "}");
+        assertThat(actual.get("empty")).isNull();
+        assertThat(actual.containsKey("empty")).isTrue();
+    }
+
+    private List<Path> spillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spillDir)) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    void keepsRowsOnHeapBelowThreshold() throws IOException {
+        SpillableRowList rows = rows(10, 0);
+        rows.addRow(row(0));
+        rows.addRow(row(1));
+
+        assertThat(rows.isSpilled()).isFalse();
+        assertRow(rows.get(1), 1);
+        assertThat(rows.seal()).hasSize(2);
+        assertThat(spillFiles()).isEmpty();
+    }
+
+    @Test
+    void spilledRowsRoundTripEveryValueType() throws IOException {
+        SpillableRowList rows = rows(1, 0);
+        for (int i = 0; i < 5; i++) {
+            rows.addRow(row(i));
+        }
+        rows.seal();
+
+        assertThat(rows.isSpilled()).isTrue();
+        assertThat(rows).hasSize(5);
+        assertThat(spillFiles()).isEmpty();
+        assertRow(rows.get(3), 3);
+        assertRow(rows.get(0), 0);
+
+        List<Map<String, Object>> iterated = new ArrayList<>();
+        rows.iterator().forEachRemaining(iterated::add);
+        assertThat(iterated).hasSize(5);
+        for (int i = 0; i < 5; i++) {
+            assertRow(iterated.get(i), i);
+        }
+    }
+
+    @Test
+    void spilledRowsAreReadOnlyAfterSeal() {
+        SpillableRowList rows = rows(1, 0);
+        rows.addRow(row(0));
+        rows.addRow(row(1));
+
+        assertThatThrownBy(() -> rows.get(0)).isInstanceOf(IllegalStateException.class);
+        rows.seal();
+        assertThatThrownBy(() -> rows.addRow(row(2))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsSpillPastMaxBytes() throws IOException {
+        SpillableRowList rows = rows(0, 64);
+
+        assertThatThrownBy(() -> rows.addRow(row(0)))
+            .isInstanceOfSatisfying(QueryRejectedException.class,
+                e -> assertThat(e.getReason()).isEqualTo(QueryRejectedException.Reason.RESULT_SIZE));
+        assertThat(spillFiles()).isEmpty();
+    }
+}
@@ -0,0 +1,357 @@
+package com.a4b.dqes.query.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.a4b.dqes.query.CompiledQuery;
+import com.a4b.dqes.query.QueryRequest;
+import com.a4b.dqes.query.QueryTestMetadata;
+import com.a4b.dqes.query.ast.CollectionNode;
+import com.a4b.dqes.query.ast.FilterNode;
+import com.a4b.dqes.query.ast.QueryAST;
+import com.a4b.dqes.query.ast.SelectNode;
+import com.a4b.dqes.query.ast.SortNode;
+import com.a4b.dqes.query.ast.SortNode.SortDirection;
+import com.a4b.dqes.query.generator.SqlGenerator.GeneratedSql;
+import com.a4b.dqes.query.metadata.DqesMetadataRepository;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.support.SqlArrayValue;
+
+/**
+ * SQL rendering over the in-memory {@link QueryTestMetadata} schema (no database)
+ */
+class SqlGeneratorTest {
+
+    private final DqesMetadataRepository repo = QueryTestMetadata.repository();
+    private final SqlGenerator generator = new SqlGenerator(repo);
+
+    private GeneratedSql generate(QueryAST ast) {
+        return generator.generateSql(QueryTestMetadata.plan(ast, repo));
+    }
+
+    @Test
+    void keysetSeekUsesRowComparisonForUniformDirection() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addSort(new SortNode("ORDER", "order_no", SortDirection.ASC));
+        ast.addSort(new SortNode("ORDER", "id", SortDirection.ASC));
+        ast.setKeysetPagination(true);
+        ast.setKeysetValues(List.of("SO-0042", "42"));
+        ast.setLimit(20);
+
+        GeneratedSql generated = generate(ast);
+
+        assertThat(generated.getSql())
+            .contains("(t0.order_no)::text AS __dqes_k0")
+            .contains("(t0.id)::text AS __dqes_k1")
+            .contains("WHERE (t0.order_no, t0.id) > (:param0, :param1)");
+        assertThat(generated.getParameters().getValues())
+            .containsEntry("param0", "SO-0042")
+            .containsEntry("param1", "42");
+    }
+
+    @Test
+    void keysetSeekExpandsMixedDirections() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addSort(new SortNode("ORDER", "order_no", SortDirection.DESC));
+        ast.addSort(new SortNode("ORDER", "id", SortDirection.ASC));
+        ast.setKeysetPagination(true);
+        ast.setKeysetValues(List.of("SO-0042", "42"));
+
+        String sql = generate(ast).getSql();
+
+        assertThat(sql)
+            .contains("((t0.order_no < :param0) OR (t0.order_no = :param0 AND t0.id > :param1))");
+    }
+
+    @Test
+    void keysetSeekOnNullableKeyFollowsNullsLast() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addSort(new SortNode("ORDER", "status", SortDirection.ASC));
+        ast.addSort(new SortNode("ORDER", "id", SortDirection.ASC));
+        ast.setKeysetPagination(true);
+        ast.setKeysetValues(Arrays.asList(null, "42"));
+
+        String sql = generate(ast).getSql();
+
+        assertThat(sql)
+            .contains("ORDER BY t0.status ASC NULLS LAST, t0.id ASC NULLS LAST")
+            .contains("((CAST(:param0 AS text) IS NOT NULL AND (t0.status > :param0 OR t0.status IS NULL))"
+                + " OR (t0.status IS NOT DISTINCT FROM :param0 AND t0.id > :param1))")
+            .doesNotContain("(t0.status, t0.id) >");
+    }
+
+    @Test
+    void keysetSeekOnNullableKeyFollowsNullsFirst() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        SortNode status = new SortNode("ORDER", "status", SortDirection.DESC);
+        status.setNullsOrder(SortNode.NullsOrder.FIRST);
+        ast.addSort(status);
+        ast.addSort(new SortNode("ORDER", "id", SortDirection.DESC));
+        ast.setKeysetPagination(true);
+        ast.setKeysetValues(List.of("OPEN", "42"));
+
+        assertThat(generate(ast).getSql())
+            .contains("((t0.status < :param0 OR (CAST(:param0 AS text) IS NULL AND t0.status IS NOT NULL))"
+                + " OR (t0.status IS NOT DISTINCT FROM :param0 AND t0.id < :param1))");
+    }
+
+    @Test
+    void inListIsBoundAsOneTypedArray() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addFilter(new FilterNode("ORDER", "status", "IN", List.of("OPEN", "HELD")));
+        ast.addFilter(new FilterNode("ORDER", "customer_id", "NOT_IN", List.of(7, 9)));
+
+        GeneratedSql generated = generate(ast);
+
+        assertThat(generated.getSql())
+            .contains("t0.status = ANY(:param0)")
+            .contains("t0.customer_id <> ALL(:param1)");
+        assertThat(generated.getBindings())
+            .extracting(ParamBinding::getArrayType)
+            .containsExactly("text", "int8");
+        assertThat(generated.getParameters().getValue("param0")).isInstanceOf(SqlArrayValue.class);
+    }
+
+    @Test
+    void inListStatementTextDoesNotDependOnListLength() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addFilter(new FilterNode("ORDER", "status", "IN", List.of("OPEN")));
+        GeneratedSql generated = generate(ast);
+        CompiledQuery compiled = new CompiledQuery(generated, null, false, false, 0, List.of("ORDER"), null, null);
+
+        QueryRequest request = new QueryRequest();
+        request.setFilters(List.of(new QueryRequest.Filter("ORDER", "status", "IN", List.of("A", "B", "C"), null)));
+
+        assertThat(compiled.bind(request).getValue("param0")).isInstanceOf(SqlArrayValue.class);
+    }
+
+    @Test
+    void inListInsideExistsUsesArray() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addFilter(new FilterNode("ORDER_LINE", "product_id", "IN", List.of(1, 2, 3)));
+
+        assertThat(generate(ast).getSql()).contains("sq_order_line.product_id = ANY(:param0)");
+    }
+
+    @Test
+    void inListWithoutPgCastStaysExpanded() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addFilter(new FilterNode("ORDER", "channel", "IN", List.of("WEB", "SHOP")));
+
+        GeneratedSql generated = generate(ast);
+
+        assertThat(generated.getSql()).contains("t0.channel IN (:param0)");
+        assertThat(generated.getBindings().get(0).getArrayType()).isNull();
+    }
+
+    @Test
+    void deferredJoinPagesRootKeysBeforeJoiningSelectedObjects() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addSelect(new SelectNode("CUSTOMER", "name"));
+        ast.addFilter(new FilterNode("ORDER", "status", "EQ", "OPEN"));
+        ast.addSort(new SortNode("ORDER", "order_no", SortDirection.DESC));
+        ast.setLimit(20);
+        ast.setDeferredJoin(true);
+
+        String sql = generate(ast).getSql();
+        String page = sql.substring(sql.indexOf("FROM (\n"), sql.indexOf(") dqes_page"));
+
+        assertThat(page)
+            .contains("SELECT t0.id AS __dqes_pk0, t0.order_no AS __dqes_o0")
+            .contains("WHERE t0.status = :param0")
+            .contains("ORDER BY t0.order_no DESC NULLS LAST")
+            .contains("LIMIT :param1")
+            .doesNotContain("sales.customer");
+        assertThat(sql)
+            .contains(") dqes_page\nINNER JOIN sales.orders t0 ON t0.id = dqes_page.__dqes_pk0\n"
+                + "LEFT JOIN sales.customer t1 ON t0.customer_id = t1.id\n")
+            .endsWith("ORDER BY dqes_page.__dqes_o0 DESC NULLS LAST\n");
+    }
+
+    @Test
+    void deferredJoinFallsBackWhenJoinedObjectIsSorted() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addSelect(new SelectNode("CUSTOMER", "name"));
+        ast.addSort(new SortNode("CUSTOMER", "name", SortDirection.ASC));
+        ast.setLimit(20);
+        ast.setDeferredJoin(true);
+
+        assertThat(generate(ast).getSql())
+            .doesNotContain("dqes_page")
+            .contains("LEFT JOIN sales.customer t1 ON t0.customer_id = t1.id");
+    }
+
+    @Test
+    void deferredJoinNeedsALimit() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addSelect(new SelectNode("CUSTOMER", "name"));
+        ast.setDeferredJoin(true);
+
+        assertThat(generate(ast).getSql()).doesNotContain("dqes_page");
+    }
+
+    @Test
+    void countLeavesOutJoinsUsedOnlyBySelectsAndSorts() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addSelect(new SelectNode("CUSTOMER", "name"));
+        ast.addFilter(new FilterNode("ORDER", "status", "EQ", "OPEN"));
+        ast.addSort(new SortNode("CUSTOMER", "name", SortDirection.ASC));
+        ast.setLimit(20);
+
+        GeneratedSql count = generator.generateCountSql(QueryTestMetadata.plan(ast, repo));
+
+        assertThat(count.getSql())
+            .startsWith("SELECT COUNT(*)\nFROM sales.orders t0\n")
+            .contains("WHERE t0.status = :param0")
+            .doesNotContain("JOIN", "ORDER BY", "LIMIT", "jsonb_build_object");
+        assertThat(count.getCountSubquerySql()).startsWith("SELECT 1\nFROM sales.orders t0\n");
+    }
+
+    @Test
+    void countKeepsJoinsAndExistsThatFilter() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addFilter(new FilterNode("CUSTOMER", "name", "EQ", "ACME"));
+        ast.addFilter(new FilterNode("ORDER_LINE", "qty", "GT", 5));
+
+        String sql = generator.generateCountSql(QueryTestMetadata.plan(ast, repo)).getSql();
+
+        assertThat(sql)
+            .startsWith("SELECT COUNT(*)\n")
+            .contains("LEFT JOIN sales.customer t1 ON t0.customer_id = t1.id")
+            .contains("t1.name = :param0")
+            .contains("EXISTS (\n  SELECT 1 FROM sales.order_line sq_order_line")
+            .contains("sq_order_line.qty > :param1");
+    }
+
+    @Test
+    void filterBehindOneToManyHopRendersExistsChain() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addFilter(new FilterNode("PRODUCT", "sku", "EQ", "X-1"));
+
+        String sql = generate(ast).getSql();
+
+        assertThat(sql)
+            .contains("WHERE EXISTS (\n  SELECT 1 FROM sales.order_line sq_order_line\n"
+                + "  WHERE t0.id = sq_order_line.order_id AND EXISTS (\n"
+                + "  SELECT 1 FROM sales.product sq_product\n"
+                + "  WHERE sq_order_line.product_id = sq_product.id AND sq_product.sku = :param0\n)\n)")
+            .doesNotContain("JOIN");
+    }
+
+    @Test
+    void filtersAlongOneChainShareItsSemiJoins() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addFilter(new FilterNode("ORDER_LINE", "qty", "GT", 5));
+        ast.addFilter(new FilterNode("PRODUCT", "sku", "EQ", "X-1"));
+
+        String sql = generate(ast).getSql();
+
+        assertThat(sql)
+            .containsOnlyOnce("SELECT 1 FROM sales.order_line sq_order_line")
+            .containsOnlyOnce("SELECT 1 FROM sales.product sq_product")
+            .contains("t0.id = sq_order_line.order_id AND sq_order_line.qty > :param0 AND EXISTS (")
+            .contains("sq_order_line.product_id = sq_product.id AND sq_product.sku = :param1");
+    }
+
+    @Test
+    void selectedObjectBehindOneToManyHopKeepsTheChainJoined() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addSelect(new SelectNode("PRODUCT", "sku"));
+        ast.addFilter(new FilterNode("ORDER_LINE", "qty", "GT", 5));
+
+        String sql = generate(ast).getSql();
+
+        assertThat(sql)
+            .contains("LEFT JOIN sales.order_line line ON t0.id = line.order_id")
+            .contains("JOIN sales.product ")
+            .contains("line.qty > :param0")
+            .doesNotContain("EXISTS");
+    }
+
+    @Test
+    void selectedCollectionRendersLateralArray() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addSelect(new SelectNode("ORDER_LINE", "line_no"));
+        CollectionNode lines = new CollectionNode("ORDER_LINE", 20, List.of(new SortNode("ORDER_LINE", "line_no", SortDirection.DESC)));
+        ast.addCollection(lines);
+
+        String sql = generate(ast).getSql();
+
+        assertThat(sql)
+            .contains("COALESCE(lat_order_line.items, '[]'::jsonb) AS line")
+            .contains("LEFT JOIN LATERAL (")
+            .contains("FROM sales.order_line sq_order_line")
+            .contains("WHERE t0.id = sq_order_line.order_id")
+            .contains("ORDER BY sq_order_line.line_no DESC")
+            .contains("LIMIT 20")
+            .contains(") lat_order_line ON TRUE")
+            .doesNotContain("JOIN sales.order_line")
+            .doesNotContain("EXISTS");
+    }
+
+    @Test
+    void collectionWithoutSortsIsOrderedByPrimaryKey() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER_LINE", "line_no"));
+        ast.addCollection(new CollectionNode("ORDER_LINE", null, List.of()));
+
+        String sql = generate(ast).getSql();
+
+        assertThat(sql)
+            .contains("jsonb_agg(dqes_items.item ORDER BY dqes_items.")
+            .contains("ORDER BY sq_order_line.id ASC")
+            .contains("LIMIT 50");
+    }
+
+    @Test
+    void selectAndFilterOnSameCollectionAddsExists() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addSelect(new SelectNode("ORDER_LINE", "line_no"));
+        ast.addFilter(new FilterNode("ORDER_LINE", "status", "EQ", "OPEN"));
+        ast.addCollection(new CollectionNode("ORDER_LINE", 10, List.of()));
+
+        GeneratedSql generated = generate(ast);
+        String sql = generated.getSql();
+
+        assertThat(sql)
+            .contains(") lat_order_line ON TRUE")
+            .contains("WHERE EXISTS (")
+            .contains("SELECT 1 FROM sales.order_line sq_order_line")
+            .contains("t0.id = sq_order_line.order_id AND sq_order_line.status = :")
+            .doesNotContain("null.")
+            .doesNotContain("JOIN sales.order_line");
+        assertThat(generated.getParameters().getValues()).containsValue("OPEN");
+    }
+
+    @Test
+    void selectedOneToManyWithoutCollectionRequestStaysJoined() {
+        QueryAST ast = QueryTestMetadata.orderQuery();
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        ast.addSelect(new SelectNode("ORDER_LINE", "line_no"));
+
+        String sql = generate(ast).getSql();
+
+        assertThat(sql)
+            .contains("LEFT JOIN sales.order_line line ON t0.id = line.order_id")
+            .doesNotContain("LATERAL");
+    }
+}
@@ -0,0 +1,168 @@
+package com.a4b.dqes.query.planner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.a4b.dqes.query.ast.FilterNode;
+import com.a4b.dqes.query.ast.JoinNode;
+import com.a4b.dqes.query.ast.JoinNode.JoinStrategy;
+import com.a4b.dqes.query.ast.JoinNode.JoinType;
+import com.a4b.dqes.query.ast.QueryAST;
+import com.a4b.dqes.query.ast.SelectNode;
+import com.a4b.dqes.query.planner.LogicalPlan.ExistsBlock;
+import com.a4b.dqes.query.planner.LogicalPlan.PlanFilter;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Optimizer passes on hand-built plans (ORDER root, ORDER_LINE -> PRODUCT semi-join chain)
+ */
+class LogicalPlanOptimizerTest {
+
+    private final LogicalPlanOptimizer optimizer = new LogicalPlanOptimizer();
+
+    private static QueryAST orderQuery() {
+        QueryAST ast = new QueryAST();
+        ast.setTenantCode("T1");
+        ast.setAppCode("APP");
+        ast.setRootObject("ORDER");
+        ast.addSelect(new SelectNode("ORDER", "order_no"));
+        return ast;
+    }
+
+    private static JoinNode join(String relation, String from, String to, JoinType type, JoinStrategy strategy,
+                                 boolean toOne) {
+        JoinNode join = new JoinNode(relation, from, to, type);
+        join.setStrategy(strategy);
+        join.setToOne(toOne);
+        return join;
+    }
+
+    private static JoinNode exists(String relation, String from, String to) {
+        return join(relation, from, to, JoinType.LEFT, JoinStrategy.EXISTS, false);
+    }
+
+    @Test
+    void pushesFiltersIntoTheirExistsBlock() {
+        QueryAST ast = orderQuery();
+        ast.addJoin(exists("ORD_LINE", "ORDER", "ORDER_LINE"));
+        ast.addFilter(new FilterNode("ORDER", "status", "EQ", "OPEN"));
+        ast.addFilter(new FilterNode("ORDER_LINE", "qty", "GT", 5));
+
+        LogicalPlan plan = LogicalPlanOptimizer.pushDownExistsPredicates(LogicalPlan.of(ast));
+
+        assertThat(plan.getFilters()).extracting(PlanFilter::index).containsExactly(0);
+        assertThat(plan.getExistsBlocks()).hasSize(1);
+        assertThat(plan.getExistsBlocks().get(0).filters()).extracting(PlanFilter::index).containsExactly(1);
+    }
+
+    @Test
+    void pushesFiltersToTheirDepthInAnExistsChain() {
+        QueryAST ast = orderQuery();
+        ast.addJoin(exists("ORD_LINE", "ORDER", "ORDER_LINE"));
+        ast.addJoin(exists("LINE_PROD", "ORDER_LINE", "PRODUCT"));
+        ast.addFilter(new FilterNode("PRODUCT", "sku", "EQ", "X-1"));
+
+        LogicalPlan plan = LogicalPlanOptimizer.pushDownExistsPredicates(LogicalPlan.of(ast));
+
+        assertThat(plan.getFilters()).isEmpty();
+        assertThat(plan.getExistsBlocks()).hasSize(1);
+        ExistsBlock lines = plan.getExistsBlocks().get(0);
+        assertThat(lines.objectCode()).isEqualTo("ORDER_LINE");
+        assertThat(lines.filters()).isEmpty();
+        assertThat(lines.nested()).extracting(ExistsBlock::objectCode).containsExactly("PRODUCT");
+        assertThat(lines.nested().get(0).filters()).extracting(PlanFilter::index).containsExactly(0);
+    }
+
+    @Test
+    void dropsExistsBlocksWithoutFilters() {
+        QueryAST ast = orderQuery();
+        ast.addJoin(exists("ORD_LINE", "ORDER", "ORDER_LINE"));
+
+        LogicalPlan plan = LogicalPlanOptimizer.pushDownExistsPredicates(LogicalPlan.of(ast));
+
+        assertThat(plan.getExistsBlocks()).isEmpty();
+    }
+
+    @Test
+    void mergesBlocksOnTheSameRelation() {
+        QueryAST ast = orderQuery();
+        ast.addJoin(exists("ORD_LINE", "ORDER", "ORDER_LINE"));
+        ast.addJoin(exists("ORD_LINE", "ORDER", "ORDER_LINE"));
+        ast.addFilter(new FilterNode("ORDER_LINE", "qty", "GT", 5));
+        ast.addFilter(new FilterNode("ORDER_LINE", "status", "EQ", "OPEN"));
+
+        LogicalPlan plan = optimizer.optimize(LogicalPlan.of(ast));
+
+        assertThat(plan.getExistsBlocks()).hasSize(1);
+        assertThat(plan.getExistsBlocks().get(0).filters()).extracting(PlanFilter::index).containsExactly(0, 1);
+    }
+
+    @Test
+    void foldsEmptyInLists() {
+        QueryAST ast = orderQuery();
+        ast.addFilter(new FilterNode("ORDER", "status", "IN", List.of()));
+        ast.addFilter(new FilterNode("ORDER", "channel", "NOT_IN", List.of()));
+        ast.addFilter(new FilterNode("ORDER", "order_no", "IN", List.of("SO-1")));
+
+        LogicalPlan plan = LogicalPlanOptimizer.foldEmptyInLists(LogicalPlan.of(ast));
+
+        assertThat(plan.getFilters()).extracting(PlanFilter::index).containsExactly(0, 2);
+        assertThat(plan.getFilters()).extracting(PlanFilter::alwaysFalse).containsExactly(true, false);
+    }
+
+    @Test
+    void emptyInListInsideABlockFoldsTheBlock() {
+        QueryAST ast = orderQuery();
+        ast.addJoin(exists("ORD_LINE", "ORDER", "ORDER_LINE"));
+        ast.addFilter(new FilterNode("ORDER_LINE", "qty", "GT", 5));
+        ast.addFilter(new FilterNode("ORDER_LINE", "status", "IN", List.of()));
+
+        LogicalPlan plan = optimizer.optimize(LogicalPlan.of(ast));
+
+        assertThat(plan.getExistsBlocks()).isEmpty();
+        assertThat(plan.getFilters()).extracting(PlanFilter::index).containsExactly(1);
+        assertThat(plan.getFilters()).extracting(PlanFilter::alwaysFalse).containsExactly(true);
+    }
+
+    @Test
+    void emptyInListInsideAChainFoldsTheOutermostBlock() {
+        QueryAST ast = orderQuery();
+        ast.addJoin(exists("ORD_LINE", "ORDER", "ORDER_LINE"));
+        ast.addJoin(exists("LINE_PROD", "ORDER_LINE", "PRODUCT"));
+        ast.addFilter(new FilterNode("ORDER_LINE", "qty", "GT", 5));
+        ast.addFilter(new FilterNode("PRODUCT", "sku", "IN", List.of()));
+
+        LogicalPlan plan = optimizer.optimize(LogicalPlan.of(ast));
+
+        assertThat(plan.getExistsBlocks()).isEmpty();
+        assertThat(plan.getFilters()).extracting(PlanFilter::index).containsExactly(1);
+        assertThat(plan.getFilters()).extracting(PlanFilter::alwaysFalse).containsExactly(true);
+    }
+
+    @Test
+    void eliminatesUnusedLeftToOneJoins() {
+        QueryAST ast = orderQuery();
+        ast.addJoin(join("ORD_CUST", "ORDER", "CUSTOMER", JoinType.LEFT, JoinStrategy.JOIN, true));
+        ast.addJoin(join("ORD_WH", "ORDER", "WAREHOUSE", JoinType.INNER, JoinStrategy.JOIN, true));
+        ast.addJoin(join("ORD_CHANNEL", "ORDER", "CHANNEL", JoinType.LEFT, JoinStrategy.JOIN, true));
+        ast.addJoin(join("ORD_LINE", "ORDER", "ORDER_LINE", JoinType.LEFT, JoinStrategy.JOIN, false));
+        ast.addFilter(new FilterNode("CHANNEL", "code", "EQ", "WEB"));
+
+        LogicalPlan plan = LogicalPlanOptimizer.eliminateRedundantJoins(LogicalPlan.of(ast));
+
+        assertThat(plan.getJoins()).extracting(JoinNode::getToObjectCode)
+            .containsExactly("WAREHOUSE", "CHANNEL", "ORDER_LINE");
+    }
+
+    @Test
+    void keepsJoinsThatAKeptJoinHangsOff() {
+        QueryAST ast = orderQuery();
+        ast.addJoin(join("ORD_CUST", "ORDER", "CUSTOMER", JoinType.LEFT, JoinStrategy.JOIN, true));
+        ast.addJoin(join("CUST_REGION", "CUSTOMER", "REGION", JoinType.LEFT, JoinStrategy.JOIN, true));
+        ast.addSelect(new SelectNode("REGION", "name"));
+
+        LogicalPlan plan = LogicalPlanOptimizer.eliminateRedundantJoins(LogicalPlan.of(ast));
+
+        assertThat(plan.getJoins()).extracting(JoinNode::getToObjectCode).containsExactly("CUSTOMER", "REGION");
+    }
+}